@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Minimal benchmark harness: fixed warmup and measurement rounds, results printed as
+// mean time per operation and throughput. Kept dependency-free so the benchmarks run
+// with nothing but a JDK.
+public final class Bench {
+
+    public interface Body {
+        // Runs the measured operation `ops` times and returns a value to keep it alive
+        long run(int ops) throws Exception;
+    }
+
+    public interface Setup {
+        void run() throws Exception;
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    // Values returned by bodies end up here so the JIT cannot discard the work
+    private static volatile long sink;
+
+    private Bench() {
+    }
+
+    public static void header(String title) {
+        System.out.println();
+        System.out.println("== " + title);
+        System.out.printf(Locale.ROOT, "%-60s %14s %16s%n", "benchmark", "ns/op", "ops/s");
+    }
+
+    public static void measure(String name, int opsPerRound, Body body) throws Exception {
+        measure(name, opsPerRound, null, body);
+    }
+
+    // beforeRound runs outside the timed region, e.g. to reset a file between rounds
+    public static void measure(String name, int opsPerRound, Setup beforeRound, Body body) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            if (beforeRound != null) beforeRound.run();
+            sink += body.run(opsPerRound);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            if (beforeRound != null) beforeRound.run();
+            long start = System.nanoTime();
+            sink += body.run(opsPerRound);
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            best = Math.min(best, elapsed);
+        }
+        double meanNsPerOp = (double) total / MEASURE_ROUNDS / opsPerRound;
+        System.out.printf(Locale.ROOT, "%-60s %14.1f %16.0f   (best %.1f ns/op)%n",
+            name, meanNsPerOp, 1e9 / meanNsPerOp, (double) best / opsPerRound);
+    }
+
+    // One-shot timing for operations too slow to repeat, such as loading a large file
+    public static void once(String name, Body body) throws Exception {
+        long start = System.nanoTime();
+        sink += body.run(1);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "%-60s %14.1f ms%n", name, elapsed / 1e6);
+    }
+
+    // Latency distribution of individually timed operations, e.g. HTTP requests
+    public static void latencies(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "%-60s p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", name,
+            percentile(sorted, 50) / 1e6, percentile(sorted, 99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    static long percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public static void note(String text) {
+        System.out.println("   " + text);
+    }
+
+    public static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static boolean hasUcanaccess() {
+        try {
+            Class.forName("net.ucanaccess.jdbc.UcanaccessDriver");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Data shared by the benchmark groups, generated from fixed seeds
+final class BenchData {
+
+    static final String[] DEPARTMENTS = {"Civil", "CSE", "Electrical", "E&C", "Mechanical"};
+    // UCanAccess keeps the whole database in memory; 1M rows does not fit a 2 GB heap
+    static final int ACCESS_STORE_SIZE = 100_000;
+    static final int STORE_BATCH_SIZE = 500;
+    // Work factor for benchmarks that go through RegistrationService but measure
+    // something other than hashing: the hand-off to the hasher's pool is still paid.
+    // The passwords group measures real work factors.
+    static final int BENCH_PASSWORD_ITERATIONS = 1;
+    static final String[] FIRST_NAMES = {"Aarav", "Aditi", "Ananya", "Arjun", "Deepa", "Divya", "Ganesh", "Isha",
+        "Karthik", "Kavya", "Lakshmi", "Manoj", "Meera", "Nikhil", "Pooja", "Pradeep", "Priya", "Rahul", "Ravi",
+        "Rohan", "Sanjay", "Sneha", "Suresh", "Tanvi", "Varun", "Vikram", "Anna", "David", "Emma", "James",
+        "Maria", "Michael", "Sarah", "Thomas", "Wei", "Yuki", "Omar", "Fatima", "Carlos", "Sofia"};
+    static final String[] LAST_NAMES = {"Sharma", "Patel", "Reddy", "Iyer", "Nair", "Rao", "Gupta", "Singh",
+        "Kumar", "Menon", "Pillai", "Joshi", "Desai", "Kulkarni", "Chatterjee", "Banerjee", "Mehta", "Shah",
+        "Verma", "Agarwal", "Bhat", "Hegde", "Shetty", "Naidu", "Krishnan", "Subramanian", "Smith", "Johnson",
+        "Williams", "Brown", "Garcia", "Martinez", "Lee", "Chen", "Wang", "Kim", "Nguyen", "Tanaka", "Ali",
+        "Hassan", "Silva", "Rossi", "Muller", "Novak", "Kowalski", "Ivanov", "Andersen", "Okafor", "Mensah"};
+
+    static List<StudentRecord> generateRecords(int count, int year) {
+        Random random = new Random(42);
+        List<StudentRecord> records = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            LocalDate dob = LocalDate.of(1970 + random.nextInt(35), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            records.add(new StudentRecord(String.format("%d-%05d", year, i), "First" + i, "Last" + i,
+                random.nextBoolean() ? "M" : "F", DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                dob.toString(), "student" + i + "@example.edu"));
+        }
+        return records;
+    }
+
+    static PasswordHasher benchHasher() {
+        return new PasswordHasher(Runtime.getRuntime().availableProcessors(), BENCH_PASSWORD_ITERATIONS, 0);
+    }
+
+    static RegistrationRequest validRequest() {
+        return new RegistrationRequest("Ada", "Lovelace", "ada.lovelace@example.edu", "ada.lovelace@example.edu",
+            "secret123".toCharArray(), "secret123".toCharArray(), LocalDate.of(2000, 6, 15), "F", "CSE");
+    }
+
+    private BenchData() {
+    }
+}
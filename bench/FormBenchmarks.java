@@ -0,0 +1,182 @@
+import javax.swing.ComboBoxModel;
+import javax.swing.JComboBox;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+// Benchmark groups for the form's own work: validation, passwords and dob
+final class FormBenchmarks {
+
+    static final int MONTH_CHANGES = 12_000;
+
+    static void validation() throws Exception {
+        Bench.header("Validation");
+        RegistrationValidator validator = new RegistrationValidator();
+        RegistrationRequest valid = BenchData.validRequest();
+        RegistrationRequest invalid = new RegistrationRequest("", "Lovelace", "ada@", "ada@example.edu",
+            "short".toCharArray(), "other".toCharArray(), LocalDate.of(1900, 1, 1), null, null);
+
+        Bench.measure("RegistrationValidator.validate (valid)", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += validator.validate(valid);
+            return acc;
+        });
+        Bench.measure("RegistrationValidator.validate (all rules fail)", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += validator.validate(invalid);
+            return acc;
+        });
+
+        // The regexes the form used before validation was extracted, for comparison
+        Pattern emailPattern = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+        Pattern passwordPattern = Pattern.compile("^(?=.*[A-Za-z])(?=.*\\d).{8,20}$");
+        Bench.measure("EMAIL_PATTERN regex (legacy)", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) if (emailPattern.matcher("ada.lovelace@example.edu").matches()) acc++;
+            return acc;
+        });
+        Bench.measure("PASSWORD_PATTERN regex (legacy)", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) if (passwordPattern.matcher("secret123").matches()) acc++;
+            return acc;
+        });
+    }
+
+    // Calibration for the default target, then hashes per second at that work factor
+    // with one thread up to twice the cores; past the core count throughput stays
+    // flat and each hash just takes longer
+    static void passwordHashing() throws Exception {
+        Bench.header("Password hashing (PBKDF2-HMAC-SHA256)");
+        int[] iterations = new int[1];
+        Bench.once("PasswordHasher.calibrate (" + PasswordHasher.DEFAULT_TARGET_MS + " ms target)", ops -> {
+            iterations[0] = PasswordHasher.calibrate(PasswordHasher.DEFAULT_TARGET_MS);
+            return iterations[0];
+        });
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < 2 * cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        if (!threadCounts.contains(cores)) {
+            threadCounts.add(cores);
+        }
+        threadCounts.add(2 * cores);
+        threadCounts.sort(null);
+        int hashes = 4 * 2 * cores;
+        for (int threads : threadCounts) {
+            try (PasswordHasher hasher = new PasswordHasher(threads, iterations[0], 0)) {
+                // One round first so the pool threads and the JIT are warm
+                for (int round = 0; round < 2; round++) {
+                    long start = System.nanoTime();
+                    List<CompletableFuture<String>> pending = new ArrayList<>();
+                    for (int i = 0; i < hashes; i++) {
+                        pending.add(hasher.hashAsync("secret123".toCharArray()));
+                    }
+                    for (CompletableFuture<String> hash : pending) {
+                        hash.join();
+                    }
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    if (round == 1) {
+                        Bench.note(String.format("%2d threads, %d iterations: %.1f hashes/s, %.0f ms per hash",
+                            threads, iterations[0], hashes / seconds, seconds * 1000 * threads / hashes));
+                    }
+                }
+            }
+        }
+        try (PasswordHasher hasher = new PasswordHasher(1, iterations[0], 0)) {
+            String stored = hasher.hash("secret123".toCharArray(), iterations[0]);
+            Bench.once("PasswordHasher.verify", ops -> PasswordHasher.verify("secret123".toCharArray(), stored) ? 1 : 0);
+        }
+    }
+
+    // The day combo box following month changes through the year: refilled item by
+    // item as the form used to, and swapped to a cached DateOfBirthModel day list.
+    // Counts the list, action and model-change events and the bytes allocated per change.
+    static void dateOfBirthDays() throws Exception {
+        Bench.header("Date of birth day list, " + MONTH_CHANGES + " month changes");
+        long[] events = new long[1];
+        ListDataListener counter = new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events[0]++;
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events[0]++;
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events[0]++;
+            }
+        };
+
+        JComboBox<String> refilled = new JComboBox<>();
+        refilled.addItem("Select Day");
+        for (int day = 1; day <= 31; day++) {
+            refilled.addItem(String.valueOf(day));
+        }
+        refilled.setSelectedIndex(15);
+        refilled.getModel().addListDataListener(counter);
+        refilled.addActionListener(e -> events[0]++);
+        int[] month = {0};
+        dayListChanges("removeAllItems + addItem", events, () -> {
+            int days = DateOfBirthModel.daysInMonth(2000, 1 + month[0]++ % 12);
+            String selected = (String) refilled.getSelectedItem();
+            refilled.removeAllItems();
+            refilled.addItem("Select Day");
+            for (int day = 1; day <= days; day++) {
+                refilled.addItem(String.valueOf(day));
+            }
+            if (selected != null && !selected.equals("Select Day") && Integer.parseInt(selected) <= days) {
+                refilled.setSelectedItem(selected);
+            }
+        });
+
+        DateOfBirthModel model = new DateOfBirthModel(LocalDate.now());
+        JComboBox<String> swapped = new JComboBox<>(model.getDays());
+        swapped.setSelectedIndex(15);
+        Set<ComboBoxModel<String>> dayModels = new HashSet<>();
+        for (int m = 1; m <= 12; m++) {
+            dayModels.add(model.daysFor(1, m));
+        }
+        for (ComboBoxModel<String> days : dayModels) {
+            days.addListDataListener(counter);
+        }
+        swapped.addActionListener(e -> events[0]++);
+        swapped.addPropertyChangeListener("model", e -> events[0]++);
+        dayListChanges("DateOfBirthModel swap", events, () -> {
+            ComboBoxModel<String> days = model.daysFor(1, 1 + month[0]++ % 12);
+            if (days != swapped.getModel()) {
+                int day = swapped.getSelectedIndex();
+                days.setSelectedItem(days.getElementAt(day > 0 && day < days.getSize() ? day : 0));
+                swapped.setModel(days);
+            }
+        });
+    }
+
+    static void dayListChanges(String name, long[] events, Runnable change) throws Exception {
+        Bench.measure(name, MONTH_CHANGES, ops -> {
+            for (int i = 0; i < ops; i++) change.run();
+            return ops;
+        });
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        events[0] = 0;
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MONTH_CHANGES; i++) change.run();
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        Bench.note(String.format("%.1f events and %d bytes allocated per month change",
+            events[0] / (double) MONTH_CHANGES, allocated / MONTH_CHANGES));
+    }
+
+    private FormBenchmarks() {
+    }
+}
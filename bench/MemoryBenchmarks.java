@@ -0,0 +1,202 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Benchmark groups for what the in-memory structures cost to load and hold: registry,
+// snapshot and offheap
+final class MemoryBenchmarks {
+
+    static final int SNAPSHOT_SIZE = 1_000_000;
+    static final int OFF_HEAP_SIZE = 1_000_000;
+
+    static void registryFootprint() throws Exception {
+        Bench.header("StudentRegistry footprint");
+        int size = 500_000;
+        int year = LocalDate.now().getYear();
+        long before = Bench.usedHeapAfterGc();
+        StudentRegistry registry = new StudentRegistry(size);
+        for (int i = 1; i <= size; i++) {
+            registry.add(String.format("%d-%05d", year, i), "student" + i + "@example.edu");
+        }
+        long after = Bench.usedHeapAfterGc();
+        Bench.note(String.format("%d students: %.1f MB heap, %d bytes per student",
+            registry.size(), (after - before) / 1048576.0, (after - before) / size));
+        Bench.measure("StudentRegistry.isEmailRegistered (hit)", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) if (registry.isEmailRegistered("student" + (1 + i % size) + "@example.edu")) acc++;
+            return acc;
+        });
+    }
+
+    // Cold start from a snapshot against a full read of the CSV file (and of Access,
+    // when UCanAccess is available): converting, opening the registry on top of it,
+    // its heap and lookups, and building the search index from each
+    static void snapshotLoad(Path workDir) throws Exception {
+        Bench.header("Student snapshot, " + SNAPSHOT_SIZE + " students");
+        List<StudentRecord> records = BenchData.generateRecords(SNAPSHOT_SIZE, LocalDate.now().getYear());
+        Path csvPath = workDir.resolve("snapshot.csv");
+        StudentCsvFile csvFile = new StudentCsvFile(csvPath.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS));
+        csvFile.appendAll(records);
+        csvFile.close();
+
+        Path snapshotPath = StudentSnapshot.fileFor(workDir.resolve("students.snapshot"), 0);
+        Bench.once("StudentSnapshot.write from CSV", ops -> {
+            StudentSnapshot.write(csvFile, snapshotPath, 0);
+            return SNAPSHOT_SIZE;
+        });
+        Bench.note(String.format("CSV %.1f MB, snapshot %.1f MB", Files.size(csvPath) / 1048576.0,
+            Files.size(snapshotPath) / 1048576.0));
+
+        StudentRegistry[] registry = new StudentRegistry[1];
+        long before = Bench.usedHeapAfterGc();
+        Bench.once("StudentRegistry.load, CSV", ops -> {
+            registry[0] = StudentRegistry.load(null, csvFile);
+            return registry[0].size();
+        });
+        Bench.note(String.format("%.1f MB heap", (Bench.usedHeapAfterGc() - before) / 1048576.0));
+        lookupEmails(registry[0], "CSV");
+        registry[0] = null;
+
+        before = Bench.usedHeapAfterGc();
+        Bench.once("StudentSnapshot.open + StudentRegistry, snapshot", ops -> {
+            registry[0] = new StudentRegistry(StudentSnapshot.open(snapshotPath));
+            return registry[0].size();
+        });
+        Bench.note(String.format("%.1f MB heap", (Bench.usedHeapAfterGc() - before) / 1048576.0));
+        lookupEmails(registry[0], "snapshot");
+        StudentSnapshot snapshot = StudentSnapshot.open(snapshotPath);
+        registry[0] = null;
+
+        Bench.once("StudentSearchIndex.load, CSV", ops -> StudentSearchIndex.load(csvFile).size());
+        Bench.once("StudentSearchIndex.load, snapshot", ops -> StudentSearchIndex.load(snapshot).size());
+
+        if (Bench.hasUcanaccess()) {
+            String url = "jdbc:ucanaccess://" + workDir.resolve("snapshot.accdb") + ";newdatabaseversion=V2010";
+            try (StudentDatabase database = new StudentDatabase(url, 2)) {
+                database.initialize();
+                for (int i = 0; i < BenchData.ACCESS_STORE_SIZE; i += BenchData.STORE_BATCH_SIZE) {
+                    database.insertBatch(records.subList(i, i + BenchData.STORE_BATCH_SIZE),
+                        new String[BenchData.STORE_BATCH_SIZE]);
+                }
+                Bench.once("StudentRegistry.load, Access (" + BenchData.ACCESS_STORE_SIZE + " rows)",
+                    ops -> StudentRegistry.load(database, csvFile).size());
+            }
+        } else {
+            Bench.note("Access skipped: UCanAccess is not on the classpath (set UCANACCESS_CP for bench/run.sh)");
+        }
+        Files.delete(csvPath);
+    }
+
+    static void lookupEmails(StudentRegistry registry, String name) throws Exception {
+        Bench.measure("StudentRegistry.isEmailRegistered, " + name, 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) if (registry.isEmailRegistered("student" + (1 + i % SNAPSHOT_SIZE) + "@example.edu")) acc++;
+            return acc;
+        });
+    }
+
+    // OFF_HEAP_SIZE students held as a List<StudentRecord> with a HashMap by ID, and in
+    // an OffHeapStudentStore: heap and direct memory, what a full collection costs with
+    // each live, a filtering scan and lookups by ID
+    static void offHeapStore() throws Exception {
+        Bench.header("Off-heap student store, " + OFF_HEAP_SIZE + " students");
+        int year = LocalDate.now().getYear();
+        long before = Bench.usedHeapAfterGc();
+        long gcBefore = gcMillis();
+        List<StudentRecord> list = BenchData.generateRecords(OFF_HEAP_SIZE, year);
+        Map<String, StudentRecord> byId = new HashMap<>(OFF_HEAP_SIZE * 2);
+        for (StudentRecord record : list) {
+            byId.put(record.getStudentId(), record);
+        }
+        Bench.note(String.format("List + HashMap: %.1f MB heap, %d ms of GC while building",
+            (Bench.usedHeapAfterGc() - before) / 1048576.0, gcMillis() - gcBefore));
+        Bench.once("System.gc, List live", ops -> {
+            System.gc();
+            return ops;
+        });
+        Bench.measure("scan List: CSE students born before 1990", 1, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) {
+                for (StudentRecord record : list) {
+                    if ("CSE".equals(record.getDepartment()) && record.getDateOfBirth().compareTo("1990-01-01") < 0) acc++;
+                }
+            }
+            return acc;
+        });
+        Random random = new Random(5);
+        Bench.measure("HashMap.get by StudentID", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += byId.get(String.format("%d-%05d", year, 1 + random.nextInt(OFF_HEAP_SIZE))).getEmail().length();
+            return acc;
+        });
+
+        OffHeapStudentStore store = new OffHeapStudentStore(OFF_HEAP_SIZE);
+        for (StudentRecord record : list) {
+            store.append(record);
+        }
+        list.clear();
+        byId.clear();
+        before = Bench.usedHeapAfterGc();
+        gcBefore = gcMillis();
+        Bench.once("OffHeapStudentStore.append", ops -> {
+            OffHeapStudentStore fresh = new OffHeapStudentStore();
+            for (int i = 0; i < store.size(); i++) {
+                fresh.append(store.get(i));
+            }
+            return fresh.size();
+        });
+        Bench.note(String.format("%d ms of GC while appending (records are built and dropped one at a time)",
+            gcMillis() - gcBefore));
+        Bench.note(String.format("OffHeapStudentStore: %.1f MB heap, %.1f MB off-heap (%d bytes per student)",
+            (Bench.usedHeapAfterGc() - before) / 1048576.0, directBytes() / 1048576.0, store.allocatedBytes() / OFF_HEAP_SIZE));
+        Bench.once("System.gc, off-heap store live", ops -> {
+            System.gc();
+            return ops;
+        });
+        int cse = Arrays.asList(store.getDepartments()).indexOf("CSE");
+        int cutoff = (int) LocalDate.of(1990, 1, 1).toEpochDay();
+        Bench.measure("scan off-heap: CSE students born before 1990", 1, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) {
+                for (int slot = 0, size = store.size(); slot < size; slot++) {
+                    if (store.getDepartmentCode(slot) == cse && store.getDateOfBirth(slot) < cutoff) acc++;
+                }
+            }
+            return acc;
+        });
+        Bench.measure("OffHeapStudentStore.findById", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += store.findById(String.format("%d-%05d", year, 1 + random.nextInt(OFF_HEAP_SIZE))).getEmail().length();
+            return acc;
+        });
+    }
+
+    static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += gc.getCollectionTime();
+        }
+        return millis;
+    }
+
+    static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private MemoryBenchmarks() {
+    }
+}
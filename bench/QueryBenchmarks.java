@@ -0,0 +1,276 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Benchmark groups for reading students back: browse, search, report and reconcile
+final class QueryBenchmarks {
+
+    static final int BROWSE_SIZE = 500_000;
+    static final int SEARCH_SIZE = 1_000_000;
+    static final int REPORT_SIZE = 2_000_000;
+    static final int RECONCILE_SIZE = 1_000_000;
+
+    // What the All Students table costs per query and per page at BROWSE_SIZE rows:
+    // building the page index, and fetching a page anywhere in the list by keyset
+    static void browsePages(Path workDir) throws Exception {
+        Bench.header("Student browser: page index and keyset pages, " + BROWSE_SIZE + " students");
+        List<StudentRecord> records = BenchData.generateRecords(BROWSE_SIZE, LocalDate.now().getYear());
+        int pageSize = StudentTableModel.PAGE_SIZE;
+        StudentQuery byLastName = new StudentQuery(StudentQuery.SortKey.LAST_NAME, false, null, null);
+        StudentQuery filtered = new StudentQuery(StudentQuery.SortKey.STUDENT_ID, true, "CSE", "st1");
+
+        Path logPath = workDir.resolve("browse.log");
+        try (StudentLogFile log = new StudentLogFile(logPath)) {
+            log.initialize();
+            for (int i = 0; i < BROWSE_SIZE; i += BenchData.STORE_BATCH_SIZE) {
+                log.saveAll(records.subList(i, i + BenchData.STORE_BATCH_SIZE), new String[BenchData.STORE_BATCH_SIZE]);
+            }
+            browseQuery(log, StudentQuery.ALL, pageSize, 200);
+            browseQuery(log, filtered, pageSize, 20);
+            browseQuery(log, byLastName, pageSize, 2);
+        }
+        Files.delete(logPath);
+
+        Path csvPath = workDir.resolve("browse.csv");
+        try (StudentCsvFile csv = new StudentCsvFile(csvPath.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS))) {
+            csv.appendAll(records);
+            browseQuery(csv, StudentQuery.ALL, pageSize, 2);
+        }
+        Files.delete(csvPath);
+    }
+
+    static void browseQuery(StudentRepository store, StudentQuery query, int pageSize, int pagesPerRound)
+            throws Exception {
+        String name = store.getName() + ", " + query.getSortKey() + (query.isDescending() ? " desc" : "")
+            + (query.isFiltered() ? ", filtered" : "");
+        StudentQuery.PageIndex[] index = new StudentQuery.PageIndex[1];
+        long before = Bench.usedHeapAfterGc();
+        Bench.once(name + ": page index", ops -> {
+            index[0] = store.indexPages(query, pageSize);
+            return index[0].getRowCount();
+        });
+        Bench.note(String.format("%d rows, index holds %.1f KB", index[0].getRowCount(),
+            (Bench.usedHeapAfterGc() - before) / 1024.0));
+        int pageCount = (index[0].getRowCount() + pageSize - 1) / pageSize;
+        Random random = new Random(11);
+        Bench.measure(name + ": random page of " + pageSize, pagesPerRound, ops -> {
+            long rows = 0;
+            for (int i = 0; i < ops; i++) {
+                rows += store.findPage(query, index[0].after(random.nextInt(pageCount)), pageSize).size();
+            }
+            return rows;
+        });
+    }
+
+    // The form's search field at SEARCH_SIZE students with names drawn from common
+    // first and last names, so a short prefix matches thousands: building the index,
+    // its heap, prefix and fuzzy queries, and adding one registration
+    static void searchIndex(Path workDir) throws Exception {
+        Bench.header("Student search index, " + SEARCH_SIZE + " students");
+        int year = LocalDate.now().getYear();
+        Random random = new Random(42);
+        List<StudentRecord> records = new ArrayList<>(SEARCH_SIZE);
+        for (int i = 1; i <= SEARCH_SIZE; i++) {
+            String first = BenchData.FIRST_NAMES[random.nextInt(BenchData.FIRST_NAMES.length)];
+            String last = BenchData.LAST_NAMES[random.nextInt(BenchData.LAST_NAMES.length)];
+            records.add(new StudentRecord(String.format("%d-%05d", year, i), first, last,
+                random.nextBoolean() ? "M" : "F",
+                BenchData.DEPARTMENTS[random.nextInt(BenchData.DEPARTMENTS.length)], "2000-01-01",
+                first.toLowerCase() + "." + last.toLowerCase() + i + "@example.edu"));
+        }
+
+        Path logPath = workDir.resolve("search.log");
+        StudentSearchIndex[] index = new StudentSearchIndex[1];
+        try (StudentLogFile log = new StudentLogFile(logPath)) {
+            log.initialize();
+            for (int i = 0; i < SEARCH_SIZE; i += BenchData.STORE_BATCH_SIZE) {
+                log.saveAll(records.subList(i, i + BenchData.STORE_BATCH_SIZE), new String[BenchData.STORE_BATCH_SIZE]);
+            }
+            long before = Bench.usedHeapAfterGc();
+            Bench.once("StudentSearchIndex.load", ops -> {
+                index[0] = StudentSearchIndex.load(log);
+                return index[0].size();
+            });
+            long heap = Bench.usedHeapAfterGc() - before;
+            Bench.note(String.format("%d students: %.1f MB heap (%.1f MB estimated), %d bytes per student",
+                index[0].size(), heap / 1048576.0, index[0].estimatedBytes() / 1048576.0, heap / SEARCH_SIZE));
+        }
+        Files.delete(logPath);
+
+        StudentSearchIndex search = index[0];
+        String[] prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            StudentRecord record = records.get(random.nextInt(SEARCH_SIZE));
+            switch (i % 4) {
+                case 0: prefixes[i] = record.getLastName().substring(0, 3); break;
+                case 1: prefixes[i] = record.getFirstName().toLowerCase(); break;
+                case 2: prefixes[i] = record.getEmail().substring(0, record.getEmail().indexOf('@')); break;
+                default: prefixes[i] = record.getStudentId().substring(0, 9); break;
+            }
+        }
+        Bench.measure("search, one-word prefix (top 20)", 10_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += search.search(prefixes[i % prefixes.length], 20).size();
+            return acc;
+        });
+        Bench.measure("search, first and last name prefixes (top 20)", 10_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) {
+                StudentRecord record = records.get((i * 7919) % SEARCH_SIZE);
+                acc += search.search(record.getFirstName() + " " + record.getLastName().substring(0, 2), 20).size();
+            }
+            return acc;
+        });
+        Bench.measure("search, misspelled name (fuzzy, top 20)", 20, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += search.search(i % 2 == 0 ? "Priay Shrama" : "Vikarm Kulkarin", 20).size();
+            return acc;
+        });
+        int[] next = {SEARCH_SIZE};
+        Bench.measure("StudentSearchIndex.add", 10_000, ops -> {
+            for (int i = 0; i < ops; i++) {
+                int n = ++next[0];
+                search.add(new StudentRecord(String.format("%d-%05d", year, n), "Aditi", "Rao", "F", "CSE",
+                    "2000-01-01", "aditi.rao" + n + "@example.edu"));
+            }
+            return search.size();
+        });
+    }
+
+    // Statistics over REPORT_SIZE students: the CSV file scanned by one thread and by
+    // every core, the log store in one pass, and filtered exports to CSV and JSON
+    static void reportScans(Path workDir) throws Exception {
+        Bench.header("Reports and exports, " + REPORT_SIZE + " students");
+        List<StudentRecord> records = BenchData.generateRecords(REPORT_SIZE, LocalDate.now().getYear());
+        Path csvPath = workDir.resolve("report.csv");
+        try (StudentCsvFile csv = new StudentCsvFile(csvPath.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS))) {
+            csv.appendAll(records);
+        }
+        Path logPath = workDir.resolve("report.log");
+        try (StudentLogFile log = new StudentLogFile(logPath)) {
+            log.initialize();
+            for (int i = 0; i < REPORT_SIZE; i += BenchData.STORE_BATCH_SIZE) {
+                log.saveAll(records.subList(i, i + BenchData.STORE_BATCH_SIZE), new String[BenchData.STORE_BATCH_SIZE]);
+            }
+        }
+        records = null;
+        Bench.note(String.format("CSV file %.1f MB", Files.size(csvPath) / 1048576.0));
+
+        LocalDate today = LocalDate.now();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism : new int[] {1, Math.max(2, cores)}) {
+            StudentReport[] report = new StudentReport[1];
+            // The first scan also warms up the JIT and the page cache
+            for (int round = 0; round < 2; round++) {
+                report[0] = StudentReport.scanCsv(csvPath, parallelism, today);
+            }
+            Bench.once("StudentReport.scanCsv, " + parallelism + " threads", ops -> {
+                report[0] = StudentReport.scanCsv(csvPath, parallelism, today);
+                return report[0].getStudentCount();
+            });
+            Bench.note(report[0].describeThroughput());
+        }
+        try (StudentLogFile log = new StudentLogFile(logPath)) {
+            log.initialize();
+            StudentReport[] report = new StudentReport[1];
+            Bench.once("StudentReport.scan, log store", ops -> {
+                report[0] = StudentReport.scan(log, today);
+                return report[0].getStudentCount();
+            });
+            Bench.note(report[0].describeThroughput());
+
+            StudentQuery cse = new StudentQuery(StudentQuery.SortKey.STUDENT_ID, false, "CSE", null);
+            for (StudentExport.Format format : StudentExport.Format.values()) {
+                Path out = workDir.resolve("export." + format.name().toLowerCase());
+                long[] written = new long[1];
+                Bench.once("StudentExport, CSE students to " + format, ops -> {
+                    written[0] = StudentExport.export(log, cse, out, format);
+                    return written[0];
+                });
+                Bench.note(String.format("%d students, %.1f MB", written[0], Files.size(out) / 1048576.0));
+                Files.delete(out);
+            }
+        }
+        Files.delete(csvPath);
+        Files.delete(logPath);
+    }
+
+    // RECONCILE_SIZE students in a CSV file and a log store, each missing one in a
+    // thousand of the other's: a full merge-join, an incremental run after more
+    // registrations, and for comparison a diff that holds the CSV side in a HashMap
+    static void reconcile(Path workDir) throws Exception {
+        Bench.header("CSV/store reconciliation, " + RECONCILE_SIZE + " students");
+        List<StudentRecord> records = BenchData.generateRecords(RECONCILE_SIZE + 1000, LocalDate.now().getYear());
+        List<StudentRecord> inCsv = new ArrayList<>(), inStore = new ArrayList<>();
+        for (int i = 0; i < RECONCILE_SIZE; i++) {
+            if (i % 1000 != 1) inCsv.add(records.get(i));
+            if (i % 1000 != 2) inStore.add(records.get(i));
+        }
+        Path csvPath = workDir.resolve("reconcile.csv");
+        Path logPath = workDir.resolve("reconcile.log");
+        Path checkpoint = workDir.resolve("reconcile.checkpoint");
+        StudentCsvFile csvFile = new StudentCsvFile(csvPath.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS));
+        csvFile.appendAll(inCsv);
+        csvFile.close();
+        try (StudentLogFile store = new StudentLogFile(logPath)) {
+            store.initialize();
+            for (int i = 0; i < inStore.size(); i += BenchData.STORE_BATCH_SIZE) {
+                store.saveAll(inStore.subList(i, Math.min(i + BenchData.STORE_BATCH_SIZE, inStore.size())),
+                    new String[BenchData.STORE_BATCH_SIZE]);
+            }
+        }
+        inCsv = null;
+        inStore = null;
+
+        long[] differences = new long[1];
+        Bench.once("StudentReconciler.run, full", ops -> {
+            try (StudentLogFile store = new StudentLogFile(logPath)) {
+                store.initialize();
+                StudentReconciler result = StudentReconciler.run(csvPath, store, checkpoint, false, line -> differences[0]++);
+                return result.getCompared();
+            }
+        });
+        Bench.note(differences[0] + " differences reported");
+
+        csvFile = new StudentCsvFile(csvPath.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS));
+        csvFile.appendAll(records.subList(RECONCILE_SIZE, RECONCILE_SIZE + 1000));
+        csvFile.close();
+        try (StudentLogFile store = new StudentLogFile(logPath)) {
+            store.initialize();
+            store.saveAll(records.subList(RECONCILE_SIZE, RECONCILE_SIZE + 1000), new String[1000]);
+        }
+        Bench.once("StudentReconciler.run, 1000 new since the checkpoint", ops -> {
+            try (StudentLogFile store = new StudentLogFile(logPath)) {
+                store.initialize();
+                return StudentReconciler.run(csvPath, store, checkpoint, false, line -> { }).getCompared();
+            }
+        });
+
+        long before = Bench.usedHeapAfterGc();
+        Map<String, StudentRecord> byId = new HashMap<>();
+        Bench.once("HashMap diff: load the CSV file", ops -> {
+            new StudentCsvFile(csvPath.toString()).forEach(record -> byId.put(record.getStudentId(), record));
+            return byId.size();
+        });
+        Bench.note(String.format("%.1f MB heap held by the HashMap", (Bench.usedHeapAfterGc() - before) / 1048576.0));
+        Bench.once("HashMap diff: probe with the store", ops -> {
+            long[] matched = new long[1];
+            try (StudentLogFile store = new StudentLogFile(logPath)) {
+                store.initialize();
+                store.forEach(record -> {
+                    if (byId.remove(record.getStudentId()) != null) matched[0]++;
+                });
+            }
+            return matched[0];
+        });
+    }
+
+    private QueryBenchmarks() {
+    }
+}
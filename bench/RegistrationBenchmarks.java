@@ -0,0 +1,49 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+// Benchmarks for the registration hot paths. Run everything with bench/run.sh, or
+// pass group names to run a subset; the Benchmarks section of README.md lists them.
+// The groups live in a class per area (FormBenchmarks, StorageBenchmarks,
+// MemoryBenchmarks, ServiceBenchmarks, QueryBenchmarks) with shared data in
+// BenchData; a new group goes into its area's class and gets a line in main.
+//
+// The db group needs UCanAccess on the classpath (see bench/run.sh) and is skipped
+// otherwise. All generated data comes from a fixed seed so runs are comparable.
+public class RegistrationBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Set<String> groups = new HashSet<>(Arrays.asList(args));
+        Path workDir = Files.createTempDirectory("registration-bench");
+        System.out.println("Java " + System.getProperty("java.version") + ", "
+            + Runtime.getRuntime().availableProcessors() + " CPUs, work dir " + workDir);
+        try {
+            if (run(groups, "validation")) FormBenchmarks.validation();
+            if (run(groups, "ids")) StorageBenchmarks.idsAndFormatting(workDir);
+            if (run(groups, "csv")) StorageBenchmarks.csvAppend(workDir);
+            if (run(groups, "db")) StorageBenchmarks.databaseInserts(workDir);
+            if (run(groups, "startup")) StorageBenchmarks.startupCounter(workDir);
+            if (run(groups, "registry")) MemoryBenchmarks.registryFootprint();
+            if (run(groups, "store")) StorageBenchmarks.storeThroughput(workDir);
+            if (run(groups, "server")) ServiceBenchmarks.serverLoad(workDir);
+            if (run(groups, "browse")) QueryBenchmarks.browsePages(workDir);
+            if (run(groups, "search")) QueryBenchmarks.searchIndex(workDir);
+            if (run(groups, "metrics")) ServiceBenchmarks.metricsOverhead(workDir);
+            if (run(groups, "passwords")) FormBenchmarks.passwordHashing();
+            if (run(groups, "report")) QueryBenchmarks.reportScans(workDir);
+            if (run(groups, "snapshot")) MemoryBenchmarks.snapshotLoad(workDir);
+            if (run(groups, "offheap")) MemoryBenchmarks.offHeapStore();
+            if (run(groups, "reconcile")) QueryBenchmarks.reconcile(workDir);
+            if (run(groups, "dob")) FormBenchmarks.dateOfBirthDays();
+            if (run(groups, "events")) ServiceBenchmarks.eventBus();
+        } finally {
+            Bench.deleteRecursively(workDir);
+        }
+    }
+
+    static boolean run(Set<String> groups, String group) {
+        return groups.isEmpty() || groups.contains(group);
+    }
+}
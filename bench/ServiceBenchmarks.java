@@ -0,0 +1,273 @@
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Benchmark groups for registrations going through RegistrationService: server,
+// metrics and events
+final class ServiceBenchmarks {
+
+    static final int[] SERVER_DESKS = {1, 8, 64};
+    static final int SERVER_REQUESTS = 4_000;
+    static final int EVENT_RATE = 100_000;
+    static final int EVENT_COUNT = 300_000;
+    static final int EVENT_SUBSCRIBERS = 2;
+
+    // Concurrent desks posting registrations to a RegistrationServer over loopback, log
+    // store. Each request returns once its registration is journaled, so latency is
+    // mostly the wait for a batch fsync.
+    static void serverLoad(Path workDir) throws Exception {
+        Bench.header("Registration server: concurrent POST /students");
+        Path dataDir = Files.createDirectories(workDir.resolve("server"));
+        RegistrationService service = new RegistrationService(new StudentLogFile(dataDir.resolve("students.log")),
+            dataDir.resolve("students.csv").toString(), dataDir.resolve("students.journal").toString(),
+            dataDir.resolve("students.seq").toString(), BenchData.benchHasher());
+        service.start(2, TimeUnit.MILLISECONDS, Runnable::run, phase -> { });
+        RegistrationServer server = new RegistrationServer(service, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        HttpClient http = HttpClient.newHttpClient();
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/students");
+        AtomicInteger nextEmail = new AtomicInteger();
+        try {
+            // Warm up the server, the client and the JIT
+            postConcurrently(http, uri, 8, 2_000, nextEmail);
+            for (int desks : SERVER_DESKS) {
+                long start = System.nanoTime();
+                long[] latencies = postConcurrently(http, uri, desks, SERVER_REQUESTS, nextEmail);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Bench.latencies(desks + " desks, " + SERVER_REQUESTS + " registrations", latencies);
+                Bench.note(String.format("%.0f registrations/s", SERVER_REQUESTS / seconds));
+            }
+        } finally {
+            server.stop();
+            service.close();
+        }
+    }
+
+    static long[] postConcurrently(HttpClient http, URI uri, int desks, int requests, AtomicInteger nextEmail)
+            throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(desks);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int d = 0; d < desks; d++) {
+            futures.add(executor.submit(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    String email = "desk" + nextEmail.incrementAndGet() + "@example.edu";
+                    String body = "{\"firstName\":\"Load\",\"lastName\":\"Test\",\"email\":\"" + email
+                        + "\",\"confirmEmail\":\"" + email + "\",\"password\":\"secret123\","
+                        + "\"confirmPassword\":\"secret123\",\"dateOfBirth\":\"2000-01-01\","
+                        + "\"gender\":\"F\",\"department\":\"CSE\"}";
+                    long start = System.nanoTime();
+                    HttpResponse<String> response = http.send(HttpRequest.newBuilder(uri)
+                        .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+                    latencies[i] = System.nanoTime() - start;
+                    if (response.statusCode() != 201) {
+                        throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return latencies;
+    }
+
+    // What instrumentation costs: recording one value, and registrations through a
+    // RegistrationService (log store, journaled) with recording switched on and off
+    static void metricsOverhead(Path workDir) throws Exception {
+        Bench.header("Metrics overhead");
+        RegistrationMetrics metrics = new RegistrationMetrics();
+        RegistrationMetrics.Histogram histogram = metrics.histogram("bench");
+        RegistrationMetrics.Counter counter = metrics.counter("bench");
+        boolean wasEnabled = RegistrationMetrics.isEnabled();
+        try {
+            for (boolean on : new boolean[] {true, false}) {
+                RegistrationMetrics.setEnabled(on);
+                String state = on ? " (on)" : " (off)";
+                Bench.measure("Histogram.recordSince" + state, 1_000_000, ops -> {
+                    for (int i = 0; i < ops; i++) histogram.recordSince(System.nanoTime() - i);
+                    return ops;
+                });
+                Bench.measure("Counter.increment" + state, 1_000_000, ops -> {
+                    for (int i = 0; i < ops; i++) counter.increment();
+                    return counter.get();
+                });
+            }
+
+            Path dataDir = Files.createDirectories(workDir.resolve("metrics"));
+            RegistrationService service = new RegistrationService(new StudentLogFile(dataDir.resolve("students.log")),
+                dataDir.resolve("students.csv").toString(), dataDir.resolve("students.journal").toString(),
+                dataDir.resolve("students.seq").toString(), BenchData.benchHasher());
+            service.start(2, TimeUnit.MILLISECONDS, Runnable::run, phase -> { });
+            int[] nextEmail = {0};
+            // Fewer than the persistence queue holds, so nothing is turned away as busy
+            int perRound = 200;
+            try {
+                for (boolean on : new boolean[] {true, false, true}) {
+                    RegistrationMetrics.setEnabled(on);
+                    Bench.measure("RegistrationService.submit until saved" + (on ? " (on)" : " (off)"), perRound, ops -> {
+                        CountDownLatch saved = new CountDownLatch(ops);
+                        for (int i = 0; i < ops; i++) {
+                            String email = "metrics" + (++nextEmail[0]) + "@example.edu";
+                            Submission submission = service.submit(new RegistrationRequest("Ada", "Lovelace", email, email,
+                                "secret123".toCharArray(), "secret123".toCharArray(), LocalDate.of(2000, 6, 15), "F", "CSE"),
+                                (record, isSaved, failures) -> saved.countDown());
+                            if (submission.getStatus() != Submission.Status.QUEUED) {
+                                throw new IllegalStateException("Not queued: " + submission.getStatus());
+                            }
+                        }
+                        saved.await();
+                        return ops;
+                    });
+                }
+            } finally {
+                service.close();
+            }
+            RegistrationMetrics global = RegistrationMetrics.global();
+            for (String name : new String[] {"submit.total", "submit.validate", "submit.id", "pipeline.queue_wait",
+                    "journal.append", "sink.CSV.write", "sink.Log.write", "submit.saved"}) {
+                Bench.note(String.format("%-20s %s", name, global.histogram(name).snapshot()));
+            }
+        } finally {
+            RegistrationMetrics.setEnabled(wasEnabled);
+        }
+    }
+
+    // EVENT_COUNT registration events published at EVENT_RATE per second to
+    // EVENT_SUBSCRIBERS subscribers: through RegistrationEvents, and through an
+    // ArrayBlockingQueue per subscriber drained in batches. Reports how long a publish
+    // takes and how long until each subscriber has handled the event.
+    static void eventBus() throws Exception {
+        Bench.header("Registration events, " + EVENT_COUNT + " at " + EVENT_RATE + "/s, " + EVENT_SUBSCRIBERS + " subscribers");
+        StudentRecord record = BenchData.generateRecords(1, LocalDate.now().getYear()).get(0);
+        long[] publish = new long[EVENT_COUNT];
+        long[][] handled = new long[EVENT_SUBSCRIBERS][EVENT_COUNT];
+
+        RegistrationEvents events = new RegistrationEvents();
+        CountDownLatch done = new CountDownLatch(EVENT_SUBSCRIBERS);
+        AtomicLong missed = new AtomicLong();
+        for (int s = 0; s < EVENT_SUBSCRIBERS; s++) {
+            long[] latencies = handled[s];
+            events.subscribe("bench-" + s, 256, new RegistrationEvents.Subscriber() {
+                @Override
+                public void onEvents(List<RegistrationEvents.Event> batch) {
+                    long now = System.nanoTime();
+                    for (RegistrationEvents.Event event : batch) {
+                        latencies[(int) event.getSequence()] = now - event.getPublishedNanos();
+                    }
+                    if (batch.get(batch.size() - 1).getSequence() == EVENT_COUNT - 1) done.countDown();
+                }
+
+                @Override
+                public void onMissed(long count) {
+                    missed.addAndGet(count);
+                }
+            });
+        }
+        paced(publish, i -> {
+            events.publishRegistered(record);
+            return true;
+        });
+        done.await(30, TimeUnit.SECONDS);
+        events.close();
+        eventLatencies("RegistrationEvents", publish, handled, missed.get());
+
+        // Each event is the time it was queued
+        List<BlockingQueue<Long>> queues = new ArrayList<>();
+        CountDownLatch drained = new CountDownLatch(EVENT_SUBSCRIBERS);
+        for (int s = 0; s < EVENT_SUBSCRIBERS; s++) {
+            BlockingQueue<Long> queue = new ArrayBlockingQueue<>(RegistrationEvents.DEFAULT_CAPACITY);
+            queues.add(queue);
+            long[] latencies = handled[s];
+            Thread consumer = new Thread(() -> {
+                List<Long> batch = new ArrayList<>(256);
+                int seen = 0;
+                try {
+                    while (seen < EVENT_COUNT) {
+                        batch.add(queue.take());
+                        queue.drainTo(batch, 255);
+                        long now = System.nanoTime();
+                        for (Long queued : batch) latencies[seen++] = now - queued;
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                drained.countDown();
+            }, "bench-queue-" + s);
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        int dropped = paced(publish, i -> {
+            Long queued = System.nanoTime();
+            boolean all = true;
+            for (BlockingQueue<Long> queue : queues) all &= queue.offer(queued);
+            return all;
+        });
+        drained.await(30, TimeUnit.SECONDS);
+        eventLatencies("ArrayBlockingQueue per subscriber", publish, handled, dropped);
+    }
+
+    interface Publisher {
+        boolean publish(int i);
+    }
+
+    // Publishes EVENT_COUNT events on a schedule of EVENT_RATE per second, recording how
+    // long each call takes; returns how many were dropped
+    static int paced(long[] nanos, Publisher publisher) {
+        long interval = 1_000_000_000L / EVENT_RATE;
+        long start = System.nanoTime();
+        int dropped = 0;
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            long due = start + i * interval;
+            long ahead = due - System.nanoTime();
+            if (ahead > 50_000) LockSupport.parkNanos(ahead);
+            long before = System.nanoTime();
+            if (!publisher.publish(i)) dropped++;
+            nanos[i] = System.nanoTime() - before;
+        }
+        return dropped;
+    }
+
+    // lost: events dropped, or missed by a subscriber
+    static void eventLatencies(String name, long[] publish, long[][] handled, long lost) {
+        long[] all = new long[handled.length * handled[0].length];
+        for (int s = 0; s < handled.length; s++) {
+            System.arraycopy(handled[s], 0, all, s * handled[s].length, handled[s].length);
+        }
+        Arrays.sort(all);
+        long[] sortedPublish = publish.clone();
+        Arrays.sort(sortedPublish);
+        System.out.printf("%-60s publish p50 %.2f us, p99 %.2f us; handled p50 %.1f us, p99 %.1f us, max %.1f ms%n", name,
+            Bench.percentile(sortedPublish, 50) / 1e3, Bench.percentile(sortedPublish, 99) / 1e3,
+            Bench.percentile(all, 50) / 1e3, Bench.percentile(all, 99) / 1e3, all[all.length - 1] / 1e6);
+        if (lost > 0) Bench.note(lost + " events lost");
+    }
+
+    private ServiceBenchmarks() {
+    }
+}
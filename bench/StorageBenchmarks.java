@@ -0,0 +1,227 @@
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Benchmark groups for writing and reopening the stores: ids, csv, db, startup and store
+final class StorageBenchmarks {
+
+    static final int[] STARTUP_SIZES = {1_000, 100_000, 1_000_000};
+    static final int STORE_SIZE = 1_000_000;
+
+    static void idsAndFormatting(Path workDir) throws Exception {
+        Bench.header("Student ID generation and record formatting");
+        Path sequenceFile = workDir.resolve("ids.seq");
+        try (StudentIdSequence sequence = StudentIdSequence.open(sequenceFile, year -> 0)) {
+            Bench.measure("StudentIdSequence.nextId", 100_000, ops -> {
+                long acc = 0;
+                for (int i = 0; i < ops; i++) acc += sequence.nextId().length();
+                return acc;
+            });
+            Bench.measure("StudentIdSequence.nextIds (blocks of 500)", 500, ops -> {
+                long acc = 0;
+                for (int i = 0; i < ops; i++) acc += sequence.nextIds(500).length;
+                return acc;
+            });
+        }
+        StudentRecord record = BenchData.generateRecords(1, LocalDate.now().getYear()).get(0);
+        Bench.measure("StudentRecord.toDisplayString", 1_000_000, ops -> {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) acc += record.toDisplayString().length();
+            return acc;
+        });
+    }
+
+    static void csvAppend(Path workDir) throws Exception {
+        Bench.header("CSV appends");
+        Path csvPath = workDir.resolve("append.csv");
+        List<StudentRecord> records = BenchData.generateRecords(1_000, LocalDate.now().getYear());
+
+        csvAppend("everyRow, 1 row per call", csvPath, records, StudentCsvFile.Durability.everyRow(), 1);
+        csvAppend("everyRow, 50 rows per call", csvPath, records, StudentCsvFile.Durability.everyRow(), 50);
+        csvAppend("everyRows(100), 1 row per call", csvPath, records, StudentCsvFile.Durability.everyRows(100), 1);
+        csvAppend("interval(1 s), 1 row per call", csvPath, records,
+            StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS), 1);
+    }
+
+    static void csvAppend(String name, Path csvPath, List<StudentRecord> records,
+                          StudentCsvFile.Durability durability, int rowsPerCall) throws Exception {
+        StudentCsvFile[] csvFile = new StudentCsvFile[1];
+        Bench.measure("StudentCsvFile.appendAll (" + name + ")", records.size(), () -> {
+            if (csvFile[0] != null) csvFile[0].close();
+            Files.deleteIfExists(csvPath);
+            csvFile[0] = new StudentCsvFile(csvPath.toString(), durability);
+        }, ops -> {
+            for (int i = 0; i < ops; i += rowsPerCall) csvFile[0].appendAll(records.subList(i, i + rowsPerCall));
+            return ops;
+        });
+        csvFile[0].close();
+    }
+
+    static void databaseInserts(Path workDir) throws Exception {
+        Bench.header("UCanAccess inserts");
+        if (!Bench.hasUcanaccess()) {
+            Bench.note("skipped: UCanAccess is not on the classpath (set UCANACCESS_CP for bench/run.sh)");
+            return;
+        }
+        int rounds = 16;
+        List<StudentRecord> records = BenchData.generateRecords(1_000 * rounds, LocalDate.now().getYear());
+        String url = "jdbc:ucanaccess://" + workDir.resolve("inserts.accdb") + ";newdatabaseversion=V2010";
+        try (StudentDatabase database = new StudentDatabase(url, 2)) {
+            database.initialize();
+            int[] next = {0};
+            Bench.measure("StudentDatabase.insert (autocommit per row)", 500, ops -> {
+                for (int i = 0; i < ops; i++) database.insert(records.get(next[0]++));
+                return next[0];
+            });
+            Bench.measure("StudentDatabase.insertBatch (50 rows, one commit)", 500, ops -> {
+                for (int i = 0; i < ops; i += 50) {
+                    String[] failures = new String[50];
+                    database.insertBatch(records.subList(next[0], next[0] + 50), failures);
+                    next[0] += 50;
+                }
+                return next[0];
+            });
+        }
+    }
+
+    static void startupCounter(Path workDir) throws Exception {
+        Bench.header("Startup: finding the current student counter");
+        int year = LocalDate.now().getYear();
+        for (int size : STARTUP_SIZES) {
+            Path csvPath = workDir.resolve("startup-" + size + ".csv");
+            StudentCsvFile csvFile = new StudentCsvFile(csvPath.toString());
+            List<StudentRecord> records = BenchData.generateRecords(size, year);
+            for (int i = 0; i < size; i += 10_000) {
+                csvFile.appendAll(records.subList(i, Math.min(size, i + 10_000)));
+            }
+            records = null;
+
+            String prefix = year + "-";
+            Bench.once("CSV scan, readLine + split (legacy), " + size + " rows", ops -> legacyCounterScan(csvPath, prefix));
+            Bench.once("CSV scan, CsvReader, " + size + " rows", ops -> csvFile.loadMaxCounter(prefix));
+
+            Path sequenceFile = workDir.resolve("startup-" + size + ".seq");
+            Bench.once("StudentIdSequence rebuild, " + size + " rows", ops -> {
+                try (StudentIdSequence sequence = StudentIdSequence.open(sequenceFile, y -> csvFile.loadMaxCounter(y + "-"))) {
+                    return sequence.getCounter();
+                }
+            });
+            Bench.measure("StudentIdSequence open (existing), " + size + " rows", 100, ops -> {
+                long acc = 0;
+                for (int i = 0; i < ops; i++) {
+                    try (StudentIdSequence sequence = StudentIdSequence.open(sequenceFile, y -> {
+                        throw new IllegalStateException("unexpected rebuild");
+                    })) {
+                        acc += sequence.getCounter();
+                    }
+                }
+                return acc;
+            });
+            Files.delete(csvPath);
+        }
+    }
+
+    // The loop loadStudentCounter() used before CsvReader
+    static int legacyCounterScan(Path csvPath, String yearPrefix) throws Exception {
+        int maxCounter = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
+            String line;
+            reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts[0].startsWith(yearPrefix)) {
+                    maxCounter = Math.max(maxCounter, Integer.parseInt(parts[0].substring(5)));
+                }
+            }
+        }
+        return maxCounter;
+    }
+
+    static void storeThroughput(Path workDir) throws Exception {
+        Bench.header("StudentRepository backends: insert and lookup");
+        int year = LocalDate.now().getYear();
+        List<StudentRecord> records = BenchData.generateRecords(STORE_SIZE, year);
+
+        Path logPath = workDir.resolve("store.log");
+        long before = Bench.usedHeapAfterGc();
+        StudentLogFile log = new StudentLogFile(logPath);
+        log.initialize();
+        storeInserts(log, records, STORE_SIZE);
+        Bench.note(String.format("Log index: %.1f MB heap for %d students",
+            (Bench.usedHeapAfterGc() - before) / 1048576.0, log.size()));
+        storeLookups(log, records, STORE_SIZE, 1_000_000);
+        log.close();
+        Bench.once("Log reopen (index rebuild), " + STORE_SIZE + " students", ops -> {
+            try (StudentLogFile reopened = new StudentLogFile(logPath)) {
+                reopened.initialize();
+                return reopened.size();
+            }
+        });
+        Files.delete(logPath);
+
+        Path csvPath = workDir.resolve("store.csv");
+        try (StudentCsvFile csv = new StudentCsvFile(csvPath.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS))) {
+            csv.initialize();
+            storeInserts(csv, records, STORE_SIZE);
+            // No index: every lookup is a scan of the file
+            storeLookups(csv, records, STORE_SIZE, 20);
+        }
+        Files.delete(csvPath);
+
+        if (!Bench.hasUcanaccess()) {
+            Bench.note("Database skipped: UCanAccess is not on the classpath (set UCANACCESS_CP for bench/run.sh)");
+            return;
+        }
+        String url = "jdbc:ucanaccess://" + workDir.resolve("store.accdb") + ";newdatabaseversion=V2010";
+        try (StudentDatabase database = new StudentDatabase(url, 2)) {
+            database.initialize();
+            storeInserts(database, records, BenchData.ACCESS_STORE_SIZE);
+            storeLookups(database, records, BenchData.ACCESS_STORE_SIZE, 100_000);
+        }
+    }
+
+    static void storeInserts(StudentRepository store, List<StudentRecord> records, int count) throws Exception {
+        long[] failed = {0};
+        long start = System.nanoTime();
+        Bench.once(store.getName() + " saveAll, " + count + " students in batches of " + BenchData.STORE_BATCH_SIZE, ops -> {
+            String[] failures = new String[BenchData.STORE_BATCH_SIZE];
+            for (int i = 0; i < count; i += BenchData.STORE_BATCH_SIZE) {
+                Arrays.fill(failures, null);
+                store.saveAll(records.subList(i, i + BenchData.STORE_BATCH_SIZE), failures);
+                for (String failure : failures) if (failure != null) failed[0]++;
+            }
+            return failed[0];
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Bench.note(String.format("%.0f inserts/s, %d failed", count / seconds, failed[0]));
+    }
+
+    static void storeLookups(StudentRepository store, List<StudentRecord> records, int count, int lookups) throws Exception {
+        Random random = new Random(7);
+        String[] ids = new String[lookups];
+        for (int i = 0; i < lookups; i++) ids[i] = records.get(random.nextInt(count)).getStudentId();
+        if (lookups >= 10_000) {
+            Bench.measure(store.getName() + " findById (random, " + count + " students)", lookups, ops -> {
+                long acc = 0;
+                for (int i = 0; i < ops; i++) acc += store.findById(ids[i]).getEmail().length();
+                return acc;
+            });
+        } else {
+            long start = System.nanoTime();
+            Bench.once(store.getName() + " findById x" + lookups + " (random, " + count + " students)", ops -> {
+                long acc = 0;
+                for (int i = 0; i < lookups; i++) acc += store.findById(ids[i]).getEmail().length();
+                return acc;
+            });
+            Bench.note(String.format("%.1f lookups/s", lookups / ((System.nanoTime() - start) / 1e9)));
+        }
+    }
+
+    private StorageBenchmarks() {
+    }
+}
@@ -0,0 +1,16 @@
+#!/bin/sh
+# Compiles the application and the benchmarks and runs them with fixed JVM settings.
+#
+#   bench/run.sh                  run every benchmark group
+#   bench/run.sh validation csv   run only the named groups
+#
+# Set UCANACCESS_CP to the UCanAccess jars (colon separated) to include the
+# database benchmarks. Results are also written to bench_output.txt.
+set -e
+cd "$(dirname "$0")/.."
+rm -rf bench/out
+mkdir -p bench/out
+javac -d bench/out src/*.java bench/*.java
+java -Xms2g -Xmx2g -XX:+UseParallelGC \
+    -cp "bench/out${UCANACCESS_CP:+:$UCANACCESS_CP}" \
+    RegistrationBenchmarks "$@" | tee bench_output.txt
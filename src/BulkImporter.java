@@ -0,0 +1,331 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Headless import of a roster CSV through the same rules as the Swing form.
+//
+// Input columns: FirstName,LastName,Email,Password,DateOfBirth(yyyy-MM-dd),Gender(M/F),Department
+//
+// The file is streamed in chunks that are validated in parallel; a single writer
+// thread consumes the chunks in input order, allocates IDs and writes batches to
+// the CSV file and the primary StudentRepository.
+public class BulkImporter {
+
+    private static final int CHUNK_SIZE = 2000;
+    private static final int WRITE_BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_REJECTIONS = 20;
+    private static final int INPUT_COLUMNS = 7;
+
+    private static final class Rejection {
+        final long lineNumber;
+        final String reason;
+
+        Rejection(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+    }
+
+    // Raw input rows, in file order, as read by the reader thread
+    private static final class Chunk {
+        final List<String[]> fields = new ArrayList<>(CHUNK_SIZE);
+        final List<Long> lines = new ArrayList<>(CHUNK_SIZE);
+
+        void add(String[] row, long lineNumber) {
+            fields.add(row);
+            lines.add(lineNumber);
+        }
+
+        int size() {
+            return fields.size();
+        }
+    }
+
+    // Outcome of validating one Chunk
+    private static final class Validated {
+        final List<RegistrationRequest> accepted = new ArrayList<>();
+        final List<Long> acceptedLines = new ArrayList<>();
+        final List<Rejection> rejected = new ArrayList<>();
+    }
+
+    private static final Future<Validated> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+    private final RegistrationValidator validator = new RegistrationValidator();
+    private final StudentCsvFile csvFile;
+    private final StudentRepository store;
+    private final StudentIdSequence idSequence;
+    private final StudentRegistry registry;
+    private final List<Rejection> rejections = new ArrayList<>();
+    private long accepted;
+    private long imported;
+    private long storeFailures;
+
+    private BulkImporter(StudentCsvFile csvFile, StudentRepository store, StudentIdSequence idSequence,
+                         StudentRegistry registry) {
+        this.csvFile = csvFile;
+        this.store = store;
+        this.idSequence = idSequence;
+        this.registry = registry;
+    }
+
+    public static int run(String inputPath, String csvPath, StudentRepository primaryStore, String sequencePath) {
+        // Rows are synced once a second and on close rather than per batch
+        StudentCsvFile csvFile = new StudentCsvFile(csvPath, StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS));
+        StudentRepository store = primaryStore;
+        try {
+            store.initialize();
+        } catch (Exception e) {
+            System.err.println("Error initializing " + store.getName() + " storage: " + e.getMessage() + "\nWill save to CSV only.");
+            closeQuietly(store);
+            store = null;
+        }
+
+        StudentRepository recoveryStore = store;
+        try (StudentIdSequence idSequence = StudentIdSequence.open(Paths.get(sequencePath),
+                year -> RegistrationService.recoverStudentCounter(recoveryStore, csvFile, year))) {
+            StudentRegistry registry = StudentRegistry.load(store, csvFile);
+            return new BulkImporter(csvFile, store, idSequence, registry).importFile(inputPath);
+        } catch (IOException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            return 1;
+        } finally {
+            if (store != null) {
+                closeQuietly(store);
+            }
+            try {
+                csvFile.close();
+            } catch (IOException e) {
+                System.err.println("Could not close " + csvPath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(StudentRepository store) {
+        try {
+            store.close();
+        } catch (Exception e) {
+            System.err.println("Could not close " + store.getName() + " storage: " + e.getMessage());
+        }
+    }
+
+    private int importFile(String inputPath) throws IOException {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ExecutorService validators = Executors.newFixedThreadPool(threads);
+        // Bounded so that reading cannot run arbitrarily far ahead of the writer
+        BlockingQueue<Future<Validated>> ordered = new ArrayBlockingQueue<>(threads * 2);
+        IOException[] writeFailure = new IOException[1];
+        Thread writer = new Thread(() -> {
+            try {
+                writeChunks(ordered);
+            } catch (IOException e) {
+                writeFailure[0] = e;
+            }
+        }, "bulk-import-writer");
+
+        long start = System.nanoTime();
+        writer.start();
+        try (CsvReader reader = CsvReader.open(Paths.get(inputPath))) {
+            Chunk rows = new Chunk();
+            while (reader.next()) {
+                CsvReader.Row row = reader.row();
+                if (row.isBlank() || (row.getLineNumber() == 1 && row.startsWith(0, "FirstName"))) {
+                    continue;
+                }
+                rows.add(row.toArray(), row.getLineNumber());
+                if (rows.size() == CHUNK_SIZE) {
+                    if (!enqueue(ordered, submitChunk(validators, rows), writer)) {
+                        break;
+                    }
+                    rows = new Chunk();
+                }
+            }
+            if (rows.size() > 0) {
+                enqueue(ordered, submitChunk(validators, rows), writer);
+            }
+            enqueue(ordered, END_OF_INPUT, writer);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            validators.shutdownNow();
+        }
+
+        if (writeFailure[0] != null) {
+            throw writeFailure[0];
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        printReport(inputPath, accepted + rejections.size(), seconds);
+        return storeFailures == 0 ? 0 : 1;
+    }
+
+    private Future<Validated> submitChunk(ExecutorService validators, Chunk rows) {
+        return validators.submit(() -> validateChunk(rows));
+    }
+
+    // Waits for room in the ordered queue; returns false if the writer has stopped
+    private static boolean enqueue(BlockingQueue<Future<Validated>> ordered, Future<Validated> chunk, Thread writer)
+            throws InterruptedException {
+        while (!ordered.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Validated validateChunk(Chunk rows) {
+        Validated chunk = new Validated();
+        for (int i = 0; i < rows.size(); i++) {
+            String[] fields = rows.fields.get(i);
+            long lineNumber = rows.lines.get(i);
+            if (fields.length != INPUT_COLUMNS) {
+                chunk.rejected.add(new Rejection(lineNumber,
+                    "Expected " + INPUT_COLUMNS + " columns but found " + fields.length));
+                continue;
+            }
+            LocalDate dob = null;
+            String dobText = fields[4].trim();
+            if (!dobText.isEmpty()) {
+                try {
+                    dob = LocalDate.parse(dobText);
+                } catch (DateTimeParseException e) {
+                    chunk.rejected.add(new Rejection(lineNumber, "Invalid date of birth (expected yyyy-MM-dd)"));
+                    continue;
+                }
+            }
+            String email = fields[2].trim();
+            char[] password = fields[3].toCharArray();
+            RegistrationRequest request = new RegistrationRequest(fields[0].trim(), fields[1].trim(),
+                email, email, password, password, dob, fields[5].trim(), fields[6].trim());
+
+            int result = validator.validate(request);
+            request.clearPasswords();
+            if (RegistrationValidator.isValid(result)) {
+                chunk.accepted.add(request);
+                chunk.acceptedLines.add(lineNumber);
+            } else {
+                chunk.rejected.add(new Rejection(lineNumber, RegistrationValidator.summarize(result, "; ")));
+            }
+        }
+        return chunk;
+    }
+
+    private void writeChunks(BlockingQueue<Future<Validated>> ordered) throws IOException {
+        List<StudentRecord> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        try {
+            while (true) {
+                Future<Validated> next = ordered.take();
+                if (next == END_OF_INPUT) {
+                    break;
+                }
+                Validated chunk = next.get();
+                rejections.addAll(chunk.rejected);
+                
+                // Duplicate emails are checked here, in input order, against the registry
+                // (which already holds rows from earlier chunks) and within the chunk
+                List<RegistrationRequest> unique = new ArrayList<>(chunk.accepted.size());
+                Set<String> chunkEmails = new HashSet<>();
+                for (int i = 0; i < chunk.accepted.size(); i++) {
+                    RegistrationRequest request = chunk.accepted.get(i);
+                    String existingId = registry.findIdByEmail(request.getEmail());
+                    if (existingId != null) {
+                        rejections.add(new Rejection(chunk.acceptedLines.get(i),
+                            "Email is already registered (Student ID: " + existingId + ")"));
+                    } else if (!chunkEmails.add(StudentRegistry.normalizeEmail(request.getEmail()))) {
+                        rejections.add(new Rejection(chunk.acceptedLines.get(i),
+                            "Email appears more than once in this import"));
+                    } else {
+                        unique.add(request);
+                    }
+                }
+                
+                accepted += unique.size();
+                String[] ids = idSequence.nextIds(unique.size());
+                for (int i = 0; i < ids.length; i++) {
+                    StudentRecord record = unique.get(i).toRecord(ids[i]);
+                    registry.add(record.getStudentId(), record.getEmail());
+                    batch.add(record);
+                    if (batch.size() == WRITE_BATCH_SIZE) {
+                        writeBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private void writeBatch(List<StudentRecord> batch) throws IOException {
+        csvFile.appendAll(batch);
+        imported += batch.size();
+        if (store == null) {
+            return;
+        }
+        String[] failures = new String[batch.size()];
+        try {
+            store.saveAll(batch, failures);
+        } catch (IOException e) {
+            // The CSV file has the rows; the store can be caught up with --reconcile repair
+            Arrays.fill(failures, e.getMessage());
+        }
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) {
+                storeFailures++;
+                System.err.println(store.getName() + " insert failed for " + batch.get(i).getStudentId() + ": " + failures[i]);
+            }
+        }
+    }
+
+    private void printReport(String inputPath, long rows, double seconds) throws IOException {
+        System.out.println("Import of " + inputPath + " finished");
+        System.out.printf("  Rows read:         %d%n", rows);
+        System.out.printf("  Imported:          %d%n", imported);
+        System.out.printf("  Rejected:          %d%n", rejections.size());
+        System.out.printf("  %-19s%d%n", (store == null ? "Database" : store.getName()) + " failures:", storeFailures);
+        System.out.printf("  Elapsed:           %.2f s (%.0f rows/s)%n", seconds, rows / Math.max(seconds, 1e-9));
+
+        if (rejections.isEmpty()) {
+            return;
+        }
+        rejections.sort((a, b) -> Long.compare(a.lineNumber, b.lineNumber));
+        String reportPath = inputPath + ".rejected.txt";
+        try (PrintWriter report = new PrintWriter(new FileWriter(reportPath))) {
+            for (Rejection rejection : rejections) {
+                report.println("line " + rejection.lineNumber + ": " + rejection.reason);
+            }
+        }
+        System.out.println("Rejected rows (full report in " + reportPath + "):");
+        for (int i = 0; i < Math.min(MAX_REPORTED_REJECTIONS, rejections.size()); i++) {
+            Rejection rejection = rejections.get(i);
+            System.out.println("  line " + rejection.lineNumber + ": " + rejection.reason);
+        }
+        if (rejections.size() > MAX_REPORTED_REJECTIONS) {
+            System.out.println("  ... " + (rejections.size() - MAX_REPORTED_REJECTIONS) + " more");
+        }
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Append-only file of entries, each an int payload length, an int CRC32 of the
+// payload and the payload itself. Appends are buffered until commit(), which writes
+// them and forces them to disk. Opening the file drops a torn or corrupt tail left by
+// a crash mid-write; those entries were never committed.
+//
+// Shared by StudentLogFile and RegistrationJournal. Not thread-safe except for
+// read() and scan(from, until, visitor) over committed entries, which only use
+// positional reads; callers serialize everything else.
+final class ChecksummedLog implements AutoCloseable {
+
+    static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    interface EntryVisitor {
+        // entry is only valid until visit returns
+        void visit(long offset, byte[] entry, int length) throws IOException;
+    }
+
+    private final Path path;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private volatile FileChannel channel;
+    // End of the log including buffered bytes, and the part of it already written
+    private long end;
+    private long writtenEnd;
+
+    ChecksummedLog(Path path) {
+        this.path = path;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    boolean isOpen() {
+        return channel != null;
+    }
+
+    // Opens the file, creating it if needed, and hands every intact entry to visitor
+    void open(EntryVisitor visitor) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long validEnd = scan(visitor);
+            if (validEnd < channel.size()) {
+                System.err.println("Discarding " + (channel.size() - validEnd) + " bytes of incomplete entries at the end of " + path);
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+            end = validEnd;
+            writtenEnd = validEnd;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            channel = null;
+            throw e;
+        }
+    }
+
+    // Offset just past the last appended entry, committed or not
+    long end() {
+        return end;
+    }
+
+    // Buffers an entry and returns its offset
+    long append(byte[] payload, int length) throws IOException {
+        long offset = end;
+        crc.reset();
+        crc.update(payload, 0, length);
+        if (buffer.remaining() < HEADER_SIZE) {
+            writeBuffer();
+        }
+        buffer.putInt(length);
+        buffer.putInt((int) crc.getValue());
+        int written = 0;
+        while (written < length) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int chunk = Math.min(buffer.remaining(), length - written);
+            buffer.put(payload, written, chunk);
+            written += chunk;
+        }
+        end += HEADER_SIZE + length;
+        return offset;
+    }
+
+    void commit() throws IOException {
+        writeBuffer();
+        channel.force(false);
+    }
+
+    // Drops everything appended after offset, e.g. a batch whose commit failed
+    void rollBack(long offset) {
+        buffer.clear();
+        end = offset;
+        writtenEnd = offset;
+        try {
+            channel.truncate(offset);
+        } catch (IOException | RuntimeException e) {
+            // open() discards whatever is left past the last intact entry
+            System.err.println("Could not truncate " + path + ": " + e.getMessage());
+        }
+    }
+
+    // Empties the log; everything in it must already be committed
+    void clear() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        end = 0;
+        writtenEnd = 0;
+    }
+
+    // Drops the entries before offset, which must start one, by copying the rest to a
+    // new file that replaces this one. Everything must already be committed. Offsets
+    // of the entries kept go down by offset.
+    void dropBefore(long offset) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long position = offset; position < end; ) {
+                position += channel.transferTo(position, end - position, out);
+            }
+            out.force(true);
+        }
+        // Windows cannot replace a file that is open, so the channel is closed first
+        channel.close();
+        channel = null;
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // The old file if the move failed, and everything in it is still there
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        end -= offset;
+        writtenEnd = end;
+    }
+
+    // Reads every intact committed entry from the start of the file and returns the
+    // offset just past the last one
+    long scan(EntryVisitor visitor) throws IOException {
+        return scan(0, channel.size(), visitor);
+    }
+
+    // Reads the intact entries from offset `from`, which must start one, up to `until`
+    // and returns the offset just past the last one. Uses positional reads only, so it
+    // may run while entries are appended past `until`.
+    long scan(long from, long until, EntryVisitor visitor) throws IOException {
+        FileChannel readChannel = channel;
+        if (readChannel == null) {
+            throw new IOException(path + " is closed");
+        }
+        long offset = from;
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new PositionalInput(readChannel, from), BUFFER_SIZE));
+        byte[] entry = new byte[512];
+        CRC32 entryCrc = new CRC32();
+        while (offset + HEADER_SIZE <= until) {
+            int length;
+            int checksum;
+            try {
+                length = data.readInt();
+                checksum = data.readInt();
+                if (length < 0 || offset + HEADER_SIZE + length > until) {
+                    break;
+                }
+                if (entry.length < length) {
+                    entry = new byte[Math.max(length, entry.length * 2)];
+                }
+                data.readFully(entry, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            entryCrc.reset();
+            entryCrc.update(entry, 0, length);
+            if ((int) entryCrc.getValue() != checksum) {
+                break;
+            }
+            visitor.visit(offset, entry, length);
+            offset += HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    // The file from a position on, read without moving the channel's own position
+    private static final class PositionalInput extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        PositionalInput(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    // Reads and verifies the committed entry at offset
+    byte[] read(long offset) throws IOException {
+        FileChannel readChannel = channel;
+        if (readChannel == null) {
+            throw new IOException(path + " is closed");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(readChannel, header, offset);
+        int length = header.getInt(0);
+        int checksum = header.getInt(4);
+        ByteBuffer entry = ByteBuffer.allocate(length);
+        readFully(readChannel, entry, offset + HEADER_SIZE);
+        CRC32 entryCrc = new CRC32();
+        entryCrc.update(entry.array(), 0, length);
+        if ((int) entryCrc.getValue() != checksum) {
+            throw new IOException("Corrupt entry at offset " + offset + " of " + path);
+        }
+        return entry.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try {
+                writeBuffer();
+                channel.force(true);
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                writtenEnd += channel.write(buffer, writtenEnd);
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at offset " + position);
+            }
+            position += read;
+        }
+    }
+}
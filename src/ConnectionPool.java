@@ -0,0 +1,218 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Small pool of long-lived JDBC connections. UCanAccess loads the whole Access file
+// when the first connection opens, so keeping connections alive turns each insert
+// into plain statement execution instead of a full database load.
+public class ConnectionPool implements AutoCloseable {
+
+    public interface SqlWork<T> {
+        T execute(PooledConnection connection) throws SQLException;
+    }
+
+    public static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private long lastUsed;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.nanoTime();
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        // Statements are cached per connection and reused across calls
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        void closeQuietly() {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // Closing anyway
+                }
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Closing anyway
+            }
+        }
+    }
+
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    private static final RegistrationMetrics METRICS = RegistrationMetrics.global();
+    // Includes waiting for a permit and opening or validating the connection
+    private static final RegistrationMetrics.Histogram ACQUIRE_TIME = METRICS.histogram("db.acquire");
+    private static final RegistrationMetrics.Counter ACQUIRE_ERRORS = METRICS.counter("db.acquire.errors");
+    private static final RegistrationMetrics.Counter CONNECTIONS_OPENED = METRICS.counter("db.connections.opened");
+
+    private final String url;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, int maxConnections) {
+        this.url = url;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    // Runs the work on a pooled connection. A connection that fails is discarded and
+    // the work is retried once on a freshly established one.
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        PooledConnection connection = acquire();
+        try {
+            T result = work.execute(connection);
+            release(connection);
+            return result;
+        } catch (SQLException e) {
+            if (isConnectionBroken(connection)) {
+                discard(connection);
+                PooledConnection retry = acquire();
+                try {
+                    T result = work.execute(retry);
+                    release(retry);
+                    return result;
+                } catch (SQLException | RuntimeException retryFailure) {
+                    releaseOrDiscard(retry);
+                    throw retryFailure;
+                }
+            }
+            release(connection);
+            throw e;
+        } catch (RuntimeException e) {
+            releaseOrDiscard(connection);
+            throw e;
+        }
+    }
+
+    public PooledConnection acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            PooledConnection connection = acquireConnection();
+            ACQUIRE_TIME.recordSince(start);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            ACQUIRE_ERRORS.increment();
+            throw e;
+        }
+    }
+
+    private PooledConnection acquireConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+        try {
+            while (true) {
+                PooledConnection connection;
+                synchronized (idle) {
+                    connection = idle.pollFirst();
+                }
+                if (connection == null) {
+                    PooledConnection opened = new PooledConnection(DriverManager.getConnection(url));
+                    CONNECTIONS_OPENED.increment();
+                    return opened;
+                }
+                if (isUsable(connection)) {
+                    return connection;
+                }
+                connection.closeQuietly();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(PooledConnection connection) {
+        connection.lastUsed = System.nanoTime();
+        boolean keep;
+        synchronized (idle) {
+            keep = !closed;
+            if (keep) {
+                idle.addFirst(connection);
+            }
+        }
+        if (!keep) {
+            connection.closeQuietly();
+        }
+        permits.release();
+    }
+
+    public void discard(PooledConnection connection) {
+        connection.closeQuietly();
+        permits.release();
+    }
+
+    @Override
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            for (PooledConnection connection : idle) {
+                connection.closeQuietly();
+            }
+            idle.clear();
+        }
+    }
+
+    private void releaseOrDiscard(PooledConnection connection) {
+        if (isConnectionBroken(connection)) {
+            discard(connection);
+        } else {
+            release(connection);
+        }
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        if (System.nanoTime() - connection.lastUsed < VALIDATE_AFTER_IDLE_NANOS) {
+            return !isClosed(connection);
+        }
+        return !isConnectionBroken(connection);
+    }
+
+    private boolean isConnectionBroken(PooledConnection connection) {
+        try {
+            return !connection.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private boolean isClosed(PooledConnection connection) {
+        try {
+            return connection.connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
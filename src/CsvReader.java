@@ -0,0 +1,372 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Streaming reader for UTF-8 CSV files over memory-mapped windows of the file.
+//
+// Each call to next() only finds the field boundaries of the next row; nothing is
+// decoded until a caller asks for a particular field, so a scan that needs one column
+// creates one String per row (or none, using startsWith/parseInt). Quoted fields,
+// doubled quotes and line breaks inside quotes are supported.
+//
+// The Row handed out is reused for every row: copy out what you need before
+// advancing. Files larger than the mapping window are remapped as the scan moves on.
+//
+// A reader can also cover a byte range of the file, so that parts of a large file can
+// be scanned in parallel: it reads the rows that start inside the range. Where the
+// first of them starts is found by the first line break at or after the start, which
+// may be one inside a quoted field. Callers that cannot rule those out compare
+// getPosition() at the end of each range with that at the start of the next, and line
+// numbers count from the range.
+public class CsvReader implements AutoCloseable, Iterable<CsvReader.Row> {
+
+    static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+    private static final int INITIAL_FIELDS = 16;
+
+    public final class Row {
+        private int fieldCount;
+        private int[] starts = new int[INITIAL_FIELDS];
+        private int[] ends = new int[INITIAL_FIELDS];
+        private boolean[] quoted = new boolean[INITIAL_FIELDS];
+        private byte[] scratch = new byte[256];
+        private long lineNumber;
+        private long offset;
+
+        public int getFieldCount() {
+            return fieldCount;
+        }
+
+        // Line on which this row starts (1-based); quoted line breaks make rows span lines
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        // Byte offset in the file at which this row starts
+        public long getOffset() {
+            return offset;
+        }
+
+        public boolean isBlank() {
+            return fieldCount == 1 && starts[0] == ends[0];
+        }
+
+        public int fieldLength(int index) {
+            checkIndex(index);
+            return ends[index] - starts[index];
+        }
+
+        public String field(int index) {
+            checkIndex(index);
+            int length = copyField(index);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        // Compares the raw bytes of the field with an ASCII prefix without decoding it
+        public boolean startsWith(int index, String asciiPrefix) {
+            checkIndex(index);
+            int start = starts[index];
+            if (ends[index] - start < asciiPrefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < asciiPrefix.length(); i++) {
+                if (window.get(start + i) != (byte) asciiPrefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Parses the decimal digits of the field from `offset` on; -1 if there are none
+        // or a non-digit is found
+        public int parseInt(int index, int offset) {
+            checkIndex(index);
+            int start = starts[index] + offset;
+            int end = ends[index];
+            if (start >= end) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = window.get(i) - '0';
+                if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        public String[] toArray() {
+            String[] fields = new String[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                fields[i] = field(i);
+            }
+            return fields;
+        }
+
+        private int copyField(int index) {
+            int start = starts[index];
+            int length = ends[index] - start;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(start, scratch, 0, length);
+            if (!quoted[index]) {
+                return length;
+            }
+            // Collapse doubled quotes inside a quoted field
+            int out = 0;
+            for (int i = 0; i < length; i++) {
+                byte b = scratch[i];
+                scratch[out++] = b;
+                if (b == '"' && i + 1 < length && scratch[i + 1] == '"') {
+                    i++;
+                }
+            }
+            return out;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= fieldCount) {
+                throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+            }
+        }
+
+        private void addField(int start, int end, boolean isQuoted) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+                quoted = Arrays.copyOf(quoted, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            quoted[fieldCount] = isQuoted;
+            fieldCount++;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    // Rows starting at or after this offset belong to the next range
+    private final long end;
+    private final long windowSize;
+    private final Row row = new Row();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private long lineNumber = 1;
+
+    private CsvReader(FileChannel channel, long windowSize, long start, long end) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.end = Math.min(end, size);
+        this.windowSize = windowSize;
+        if (start <= 0) {
+            mapWindow(0);
+        } else {
+            // The first row of the range is the one after the first line break at or
+            // after start - 1, which is start itself if a row ends just before it
+            mapWindow(Math.min(start - 1, size));
+            skipPastLineBreak();
+        }
+    }
+
+    public static CsvReader open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static CsvReader open(Path path, long windowSize) throws IOException {
+        return open(path, windowSize, 0, Long.MAX_VALUE);
+    }
+
+    // Reads the rows starting in [start, end); see the class comment
+    public static CsvReader open(Path path, long windowSize, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CsvReader(channel, windowSize, start, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Advances to the next row. Returns false at the end of the file or range.
+    public boolean next() throws IOException {
+        if (windowStart + position >= end) {
+            return false;
+        }
+        while (!parseRow()) {
+            long rowStart = windowStart + position;
+            if (rowStart == windowStart) {
+                throw new IOException("CSV row at line " + lineNumber + " is larger than the "
+                    + windowSize + "-byte mapping window");
+            }
+            // The row runs past the end of this window; remap starting at the row
+            mapWindow(rowStart);
+        }
+        return true;
+    }
+
+    public Row row() {
+        return row;
+    }
+
+    // Offset in the file of the next row to be read
+    public long getPosition() {
+        return windowStart + position;
+    }
+
+    // Iterates over the reused Row; see the class comment
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private boolean advanced;
+            private boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (!advanced) {
+                    try {
+                        hasNext = CsvReader.this.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    advanced = true;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                advanced = false;
+                return row;
+            }
+        };
+    }
+
+    public Stream<Row> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void skipPastLineBreak() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            for (int i = position; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    position = i + 1;
+                    return;
+                }
+            }
+            if (windowStart + limit >= size) {
+                position = limit;
+                return;
+            }
+            mapWindow(windowStart + limit);
+        }
+    }
+
+    private void mapWindow(long start) throws IOException {
+        long length = Math.min(windowSize, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        position = 0;
+    }
+
+    // Finds the field boundaries of the row at the current position. Returns false,
+    // leaving the position untouched, if the row is cut off by the end of the window
+    // while more of the file remains.
+    private boolean parseRow() {
+        int limit = window.limit();
+        boolean atEndOfFile = windowStart + limit >= size;
+        int i = position;
+        int fieldStart = i;
+        boolean inQuotes = false;
+        boolean fieldQuoted = false;
+        int lines = 0;
+        row.fieldCount = 0;
+        row.offset = windowStart + position;
+
+        while (i < limit) {
+            byte b = window.get(i);
+            if (inQuotes) {
+                if (b == '"') {
+                    if (i + 1 < limit && window.get(i + 1) == '"') {
+                        i += 2;
+                        continue;
+                    }
+                    if (i + 1 == limit && !atEndOfFile) {
+                        return false;
+                    }
+                    inQuotes = false;
+                } else if (b == '\n') {
+                    lines++;
+                }
+                i++;
+            } else if (b == '"' && i == fieldStart) {
+                inQuotes = true;
+                fieldQuoted = true;
+                i++;
+            } else if (b == ',') {
+                addField(fieldStart, i, fieldQuoted);
+                i++;
+                fieldStart = i;
+                fieldQuoted = false;
+            } else if (b == '\n') {
+                int end = i > fieldStart && window.get(i - 1) == '\r' ? i - 1 : i;
+                addField(fieldStart, end, fieldQuoted);
+                finishRow(i + 1, lines + 1);
+                return true;
+            } else {
+                i++;
+            }
+        }
+
+        if (!atEndOfFile) {
+            return false;
+        }
+        // Last row without a trailing newline
+        int end = i > fieldStart && window.get(i - 1) == '\r' ? i - 1 : i;
+        addField(fieldStart, end, fieldQuoted);
+        finishRow(i, lines);
+        return true;
+    }
+
+    private void addField(int start, int end, boolean isQuoted) {
+        if (isQuoted) {
+            // Drop the surrounding quotes; anything after the closing quote is kept as-is
+            int closing = end - 1;
+            while (closing > start && window.get(closing) != '"') {
+                closing--;
+            }
+            row.addField(start + 1, Math.max(start + 1, closing), true);
+        } else {
+            row.addField(start, end, false);
+        }
+    }
+
+    private void finishRow(int nextPosition, int linesConsumed) {
+        row.lineNumber = lineNumber;
+        lineNumber += linesConsumed;
+        position = nextPosition;
+    }
+}
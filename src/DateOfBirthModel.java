@@ -0,0 +1,131 @@
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import javax.swing.DefaultComboBoxModel;
+import java.time.LocalDate;
+
+// Items of the form's date of birth combo boxes. The day list is one of four models
+// (28, 29, 30 and 31 days), built once and swapped in whole when the year or month
+// changes rather than emptied and refilled: a swap is a single model change for the
+// combo box instead of an event per removed and added item, and every model shares
+// the same day Strings.
+//
+// Years run from the youngest to the oldest age RegistrationValidator accepts; the
+// validator still checks the exact date.
+final class DateOfBirthModel {
+
+    static final String SELECT_YEAR = "Select Year";
+    static final String SELECT_MONTH = "Select Month";
+    static final String SELECT_DAY = "Select Day";
+    private static final String[] MONTHS = {SELECT_MONTH, "January", "February", "March", "April", "May", "June",
+        "July", "August", "September", "October", "November", "December"};
+    // DAYS[d] is day d; DAYS[0] is the prompt
+    private static final String[] DAYS = new String[32];
+
+    static {
+        DAYS[0] = SELECT_DAY;
+        for (int day = 1; day < DAYS.length; day++) {
+            DAYS[day] = String.valueOf(day);
+        }
+    }
+
+    // The prompt and days 1 to `days` of DAYS, with a selection of its own
+    private static final class DayModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+        private final int days;
+        private Object selected = SELECT_DAY;
+
+        DayModel(int days) {
+            this.days = days;
+        }
+
+        @Override
+        public int getSize() {
+            return days + 1;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return DAYS[index];
+        }
+
+        @Override
+        public void setSelectedItem(Object item) {
+            if (item != selected) {
+                selected = item;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+
+        @Override
+        public Object getSelectedItem() {
+            return selected;
+        }
+    }
+
+    private final int latestYear;
+    private final ComboBoxModel<String> years;
+    private final ComboBoxModel<String> months = new DefaultComboBoxModel<>(MONTHS);
+    // Indexed by days in the month - 28
+    private final DayModel[] dayModels = {new DayModel(28), new DayModel(29), new DayModel(30), new DayModel(31)};
+
+    DateOfBirthModel(LocalDate today) {
+        latestYear = today.getYear() - RegistrationValidator.MIN_AGE;
+        int earliestYear = today.getYear() - RegistrationValidator.MAX_AGE;
+        String[] items = new String[latestYear - earliestYear + 2];
+        items[0] = SELECT_YEAR;
+        for (int i = 1; i < items.length; i++) {
+            items[i] = String.valueOf(latestYear - i + 1);
+        }
+        years = new DefaultComboBoxModel<>(items);
+    }
+
+    ComboBoxModel<String> getYears() {
+        return years;
+    }
+
+    ComboBoxModel<String> getMonths() {
+        return months;
+    }
+
+    // Before a month is chosen, and while the year is not, every day is offered
+    ComboBoxModel<String> getDays() {
+        return dayModels[3];
+    }
+
+    // The day list for the selected year and month indexes, or null while either is
+    // still on its prompt
+    ComboBoxModel<String> daysFor(int yearIndex, int monthIndex) {
+        if (yearIndex <= 0 || monthIndex <= 0) {
+            return null;
+        }
+        return dayModels[daysInMonth(yearOf(yearIndex), monthIndex) - 28];
+    }
+
+    // The date the selected indexes stand for, or null while any is on its prompt
+    LocalDate toDate(int yearIndex, int monthIndex, int dayIndex) {
+        if (yearIndex <= 0 || monthIndex <= 0 || dayIndex <= 0) {
+            return null;
+        }
+        return LocalDate.of(yearOf(yearIndex), monthIndex, dayIndex);
+    }
+
+    private int yearOf(int yearIndex) {
+        return latestYear - yearIndex + 1;
+    }
+
+    static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 1: case 3: case 5: case 7: case 8: case 10: case 12:
+                return 31;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || (year % 400 == 0);
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Just enough JSON for the registration server and its client. Objects become
+// LinkedHashMap<String, Object>, arrays ArrayList<Object>, numbers Long or Double.
+public final class Json {
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    // Writes Maps, Iterables, Strings, Numbers, Booleans and null
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(value, out);
+        return out.toString();
+    }
+
+    private static void write(Object value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String) {
+            quote((String) value, out);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) out.append(',');
+                first = false;
+                quote(String.valueOf(entry.getKey()), out);
+                out.append(':');
+                write(entry.getValue(), out);
+            }
+            out.append('}');
+        } else if (value instanceof Iterable) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) out.append(',');
+                first = false;
+                write(element, out);
+            }
+            out.append(']');
+        } else {
+            throw new IllegalArgumentException("Cannot write " + value.getClass().getName() + " as JSON");
+        }
+    }
+
+    private static void quote(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': return readLiteral("true", Boolean.TRUE);
+            case 'f': return readLiteral("false", Boolean.FALSE);
+            case 'n': return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a string key");
+            }
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(key, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder value = new StringBuilder();
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escape = text.charAt(position++);
+            switch (escape) {
+                case '"': case '\\': case '/': value.append(escape); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Truncated \\u escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid \\u escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw error("Invalid escape \\" + escape);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private Object readNumber() {
+        int start = position;
+        if (peek() == '-') position++;
+        while (position < text.length() && "0123456789.eE+-".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                return Long.parseLong(number);
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error("Unexpected token");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
@@ -0,0 +1,301 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Students held in memory outside the Java heap, for keeping a whole dataset without
+// a StudentRecord and seven Strings (several hundred bytes of headers and pointers)
+// per row for the garbage collector to trace.
+//
+// Each student is a fixed-width slot in a direct buffer: the ID as a long
+// (StudentSnapshot.keyOf), the date of birth as an epoch day, one-byte codes for
+// gender and department, and offsets into a string arena (another direct buffer,
+// length-prefixed UTF-8) for the names, email and password hash. IDs are indexed by
+// an open-addressing table of longs, also off-heap; only IDs not in the year-counter
+// form fall back to a HashMap. The primitive accessors read a slot without creating
+// anything, and a StudentRecord is only built when asked for.
+//
+// One thread appends (appends and ID lookups are synchronized); scans may run
+// concurrently with appends and see the slots that existed when they started.
+public final class OffHeapStudentStore {
+
+    // key long, id ref, date of birth, first name, last name, email and hash refs,
+    // gender and department codes, padding
+    static final int SLOT_BYTES = 40;
+    private static final int KEY = 0;
+    private static final int ID = 8;
+    private static final int DATE = 12;
+    private static final int FIRST_NAME = 16;
+    private static final int LAST_NAME = 20;
+    private static final int EMAIL = 24;
+    private static final int HASH = 28;
+    private static final int GENDER = 32;
+    private static final int DEPARTMENT = 33;
+    private static final int NULL_REF = -1;
+    private static final int NULL_CODE = 0xFF;
+    // Index entries: key long, slot + 1 int (0 = empty), padding
+    private static final int ENTRY_BYTES = 16;
+
+    private volatile ByteBuffer slots;
+    private volatile ByteBuffer arena;
+    private volatile int size;
+    private int arenaSize;
+    private ByteBuffer index;
+    private int indexMask;
+    private int indexed;
+    private final Map<String, Integer> otherIds = new HashMap<>();
+    private volatile String[] genders = new String[0];
+    private volatile String[] departments = new String[0];
+
+    public OffHeapStudentStore() {
+        this(1024);
+    }
+
+    public OffHeapStudentStore(int expectedStudents) {
+        int capacity = Math.max(16, expectedStudents);
+        slots = allocate((long) capacity * SLOT_BYTES);
+        arena = allocate((long) capacity * 48);
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        index = allocate((long) tableSize * ENTRY_BYTES);
+        indexMask = tableSize - 1;
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("An off-heap student buffer is limited to 2 GB");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    // Adds a student and returns its slot. A repeated ID is found at the newest slot.
+    public synchronized int append(StudentRecord record) {
+        int slot = size;
+        if ((long) (slot + 1) * SLOT_BYTES > slots.capacity()) {
+            slots = grow(slots, (long) (slot + 1) * SLOT_BYTES, slot * SLOT_BYTES);
+        }
+        ByteBuffer target = slots;
+        int base = slot * SLOT_BYTES;
+        long key = StudentSnapshot.keyOf(record.getStudentId());
+        target.putLong(base + KEY, key);
+        target.putInt(base + ID, key < 0 ? putString(record.getStudentId()) : NULL_REF);
+        target.putInt(base + DATE, StudentSnapshot.epochDay(record.getDateOfBirth()));
+        target.putInt(base + FIRST_NAME, putString(record.getFirstName()));
+        target.putInt(base + LAST_NAME, putString(record.getLastName()));
+        target.putInt(base + EMAIL, putString(record.getEmail()));
+        target.putInt(base + HASH, putString(record.getPasswordHash()));
+        target.put(base + GENDER, code(record.getGender(), false));
+        target.put(base + DEPARTMENT, code(record.getDepartment(), true));
+        if (key < 0) {
+            otherIds.put(record.getStudentId(), slot);
+        } else {
+            indexPut(key, slot);
+        }
+        // Publishes the slot, and the buffers it was written to, to scanning threads
+        size = slot + 1;
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Slot of the ID, or -1
+    public synchronized int indexOf(String studentId) {
+        long key = StudentSnapshot.keyOf(studentId);
+        if (key < 0) {
+            Integer slot = otherIds.get(studentId);
+            return slot == null ? -1 : slot;
+        }
+        for (int i = mix(key) & indexMask; ; i = (i + 1) & indexMask) {
+            int slotPlusOne = index.getInt(i * ENTRY_BYTES + 8);
+            if (slotPlusOne == 0) {
+                return -1;
+            }
+            if (index.getLong(i * ENTRY_BYTES) == key) {
+                return slotPlusOne - 1;
+            }
+        }
+    }
+
+    public StudentRecord findById(String studentId) {
+        int slot = indexOf(studentId);
+        return slot < 0 ? null : get(slot);
+    }
+
+    // Every student in append order, each built as a StudentRecord
+    public void forEach(Consumer<StudentRecord> consumer) {
+        int count = size;
+        for (int slot = 0; slot < count; slot++) {
+            consumer.accept(get(slot));
+        }
+    }
+
+    public StudentRecord get(int slot) {
+        ByteBuffer data = slots;
+        int base = slot * SLOT_BYTES;
+        long key = data.getLong(base + KEY);
+        int date = data.getInt(base + DATE);
+        return new StudentRecord(key < 0 ? string(data.getInt(base + ID)) : StudentSnapshot.idOf(key),
+            string(data.getInt(base + FIRST_NAME)), string(data.getInt(base + LAST_NAME)),
+            code(genders, data.get(base + GENDER)), code(departments, data.get(base + DEPARTMENT)),
+            date == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(date).toString(),
+            string(data.getInt(base + EMAIL)), string(data.getInt(base + HASH)));
+    }
+
+    // Primitive accessors for scans. Codes index getGenders() and getDepartments();
+    // -1 stands for no value, as does Integer.MIN_VALUE for a date.
+
+    public int getYear(int slot) {
+        long key = slots.getLong(slot * SLOT_BYTES + KEY);
+        return key < 0 ? -1 : (int) (key >>> 32);
+    }
+
+    public int getCounter(int slot) {
+        long key = slots.getLong(slot * SLOT_BYTES + KEY);
+        return key < 0 ? -1 : (int) key;
+    }
+
+    public int getDateOfBirth(int slot) {
+        return slots.getInt(slot * SLOT_BYTES + DATE);
+    }
+
+    public int getGenderCode(int slot) {
+        int code = slots.get(slot * SLOT_BYTES + GENDER) & 0xFF;
+        return code == NULL_CODE ? -1 : code;
+    }
+
+    public int getDepartmentCode(int slot) {
+        int code = slots.get(slot * SLOT_BYTES + DEPARTMENT) & 0xFF;
+        return code == NULL_CODE ? -1 : code;
+    }
+
+    public String[] getGenders() {
+        return genders.clone();
+    }
+
+    public String[] getDepartments() {
+        return departments.clone();
+    }
+
+    // Off-heap bytes held, including unused capacity
+    public long allocatedBytes() {
+        return (long) slots.capacity() + arena.capacity() + index.capacity();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, long needed, int used) {
+        ByteBuffer larger = allocate(Math.max(needed, Math.min(Integer.MAX_VALUE, buffer.capacity() * 2L)));
+        larger.put(0, buffer, 0, used);
+        return larger;
+    }
+
+    private int putString(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long needed = (long) arenaSize + bytes.length + 5;
+        if (needed > arena.capacity()) {
+            arena = grow(arena, needed, arenaSize);
+        }
+        ByteBuffer target = arena;
+        int ref = arenaSize;
+        int length = bytes.length;
+        while (length >= 0x80) {
+            target.put(arenaSize++, (byte) (length | 0x80));
+            length >>>= 7;
+        }
+        target.put(arenaSize++, (byte) length);
+        target.put(arenaSize, bytes);
+        arenaSize += bytes.length;
+        return ref;
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer data = arena;
+        int position = ref;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data.get(position++);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        byte[] bytes = new byte[length];
+        data.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte code(String value, boolean department) {
+        if (value == null) {
+            return (byte) NULL_CODE;
+        }
+        String[] dictionary = department ? departments : genders;
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                return (byte) i;
+            }
+        }
+        if (dictionary.length == NULL_CODE) {
+            throw new IllegalArgumentException("Too many distinct values for an off-heap code: " + value);
+        }
+        List<String> added = new ArrayList<>(List.of(dictionary));
+        added.add(value);
+        if (department) {
+            departments = added.toArray(new String[0]);
+        } else {
+            genders = added.toArray(new String[0]);
+        }
+        return (byte) dictionary.length;
+    }
+
+    private static String code(String[] dictionary, byte code) {
+        return (code & 0xFF) == NULL_CODE ? null : dictionary[code & 0xFF];
+    }
+
+    private void indexPut(long key, int slot) {
+        if (indexed * 2 >= indexMask + 1) {
+            rehash();
+        }
+        for (int i = mix(key) & indexMask; ; i = (i + 1) & indexMask) {
+            int slotPlusOne = index.getInt(i * ENTRY_BYTES + 8);
+            if (slotPlusOne == 0) {
+                index.putLong(i * ENTRY_BYTES, key);
+                index.putInt(i * ENTRY_BYTES + 8, slot + 1);
+                indexed++;
+                return;
+            }
+            if (index.getLong(i * ENTRY_BYTES) == key) {
+                index.putInt(i * ENTRY_BYTES + 8, slot + 1);
+                return;
+            }
+        }
+    }
+
+    private void rehash() {
+        ByteBuffer old = index;
+        int oldSize = indexMask + 1;
+        index = allocate((long) oldSize * 2 * ENTRY_BYTES);
+        indexMask = oldSize * 2 - 1;
+        indexed = 0;
+        for (int i = 0; i < oldSize; i++) {
+            int slotPlusOne = old.getInt(i * ENTRY_BYTES + 8);
+            if (slotPlusOne != 0) {
+                indexPut(old.getLong(i * ENTRY_BYTES), slotPlusOne - 1);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
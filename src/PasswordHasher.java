@@ -0,0 +1,152 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Salted PBKDF2-HMAC-SHA256 password hashes, stored as
+// "pbkdf2-sha256$<iterations>$<salt>$<hash>" (base64, no padding) so the work factor
+// can be raised later without breaking older hashes.
+//
+// A hash takes tens to hundreds of milliseconds on purpose, so hashAsync() runs it on
+// a fixed pool of one thread per core with a bounded queue; a full queue rejects the
+// task rather than letting registrations pile up. The iteration count is either
+// given with -Dstudent.password.iterations or calibrated on the pool, before the
+// first hash, to take -Dstudent.password.targetMs (default 100) on this machine.
+public final class PasswordHasher implements AutoCloseable {
+
+    static final String ITERATIONS_PROPERTY = "student.password.iterations";
+    static final String TARGET_PROPERTY = "student.password.targetMs";
+    static final int DEFAULT_TARGET_MS = 100;
+    // Calibration never goes below this, however slow the machine
+    static final int MIN_ITERATIONS = 100_000;
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final RegistrationMetrics.Histogram HASH_TIME = RegistrationMetrics.global().histogram("password.hash");
+
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor pool;
+    private final CompletableFuture<Integer> iterations;
+
+    // From the system properties above, one thread per core
+    public static PasswordHasher create() {
+        Integer fixed = Integer.getInteger(ITERATIONS_PROPERTY);
+        return new PasswordHasher(Runtime.getRuntime().availableProcessors(),
+            fixed != null ? fixed : 0, Integer.getInteger(TARGET_PROPERTY, DEFAULT_TARGET_MS));
+    }
+
+    // iterations is the work factor to use, or 0 to calibrate for targetMillis
+    public PasswordHasher(int threads, int iterations, long targetMillis) {
+        AtomicInteger count = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), task -> {
+                Thread thread = new Thread(task, "password-hasher-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.iterations = iterations > 0
+            ? CompletableFuture.completedFuture(iterations)
+            : CompletableFuture.supplyAsync(() -> calibrate(targetMillis), pool);
+    }
+
+    // The work factor new hashes use; waits for calibration
+    public int getIterations() {
+        return iterations.join();
+    }
+
+    // Hashes on the pool and clears the password afterwards; the array now belongs to
+    // the hasher. Throws RejectedExecutionException when the queue is full or the
+    // hasher is closed, leaving the password to the caller.
+    public CompletableFuture<String> hashAsync(char[] password) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return hash(password, iterations.join());
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        }, pool);
+    }
+
+    // Hashes on the calling thread with a given work factor
+    public String hash(char[] password, int iterations) {
+        long start = System.nanoTime();
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        HASH_TIME.recordSince(start);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    // True if the password produces the stored hash; false for anything unparseable
+    public static boolean verify(char[] password, String stored) {
+        String[] parts = stored == null ? new String[0] : stored.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return iterations > 0 && MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Warms up the JIT, times a fixed work factor and scales it to targetMillis, rounded
+    // to a thousand and kept between MIN_ITERATIONS and MAX_ITERATIONS
+    static int calibrate(long targetMillis) {
+        char[] password = "calibration".toCharArray();
+        byte[] salt = new byte[SALT_BYTES];
+        int probe = 20_000;
+        for (int i = 0; i < 10; i++) {
+            pbkdf2(password, salt, probe);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            pbkdf2(password, salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long scaled = probe * TimeUnit.MILLISECONDS.toNanos(targetMillis) / Math.max(1, best);
+        int calibrated = (int) Math.min(MAX_ITERATIONS, Math.max(MIN_ITERATIONS, scaled / 1000 * 1000));
+        System.out.println("Password hashing: " + calibrated + " PBKDF2 iterations for about " + targetMillis + " ms");
+        return calibrated;
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Every Java 8+ runtime has PBKDF2WithHmacSHA256
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // Finishes the hashes already queued, then stops the threads
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
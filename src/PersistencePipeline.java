@@ -0,0 +1,500 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Persists accepted registrations on a background thread so the Swing EDT never
+// waits on file or database I/O. Records are grouped into write-behind batches that
+// are flushed when either the size or the time threshold is reached, and completion
+// callbacks are delivered on the EDT unless another executor is given.
+//
+// With a RegistrationJournal, each batch is journaled before any sink sees it and a
+// record counts as saved once it is in the journal. A sink that cannot take a batch
+// at all (the database is down, say) falls behind its journal checkpoint and is
+// caught up from the journal on a later batch, when the worker is idle, or by
+// replayJournal() at the next startup. Rows a sink rejects for their own reasons (a
+// duplicate key, say) are reported and logged but not retried, so they never hold
+// back the rows after them.
+public class PersistencePipeline {
+
+    public interface RecordSink {
+        String getName();
+
+        void save(StudentRecord record) throws Exception;
+
+        // Saves a batch, recording a failure message in failures for each row the sink
+        // rejects (null = saved). A sink that cannot take rows at all, because a file or
+        // the database is unavailable, throws instead, and no row counts as saved. Sinks
+        // that can write a batch more cheaply than row by row override this.
+        default void saveAll(List<StudentRecord> records, String[] failures) throws IOException {
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    save(records.get(i));
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    failures[i] = e.getMessage();
+                }
+            }
+        }
+    }
+
+    // A sink that appends rows to a file. Its position is saved with its journal
+    // checkpoint, and before it is caught up anything written after that position is
+    // cut off, so rows applied just before a crash or a failed write are not written
+    // a second time.
+    public interface PositionedSink extends RecordSink {
+        // Where the next row will be written
+        long position() throws IOException;
+
+        // Cuts the file back to position if all that follows it is rows with these
+        // IDs, in order (the last possibly torn). Returns false and changes nothing if
+        // something else was written there.
+        boolean truncate(long position, List<String> studentIds) throws IOException;
+    }
+
+    public interface CompletionListener {
+        // saved: the record is in the journal or, without one, in at least one sink.
+        // failures: one message per sink the record has not reached.
+        void onComplete(StudentRecord record, boolean saved, List<String> failures);
+    }
+
+    private static final class Task {
+        final StudentRecord record;
+        final CompletionListener listener;
+        final long queuedNanos = System.nanoTime();
+
+        Task(StudentRecord record, CompletionListener listener) {
+            this.record = record;
+            this.listener = listener;
+        }
+    }
+
+    private static final Task SHUTDOWN = new Task(null, null);
+    private static final long RETRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int REPLAY_BATCH_SIZE = 500;
+    // Checkpoints are saved once this long has passed or this many entries have been
+    // journaled since the last save, rather than after every batch; entries applied
+    // after the saved checkpoint are applied again after a crash, which sinks tolerate
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long CHECKPOINT_ENTRIES = 1000;
+
+    private static final RegistrationMetrics METRICS = RegistrationMetrics.global();
+    // How long records wait in the queue before their batch is written
+    private static final RegistrationMetrics.Histogram QUEUE_WAIT = METRICS.histogram("pipeline.queue_wait");
+    private static final RegistrationMetrics.Histogram JOURNAL_APPEND = METRICS.histogram("journal.append");
+    private static final RegistrationMetrics.Counter JOURNAL_ERRORS = METRICS.counter("journal.errors");
+
+    private final BlockingQueue<Task> queue;
+    private final List<RecordSink> sinks;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final RegistrationJournal journal;
+    private final Executor callbackExecutor;
+    // When each sink that is behind the journal may next be retried; guarded by journal
+    private final Map<String, Long> retryAt = new HashMap<>();
+    // Whether a checkpoint moved since the last save, and when and at what journal
+    // sequence that was; guarded by journal
+    private boolean checkpointDirty;
+    private long checkpointSavedNanos = System.nanoTime();
+    private long checkpointSavedSequence;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    public PersistencePipeline(int capacity, List<RecordSink> sinks) {
+        this(capacity, sinks, 1, 0, TimeUnit.MILLISECONDS, null);
+    }
+
+    public PersistencePipeline(int capacity, List<RecordSink> sinks,
+                               int maxBatchSize, long maxBatchDelay, TimeUnit unit) {
+        this(capacity, sinks, maxBatchSize, maxBatchDelay, unit, null);
+    }
+
+    // journal may be null, in which case records go straight to the sinks
+    public PersistencePipeline(int capacity, List<RecordSink> sinks, int maxBatchSize, long maxBatchDelay,
+                               TimeUnit unit, RegistrationJournal journal) {
+        this(capacity, sinks, maxBatchSize, maxBatchDelay, unit, journal, SwingUtilities::invokeLater);
+    }
+
+    // Completion callbacks run on callbackExecutor; Runnable::run runs them on the worker
+    public PersistencePipeline(int capacity, List<RecordSink> sinks, int maxBatchSize, long maxBatchDelay,
+                               TimeUnit unit, RegistrationJournal journal, Executor callbackExecutor) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sinks = new ArrayList<>(sinks);
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = unit.toNanos(maxBatchDelay);
+        this.journal = journal;
+        this.callbackExecutor = callbackExecutor;
+        if (journal != null) {
+            for (RecordSink sink : this.sinks) {
+                journal.register(sink.getName());
+            }
+        }
+        METRICS.gauge("pipeline.pending", this::getPendingCount);
+        this.worker = new Thread(this::runWorker, "student-persistence");
+        this.worker.start();
+    }
+
+    // Applies every journal entry the sinks have not applied yet, e.g. after a crash.
+    // Meant for startup, before records are submitted; safe to call at any time.
+    public void replayJournal() {
+        if (journal == null) {
+            return;
+        }
+        synchronized (journal) {
+            for (RecordSink sink : sinks) {
+                long before = journal.getApplied(sink.getName());
+                long after = catchUp(sink, true);
+                if (after > before) {
+                    System.out.println("Replayed " + (after - before) + " journal entries to " + sink.getName());
+                }
+            }
+            saveCheckpoint();
+        }
+    }
+
+    public boolean hasCapacity() {
+        return !closed && queue.remainingCapacity() > 0;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    // Returns false without blocking when the queue is full or the pipeline is closed.
+    // The check and the offer are one step under the lock close() sets closed with, so
+    // nothing is queued behind the shutdown marker, where it would never be saved.
+    public boolean submit(StudentRecord record, CompletionListener listener) {
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            return queue.offer(new Task(record, listener));
+        }
+    }
+
+    // Stops accepting new records and waits until everything already queued is persisted.
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            // The worker keeps draining while we wait for room for the shutdown marker
+            queue.put(SHUTDOWN);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker() {
+        List<Task> batch = new ArrayList<>(maxBatchSize);
+        boolean running = true;
+        while (running) {
+            running = collectBatch(batch);
+            if (!batch.isEmpty()) {
+                persist(batch);
+                batch.clear();
+            } else if (journal != null) {
+                retryLaggingSinks();
+                saveCheckpointIfDue();
+            }
+        }
+        if (journal != null) {
+            synchronized (journal) {
+                if (checkpointDirty) {
+                    saveCheckpoint();
+                }
+            }
+        }
+    }
+
+    // Blocks for the first task, then keeps collecting until the batch is full or the
+    // delay since the first task has elapsed. Returns false once shutdown is reached;
+    // anything collected before the marker is still flushed by the caller. With a
+    // journal, gives up waiting for a first task after the retry interval so sinks
+    // that are behind get caught up while nobody is registering, and sooner when an
+    // unsaved checkpoint falls due.
+    private boolean collectBatch(List<Task> batch) {
+        long deadline = 0;
+        while (batch.size() < maxBatchSize) {
+            Task task;
+            try {
+                if (batch.isEmpty()) {
+                    task = journal == null ? queue.take() : queue.poll(idleWaitNanos(), TimeUnit.NANOSECONDS);
+                    if (task == null) {
+                        return true;
+                    }
+                    deadline = System.nanoTime() + maxBatchDelayNanos;
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    task = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (task == null) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Interrupts are ignored so that accepted records are never dropped
+                continue;
+            }
+            if (task == SHUTDOWN) {
+                return false;
+            }
+            batch.add(task);
+        }
+        return true;
+    }
+
+    private long idleWaitNanos() {
+        synchronized (journal) {
+            if (!checkpointDirty) {
+                return RETRY_INTERVAL_NANOS;
+            }
+            return Math.max(0, checkpointSavedNanos + CHECKPOINT_INTERVAL_NANOS - System.nanoTime());
+        }
+    }
+
+    private void persist(List<Task> batch) {
+        List<StudentRecord> records = new ArrayList<>(batch.size());
+        long now = System.nanoTime();
+        for (Task task : batch) {
+            records.add(task.record);
+            QUEUE_WAIT.record(now - task.queuedNanos);
+        }
+
+        List<List<String>> failures = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            failures.add(new ArrayList<>());
+        }
+
+        boolean journaled = false;
+        if (journal != null) {
+            try {
+                long appendStart = System.nanoTime();
+                long last = journal.append(records);
+                JOURNAL_APPEND.recordSince(appendStart);
+                journaled = true;
+                applyJournaled(records, last - records.size() + 1, failures);
+            } catch (IOException e) {
+                JOURNAL_ERRORS.increment();
+                System.err.println("Failed to journal " + records.size() + " record(s): " + e.getMessage());
+                for (List<String> recordFailures : failures) {
+                    recordFailures.add("Journal: " + e.getMessage());
+                }
+            }
+        } else {
+            for (RecordSink sink : sinks) {
+                String[] sinkFailures = new String[records.size()];
+                saveToSink(sink, records, sinkFailures);
+                for (int i = 0; i < sinkFailures.length; i++) {
+                    if (sinkFailures[i] != null) {
+                        failures.get(i).add(sink.getName() + ": " + sinkFailures[i]);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            if (task.listener != null) {
+                List<String> result = Collections.unmodifiableList(failures.get(i));
+                boolean saved = journaled || result.size() < sinks.size();
+                callbackExecutor.execute(() -> task.listener.onComplete(task.record, saved, result));
+            }
+        }
+    }
+
+    // Hands a journaled batch (sequence numbers first..) to every sink that is up to
+    // date; sinks that are behind are caught up from the journal instead, if due
+    private void applyJournaled(List<StudentRecord> records, long first, List<List<String>> failures) {
+        long last = first + records.size() - 1;
+        synchronized (journal) {
+            for (RecordSink sink : sinks) {
+                String name = sink.getName();
+                if (journal.getApplied(name) == first - 1) {
+                    String[] sinkFailures = new String[records.size()];
+                    String unavailable = saveToSink(sink, records, sinkFailures);
+                    if (unavailable == null) {
+                        // Rows the sink rejected individually are reported, not retried
+                        setApplied(sink, last);
+                    } else {
+                        retryAt.put(name, System.nanoTime() + RETRY_INTERVAL_NANOS);
+                    }
+                    for (int i = 0; i < sinkFailures.length; i++) {
+                        if (unavailable != null) {
+                            failures.get(i).add(name + ": " + unavailable + " (will be retried)");
+                        } else if (sinkFailures[i] != null) {
+                            failures.get(i).add(name + ": " + sinkFailures[i]);
+                        }
+                    }
+                } else if (catchUp(sink, false) < last) {
+                    for (List<String> recordFailures : failures) {
+                        recordFailures.add(name + ": behind the journal, will be retried");
+                    }
+                }
+            }
+            saveCheckpointIfDue();
+        }
+    }
+
+    private void retryLaggingSinks() {
+        synchronized (journal) {
+            if (retryAt.isEmpty()) {
+                return;
+            }
+            for (RecordSink sink : sinks) {
+                if (retryAt.containsKey(sink.getName())) {
+                    catchUp(sink, false);
+                }
+            }
+            saveCheckpoint();
+        }
+    }
+
+    // Applies the journal entries after the sink's checkpoint in batches, stopping at a
+    // batch the sink cannot take; rows it rejects are logged and skipped. Unless
+    // forced, does nothing before the sink's retry time. Returns the sink's checkpoint
+    // afterwards. Caller holds the journal lock.
+    private long catchUp(RecordSink sink, boolean force) {
+        String name = sink.getName();
+        Long due = retryAt.get(name);
+        if (!force && due != null && System.nanoTime() - due < 0) {
+            return journal.getApplied(name);
+        }
+        try {
+            if (sink instanceof PositionedSink) {
+                rewind((PositionedSink) sink);
+            }
+            journal.readAfter(journal.getApplied(name), REPLAY_BATCH_SIZE, entries -> {
+                List<StudentRecord> records = new ArrayList<>(entries.size());
+                for (RegistrationJournal.Entry entry : entries) {
+                    records.add(entry.record);
+                }
+                if (saveToSink(sink, records, new String[records.size()]) != null) {
+                    return false;
+                }
+                setApplied(sink, entries.get(entries.size() - 1).sequence);
+                return true;
+            });
+        } catch (IOException e) {
+            System.err.println("Could not read the journal to catch up " + name + ": " + e.getMessage());
+        }
+        long applied = journal.getApplied(name);
+        if (applied < journal.getLastSequence()) {
+            retryAt.put(name, System.nanoTime() + RETRY_INTERVAL_NANOS);
+        } else {
+            retryAt.remove(name);
+        }
+        return applied;
+    }
+
+    // Cuts off whatever the sink holds past the position saved with its checkpoint, if
+    // that is the start of the entries about to be applied again
+    private void rewind(PositionedSink sink) throws IOException {
+        String name = sink.getName();
+        long position = journal.getPosition(name);
+        if (position < 0 || sink.position() == position) {
+            return;
+        }
+        List<String> studentIds = new ArrayList<>();
+        journal.readAfter(journal.getApplied(name), REPLAY_BATCH_SIZE, entries -> {
+            for (RegistrationJournal.Entry entry : entries) {
+                studentIds.add(entry.record.getStudentId());
+            }
+            return true;
+        });
+        if (sink.truncate(position, studentIds)) {
+            System.out.println("Cut " + name + " back to its journal checkpoint before catching it up");
+        } else {
+            System.err.println(name + " does not continue with the entries after its journal checkpoint;"
+                + " catching it up without cutting it back");
+        }
+    }
+
+    // Moves the sink's checkpoint, with its position if it has one
+    private void setApplied(RecordSink sink, long sequence) {
+        long position = -1;
+        if (sink instanceof PositionedSink) {
+            try {
+                position = ((PositionedSink) sink).position();
+            } catch (IOException e) {
+                System.err.println("Could not read the position of " + sink.getName() + ": " + e.getMessage());
+            }
+        }
+        journal.setApplied(sink.getName(), sequence, position);
+        checkpointDirty = true;
+    }
+
+    // Saves the checkpoint if it moved and the interval has passed or enough entries
+    // have been journaled since the last save
+    private void saveCheckpointIfDue() {
+        synchronized (journal) {
+            if (checkpointDirty && (System.nanoTime() - checkpointSavedNanos >= CHECKPOINT_INTERVAL_NANOS
+                    || journal.getLastSequence() - checkpointSavedSequence >= CHECKPOINT_ENTRIES)) {
+                saveCheckpoint();
+            }
+        }
+    }
+
+    // Caller holds the journal lock
+    private void saveCheckpoint() {
+        try {
+            journal.saveCheckpoint();
+        } catch (IOException e) {
+            // Only costs re-applying some entries after a restart
+            System.err.println("Could not save the journal checkpoint: " + e.getMessage());
+        }
+        checkpointDirty = false;
+        checkpointSavedNanos = System.nanoTime();
+        checkpointSavedSequence = journal.getLastSequence();
+    }
+
+    // Runs sink.saveAll, filling sinkFailures with the rows it rejected. Returns null if
+    // the sink took the batch, otherwise why it could not (an unexpected exception
+    // counts as that too), and then every row is failed with that message. Records the
+    // batch's time as sink.<name>.write and counts rows saved and failed.
+    private static String saveToSink(RecordSink sink, List<StudentRecord> records, String[] sinkFailures) {
+        String unavailable = null;
+        long start = System.nanoTime();
+        try {
+            sink.saveAll(records, sinkFailures);
+        } catch (IOException e) {
+            unavailable = e.getMessage();
+        } catch (RuntimeException e) {
+            unavailable = e.toString();
+        }
+        String metric = "sink." + sink.getName();
+        METRICS.histogram(metric + ".write").recordSince(start);
+        int failed = 0;
+        if (unavailable != null) {
+            Arrays.fill(sinkFailures, unavailable);
+            failed = sinkFailures.length;
+            System.err.println("Could not save " + records.size() + " record(s) to " + sink.getName()
+                + ": " + unavailable);
+        } else {
+            for (int i = 0; i < sinkFailures.length; i++) {
+                if (sinkFailures[i] != null) {
+                    failed++;
+                    System.err.println(sink.getName() + " rejected " + records.get(i).getStudentId()
+                        + ", skipping it: " + sinkFailures[i]);
+                }
+            }
+        }
+        METRICS.counter(metric + ".saved").add(sinkFailures.length - failed);
+        if (failed > 0) {
+            METRICS.counter(metric + ".errors").add(failed);
+        }
+        return unavailable;
+    }
+}
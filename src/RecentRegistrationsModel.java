@@ -0,0 +1,82 @@
+import javax.swing.AbstractListModel;
+import javax.swing.Timer;
+import java.util.ArrayDeque;
+
+// The form's list of recent registrations: a ring buffer of the last `capacity`
+// entries, oldest first, dropping the oldest when full. add() only queues the entry;
+// queued entries are moved into the list and the list is told about them together at
+// most every FLUSH_DELAY_MS, so a burst of saves is one relayout instead of one per
+// record. EDT only.
+public class RecentRegistrationsModel extends AbstractListModel<String> {
+
+    static final int FLUSH_DELAY_MS = 100;
+
+    private final String[] entries;
+    // Index of the oldest entry
+    private int head;
+    private int size;
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private final Timer flushTimer;
+
+    public RecentRegistrationsModel(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        entries = new String[capacity];
+        flushTimer = new Timer(FLUSH_DELAY_MS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public void add(String entry) {
+        // Anything beyond a full list would be evicted by the flush anyway
+        if (pending.size() == entries.length) {
+            pending.removeFirst();
+        }
+        pending.addLast(entry);
+        if (!flushTimer.isRunning()) {
+            flushTimer.start();
+        }
+    }
+
+    // Moves the queued entries into the list now and notifies listeners once
+    public void flush() {
+        flushTimer.stop();
+        if (pending.isEmpty()) {
+            return;
+        }
+        int oldSize = size;
+        boolean evicted = false;
+        while (!pending.isEmpty()) {
+            String entry = pending.removeFirst();
+            if (size < entries.length) {
+                entries[(head + size) % entries.length] = entry;
+                size++;
+            } else {
+                entries[head] = entry;
+                head = (head + 1) % entries.length;
+                evicted = true;
+            }
+        }
+        if (size > oldSize) {
+            fireIntervalAdded(this, oldSize, size - 1);
+        }
+        if (evicted && oldSize > 0) {
+            // Dropping the oldest shifts every entry up
+            fireContentsChanged(this, 0, oldSize - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return entries[(head + index) % entries.length];
+    }
+}
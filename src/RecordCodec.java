@@ -0,0 +1,71 @@
+import java.nio.charset.StandardCharsets;
+
+// Binary form of a StudentRecord used by StudentLogFile and RegistrationJournal: the
+// fields in StudentRecord order, each as an unsigned short byte length followed by
+// UTF-8 bytes, with an empty password hash standing for none. Entries written before
+// password hashes were stored end after the email. An instance holds a reusable
+// encode buffer and is not thread-safe.
+final class RecordCodec {
+
+    static final int MAX_FIELD_BYTES = 0xFFFF;
+    private static final int FIELDS = 8;
+    // Fields every entry has; older entries have no password hash
+    private static final int REQUIRED_FIELDS = 7;
+
+    private byte[] bytes = new byte[512];
+    private int length;
+
+    // Encodes the record after `reserved` leading bytes the caller fills in itself.
+    // Returns false, leaving the buffer undefined, if a field is too long.
+    boolean encode(StudentRecord record, int reserved) {
+        length = reserved;
+        ensureCapacity(reserved);
+        return put(record.getStudentId()) && put(record.getFirstName()) && put(record.getLastName())
+            && put(record.getGender()) && put(record.getDepartment()) && put(record.getDateOfBirth())
+            && put(record.getEmail()) && put(record.getPasswordHash());
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    // Decodes the entry in data[offset, end)
+    static StudentRecord decode(byte[] data, int offset, int end) {
+        String[] fields = new String[FIELDS];
+        int position = offset;
+        for (int i = 0; i < FIELDS && (i < REQUIRED_FIELDS || position < end); i++) {
+            int fieldLength = ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+            position += 2;
+            fields[i] = new String(data, position, fieldLength, StandardCharsets.UTF_8);
+            position += fieldLength;
+        }
+        String passwordHash = fields[7] == null || fields[7].isEmpty() ? null : fields[7];
+        return new StudentRecord(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6],
+            passwordHash);
+    }
+
+    private boolean put(String field) {
+        byte[] encoded = (field == null ? "" : field).getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > MAX_FIELD_BYTES) {
+            return false;
+        }
+        ensureCapacity(length + 2 + encoded.length);
+        bytes[length++] = (byte) (encoded.length >>> 8);
+        bytes[length++] = (byte) encoded.length;
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (bytes.length < capacity) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, capacity)];
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+        }
+    }
+}
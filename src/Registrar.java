@@ -0,0 +1,8 @@
+// Where the form sends registrations: a local RegistrationService, or a
+// RegistrationClient talking to a RegistrationServer.
+public interface Registrar {
+
+    // The returned Submission says whether the registration was accepted; the listener
+    // is told once an accepted registration has been saved (or could not be).
+    Submission submit(RegistrationRequest request, PersistencePipeline.CompletionListener listener);
+}
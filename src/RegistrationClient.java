@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sends registrations to a RegistrationServer instead of saving them locally. submit()
+// blocks until the server has journaled the registration, so call it off the EDT; the
+// listener runs on the calling thread before submit() returns.
+public class RegistrationClient implements Registrar {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    // Longer than the server's own wait for the journal
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(40);
+    // Round trip to the server, including the server's wait for the journal
+    private static final RegistrationMetrics.Histogram REQUEST_TIME =
+        RegistrationMetrics.global().histogram("client.request");
+    private static final RegistrationMetrics.Counter REQUEST_ERRORS =
+        RegistrationMetrics.global().counter("client.errors");
+
+    private final URI studentsUri;
+    private final HttpClient http;
+
+    public RegistrationClient(String serverUrl) {
+        String base = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+        this.studentsUri = URI.create(base.endsWith("/students") ? base : base + "/students");
+        this.http = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+    }
+
+    public URI getUri() {
+        return studentsUri;
+    }
+
+    @Override
+    public Submission submit(RegistrationRequest request, PersistencePipeline.CompletionListener listener) {
+        HttpResponse<String> response;
+        long start = System.nanoTime();
+        try {
+            response = http.send(HttpRequest.newBuilder(studentsUri)
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json; charset=utf-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(toJson(request), StandardCharsets.UTF_8))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            REQUEST_ERRORS.increment();
+            return Submission.failed(Submission.Status.FAILED,
+                "Could not reach the registration server at " + studentsUri + ": "
+                + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Submission.failed(Submission.Status.FAILED, "Interrupted while contacting the registration server");
+        } finally {
+            request.clearPasswords();
+            REQUEST_TIME.recordSince(start);
+        }
+
+        Map<String, Object> body;
+        try {
+            body = Json.parseObject(response.body());
+        } catch (IllegalArgumentException e) {
+            return Submission.failed(Submission.Status.FAILED,
+                "Unexpected response from the registration server (HTTP " + response.statusCode() + ")");
+        }
+
+        switch (response.statusCode()) {
+            case 201:
+            case 202: {
+                StudentRecord record = toRecord(body);
+                List<String> pending = response.statusCode() == 201
+                    ? strings(body.get("pending"))
+                    : Collections.singletonList("Server: still saving");
+                if (listener != null) {
+                    listener.onComplete(record, true, pending);
+                }
+                return Submission.queued(record);
+            }
+            case 409:
+                return Submission.duplicateEmail((String) body.get("studentId"));
+            case 422:
+                return Submission.invalid(((Number) body.get("validationResult")).intValue());
+            case 503:
+                return Submission.failed(Submission.Status.BUSY, (String) body.get("message"));
+            default:
+                return Submission.failed(Submission.Status.FAILED,
+                    "Registration server error (HTTP " + response.statusCode() + "): " + body.get("message"));
+        }
+    }
+
+    private static String toJson(RegistrationRequest request) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("firstName", request.getFirstName());
+        json.put("lastName", request.getLastName());
+        json.put("email", request.getEmail());
+        json.put("confirmEmail", request.getConfirmEmail());
+        json.put("password", new String(request.getPassword()));
+        json.put("confirmPassword", new String(request.getConfirmPassword()));
+        json.put("dateOfBirth", request.getDateOfBirth() == null ? null : request.getDateOfBirth().toString());
+        json.put("gender", request.getGender());
+        json.put("department", request.getDepartment());
+        return Json.write(json);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StudentRecord toRecord(Map<String, Object> body) {
+        Map<String, Object> record = (Map<String, Object>) body.get("record");
+        return new StudentRecord((String) record.get("studentId"), (String) record.get("firstName"),
+            (String) record.get("lastName"), (String) record.get("gender"), (String) record.get("department"),
+            (String) record.get("dateOfBirth"), (String) record.get("email"));
+    }
+
+    private static List<String> strings(Object array) {
+        List<String> strings = new ArrayList<>();
+        if (array instanceof List) {
+            for (Object element : (List<?>) array) {
+                strings.add(String.valueOf(element));
+            }
+        }
+        return strings;
+    }
+}
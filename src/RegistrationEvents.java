@@ -0,0 +1,301 @@
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// In-process bus for what happens to registrations, so that more consumers (the
+// search index, an audit log, an export) can follow them without adding to the time
+// a submit takes.
+//
+// Events go into a ring buffer of preallocated slots, as in the LMAX Disruptor. A
+// publisher claims a sequence number with an atomic increment (submit() runs on
+// several threads in a server), fills the slot and publishes it with a volatile
+// write. Each subscriber has a thread of its own that copies the slots in sequence
+// without locking and hands them over in batches of up to maxBatch. A subscriber
+// with nothing to read parks until a publisher wakes it.
+//
+// Publishing never waits for a subscriber, and the slots are reused regardless. A
+// subscriber that falls a whole ring behind finds the slots it had not read yet
+// overwritten: it is told how many events it missed through onMissed and carries on
+// with those published after that, while the others lose nothing. A slot is marked
+// as being written before its fields change and checked again after they are
+// copied, so a copy is never half of one event and half of the next.
+//
+// The Event handed to a subscriber is its own copy, reused for its next batch: copy
+// out what you need to keep.
+public final class RegistrationEvents implements AutoCloseable {
+
+    public enum Type {
+        // Saved; getRecord() is the record without its password hash
+        STUDENT_REGISTERED,
+        // Refused by submit() (getRecord() is null) or not saved; see getStatus()
+        REGISTRATION_REJECTED
+    }
+
+    public static final class Event {
+        // `published` while a publisher is filling in the slot
+        private static final long WRITING = -1;
+
+        private Type type;
+        private StudentRecord record;
+        private String email;
+        private Submission.Status status;
+        private String reason;
+        private long publishedNanos;
+        private long sequence;
+        // The sequence this slot holds once published; written last
+        private volatile long published = WRITING;
+
+        public Type getType() {
+            return type;
+        }
+
+        public StudentRecord getRecord() {
+            return record;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        // QUEUED for a registration; why it was refused otherwise
+        public Submission.Status getStatus() {
+            return status;
+        }
+
+        // The failure messages, if any
+        public String getReason() {
+            return reason;
+        }
+
+        // System.nanoTime() when it was published
+        public long getPublishedNanos() {
+            return publishedNanos;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        // Copies the slot into `copy` if it holds the event `expected`, complete
+        private boolean copyTo(Event copy, long expected) {
+            if (published != expected) {
+                return false;
+            }
+            copy.type = type;
+            copy.record = record;
+            copy.email = email;
+            copy.status = status;
+            copy.reason = reason;
+            copy.publishedNanos = publishedNanos;
+            copy.sequence = sequence;
+            // The fields are read before `published` is looked at again
+            VarHandle.loadLoadFence();
+            return published == expected;
+        }
+    }
+
+    public interface Subscriber {
+        // Events in publication order. An exception is reported and the batch skipped.
+        void onEvents(List<Event> events) throws Exception;
+
+        // The subscriber fell a whole ring behind and the next `count` events were
+        // overwritten before it read them; the ones after follow. Anything kept in step
+        // with the events should be rebuilt from its source.
+        default void onMissed(long count) throws Exception {
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final RegistrationMetrics METRICS = RegistrationMetrics.global();
+    private static final RegistrationMetrics.Counter PUBLISHED = METRICS.counter("events.published");
+    // Events a subscriber missed, once per subscriber that missed them
+    private static final RegistrationMetrics.Counter MISSED = METRICS.counter("events.missed");
+
+    private final class SubscriberThread implements Runnable {
+        private final String name;
+        private final int maxBatch;
+        private final Subscriber subscriber;
+        // From publication to the end of the batch the event was handed over in
+        private final RegistrationMetrics.Histogram latency;
+        private final Thread thread;
+        // What the batches are copied into
+        private final Event[] copies;
+        private final long start;
+        private volatile boolean waiting;
+
+        SubscriberThread(String name, int maxBatch, Subscriber subscriber, long start) {
+            this.name = name;
+            this.maxBatch = maxBatch;
+            this.subscriber = subscriber;
+            this.latency = METRICS.histogram("events." + name + ".latency");
+            this.start = start;
+            this.copies = new Event[maxBatch];
+            for (int i = 0; i < maxBatch; i++) {
+                copies[i] = new Event();
+            }
+            this.thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Event> batch = new ArrayList<>(maxBatch);
+            long sequence = start;
+            while (true) {
+                long missed = 0;
+                while (batch.size() < maxBatch) {
+                    long expected = sequence + batch.size();
+                    if (slots[(int) expected & mask].copyTo(copies[batch.size()], expected)) {
+                        batch.add(copies[batch.size()]);
+                        continue;
+                    }
+                    // Not published yet, unless its slot has been claimed for a later event
+                    long claimed = next.get();
+                    if (claimed > expected + slots.length) {
+                        missed = claimed - expected;
+                    }
+                    break;
+                }
+                if (batch.isEmpty() && missed == 0) {
+                    if (closed) {
+                        return;
+                    }
+                    await(sequence);
+                    continue;
+                }
+                if (!batch.isEmpty()) {
+                    handle(batch);
+                    sequence += batch.size();
+                    batch.clear();
+                }
+                if (missed > 0) {
+                    MISSED.add(missed);
+                    try {
+                        subscriber.onMissed(missed);
+                    } catch (Exception e) {
+                        System.err.println("Event subscriber " + name + " failed: " + e);
+                    }
+                    sequence += missed;
+                }
+            }
+        }
+
+        private void handle(List<Event> batch) {
+            try {
+                subscriber.onEvents(batch);
+            } catch (Exception e) {
+                System.err.println("Event subscriber " + name + " failed: " + e);
+            }
+            long now = System.nanoTime();
+            for (Event event : batch) {
+                latency.record(now - event.publishedNanos);
+            }
+        }
+
+        // Parks until the slot for `sequence` is published, or the bus closes. Either
+        // this sees the publisher's write or the publisher sees `waiting` and unparks.
+        private void await(long sequence) {
+            waiting = true;
+            if (slots[(int) sequence & mask].published != sequence && !closed) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    private final Event[] slots;
+    private final int mask;
+    // The next sequence to claim
+    private final AtomicLong next = new AtomicLong();
+    private volatile SubscriberThread[] consumers = new SubscriberThread[0];
+    private volatile boolean closed;
+
+    public RegistrationEvents() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // capacity is rounded up to a power of two
+    public RegistrationEvents(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        slots = new Event[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event();
+        }
+        mask = size - 1;
+    }
+
+    // Starts a thread that hands subscriber the events published from now on
+    public synchronized void subscribe(String name, int maxBatch, Subscriber subscriber) {
+        if (closed) {
+            throw new IllegalStateException("The event bus is closed");
+        }
+        SubscriberThread consumer = new SubscriberThread(name, Math.max(1, maxBatch), subscriber, next.get());
+        SubscriberThread[] added = Arrays.copyOf(consumers, consumers.length + 1);
+        added[consumers.length] = consumer;
+        consumers = added;
+        consumer.thread.start();
+    }
+
+    public void publishRegistered(StudentRecord record) {
+        publish(Type.STUDENT_REGISTERED, record.withPasswordHash(null), record.getEmail(),
+            Submission.Status.QUEUED, null);
+    }
+
+    // record is null when the request never got a Student ID
+    public void publishRejected(StudentRecord record, String email, Submission.Status status, String reason) {
+        publish(Type.REGISTRATION_REJECTED, record == null ? null : record.withPasswordHash(null), email,
+            status, reason);
+    }
+
+    private void publish(Type type, StudentRecord record, String email, Submission.Status status, String reason) {
+        SubscriberThread[] current = consumers;
+        if (closed || current.length == 0) {
+            return;
+        }
+        long sequence = next.getAndIncrement();
+
+        Event slot = slots[(int) sequence & mask];
+        slot.published = Event.WRITING;
+        // The fields below are not written before that
+        VarHandle.storeStoreFence();
+        slot.type = type;
+        slot.record = record;
+        slot.email = email;
+        slot.status = status;
+        slot.reason = reason;
+        slot.sequence = sequence;
+        slot.publishedNanos = System.nanoTime();
+        slot.published = sequence;
+        PUBLISHED.increment();
+        for (SubscriberThread consumer : current) {
+            if (consumer.waiting) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+    }
+
+    // Lets every subscriber finish what has been published, then stops them
+    @Override
+    public void close() {
+        SubscriberThread[] current;
+        synchronized (this) {
+            closed = true;
+            current = consumers;
+        }
+        for (SubscriberThread consumer : current) {
+            LockSupport.unpark(consumer.thread);
+            try {
+                consumer.thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
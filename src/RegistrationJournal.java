@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Write-ahead journal of accepted registrations. PersistencePipeline appends each
+// batch here (one fsync) before handing it to the sinks, which are treated as views
+// of the journal: every sink has a checkpoint, the sequence number of the last entry
+// it has applied, kept in <journal>.applied. A sink that is behind, whether it failed
+// or the process died before it was reached, is caught up from the journal later.
+//
+// Once the journal is large, the entries every sink has applied are dropped (all of
+// them if every sink is up to date), so its size and the time to replay it on startup
+// track the backlog of the slowest sink, not the number of students. A sparse index of
+// entry offsets lets readAfter start near the first entry it wants.
+// Sinks may see an entry twice if the process dies between applying a batch and
+// saving the checkpoint. For a sink that appends to a file, the checkpoint can also
+// hold the file's length at that point (<sink>=<sequence>,<position>), so the rows
+// past it can be cut off before they are applied again.
+public class RegistrationJournal implements AutoCloseable {
+
+    public static final class Entry {
+        final long sequence;
+        final StudentRecord record;
+
+        Entry(long sequence, StudentRecord record) {
+            this.sequence = sequence;
+            this.record = record;
+        }
+    }
+
+    public interface BatchConsumer {
+        // Returns false to stop reading
+        boolean accept(List<Entry> entries) throws IOException;
+    }
+
+    // Payload of an entry: the sequence number, then the RecordCodec encoding
+    private static final int SEQUENCE_BYTES = 8;
+    // Applied entries are dropped once the journal grows past this, and on close
+    private static final long COMPACT_THRESHOLD_BYTES = 4L << 20;
+    // The offset of every entry whose sequence number is a multiple of this is indexed
+    private static final int INDEX_INTERVAL = 256;
+
+    private final ChecksummedLog log;
+    private final Path checkpointPath;
+    private final Map<String, Long> applied = new LinkedHashMap<>();
+    // Where a sink's file ended when it had applied up to its checkpoint, for the sinks
+    // that have one
+    private final Map<String, Long> positions = new HashMap<>();
+    // Sinks in use by this process; checkpoints of others are kept but not waited for
+    private final Set<String> registered = new HashSet<>();
+    private final RecordCodec codec = new RecordCodec();
+    // Sequence number to offset of the first entry and of every INDEX_INTERVAL-th
+    private final TreeMap<Long, Long> offsets = new TreeMap<>();
+    private long firstSequence;
+    private long lastSequence;
+
+    private RegistrationJournal(Path path) {
+        this.log = new ChecksummedLog(path);
+        this.checkpointPath = path.resolveSibling(path.getFileName() + ".applied");
+    }
+
+    public static RegistrationJournal open(Path path) throws IOException {
+        RegistrationJournal journal = new RegistrationJournal(path);
+        journal.loadCheckpoint();
+        long[] sequences = {0, 0};
+        journal.log.open((offset, entry, length) -> {
+            sequences[1] = ByteBuffer.wrap(entry).getLong(0);
+            if (sequences[0] == 0) sequences[0] = sequences[1];
+            journal.index(sequences[1], offset);
+        });
+        long last = sequences[1];
+        for (long sequence : journal.applied.values()) {
+            last = Math.max(last, sequence);
+        }
+        journal.lastSequence = last;
+        journal.firstSequence = sequences[0] == 0 ? last + 1 : sequences[0];
+        return journal;
+    }
+
+    // A sink's checkpoint as saved next to the journal at path, without opening the
+    // journal; 0 if there is none
+    public static long readApplied(Path path, String sink) throws IOException {
+        RegistrationJournal journal = new RegistrationJournal(path);
+        journal.loadCheckpoint();
+        return journal.getApplied(sink);
+    }
+
+    // Adds a sink with no checkpoint yet; it will be handed everything still in the journal
+    public synchronized void register(String sink) {
+        registered.add(sink);
+        applied.putIfAbsent(sink, firstSequence - 1);
+    }
+
+    // Appends and syncs the records, returning the sequence number of the last one.
+    // Nothing is kept if this throws.
+    public synchronized long append(List<StudentRecord> records) throws IOException {
+        long batchStart = log.end();
+        long sequence = lastSequence;
+        try {
+            for (StudentRecord record : records) {
+                if (!codec.encode(record, SEQUENCE_BYTES)) {
+                    throw new IOException("A field of " + record.getStudentId() + " is longer than "
+                        + RecordCodec.MAX_FIELD_BYTES + " bytes");
+                }
+                ByteBuffer.wrap(codec.bytes()).putLong(0, ++sequence);
+                index(sequence, log.append(codec.bytes(), codec.length()));
+            }
+            log.commit();
+        } catch (IOException e) {
+            log.rollBack(batchStart);
+            offsets.tailMap(lastSequence, false).clear();
+            throw e;
+        }
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    private void index(long sequence, long offset) {
+        if (offsets.isEmpty() || sequence % INDEX_INTERVAL == 0) {
+            offsets.put(sequence, offset);
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    // Sequence number of the oldest entry still held (lastSequence + 1 when empty)
+    public synchronized long getFirstSequence() {
+        return firstSequence;
+    }
+
+    public synchronized long getApplied(String sink) {
+        return applied.getOrDefault(sink, 0L);
+    }
+
+    // Records in memory that the sink has applied everything up to sequence; made
+    // durable by the next saveCheckpoint()
+    public synchronized void setApplied(String sink, long sequence) {
+        setApplied(sink, sequence, -1);
+    }
+
+    // As setApplied, with where the sink's file ended at that point (-1 if unknown)
+    public synchronized void setApplied(String sink, long sequence, long position) {
+        if (sequence < getApplied(sink)) {
+            return;
+        }
+        applied.put(sink, sequence);
+        if (position >= 0) {
+            positions.put(sink, position);
+        } else {
+            positions.remove(sink);
+        }
+    }
+
+    // The position saved with the sink's checkpoint, or -1 if there is none
+    public synchronized long getPosition(String sink) {
+        return positions.getOrDefault(sink, -1L);
+    }
+
+    public synchronized void saveCheckpoint() throws IOException {
+        writeCheckpoint();
+        if (log.end() >= COMPACT_THRESHOLD_BYTES) {
+            compact();
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> entry : applied.entrySet()) {
+            text.append(entry.getKey()).append('=').append(entry.getValue());
+            Long position = positions.get(entry.getKey());
+            if (position != null) {
+                text.append(',').append(position);
+            }
+            text.append('\n');
+        }
+        Path temp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Hands the entries after `sequence` to consumer in batches of up to batchSize,
+    // reading from the indexed entry at or before the first of them
+    public synchronized void readAfter(long sequence, int batchSize, BatchConsumer consumer) throws IOException {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        boolean[] stopped = {false};
+        Map.Entry<Long, Long> start = offsets.floorEntry(sequence + 1);
+        log.scan(start == null ? 0 : start.getValue(), log.end(), (offset, entry, length) -> {
+            long entrySequence = ByteBuffer.wrap(entry).getLong(0);
+            if (stopped[0] || entrySequence <= sequence) {
+                return;
+            }
+            batch.add(new Entry(entrySequence, RecordCodec.decode(entry, SEQUENCE_BYTES, length)));
+            if (batch.size() == batchSize) {
+                stopped[0] = !consumer.accept(new ArrayList<>(batch));
+                batch.clear();
+            }
+        });
+        if (!stopped[0] && !batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeCheckpoint();
+            compact();
+        } finally {
+            log.close();
+        }
+    }
+
+    // Drops the entries every registered sink has applied: all of them when there are
+    // none left to apply, otherwise up to the indexed entry at or before the first one
+    // still needed, if that is at least half of the file, so each entry kept is copied
+    // at most as often as the journal doubles. Only called once the checkpoint on disk
+    // is current.
+    private void compact() throws IOException {
+        if (registered.isEmpty() || log.end() == 0) {
+            return;
+        }
+        long needed = lastSequence;
+        for (String sink : registered) {
+            needed = Math.min(needed, getApplied(sink));
+        }
+        if (needed >= lastSequence) {
+            // The checkpoint already holds lastSequence, so numbering carries on after this
+            log.clear();
+            offsets.clear();
+            firstSequence = lastSequence + 1;
+            return;
+        }
+        Map.Entry<Long, Long> keep = offsets.floorEntry(needed + 1);
+        if (keep == null || keep.getValue() < log.end() / 2) {
+            return;
+        }
+        long dropped = keep.getValue();
+        log.dropBefore(dropped);
+        Map<Long, Long> kept = new TreeMap<>(offsets.tailMap(keep.getKey(), true));
+        offsets.clear();
+        for (Map.Entry<Long, Long> entry : kept.entrySet()) {
+            offsets.put(entry.getKey(), entry.getValue() - dropped);
+        }
+        firstSequence = keep.getKey();
+    }
+
+    private void loadCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return;
+        }
+        for (String line : Files.readAllLines(checkpointPath, StandardCharsets.UTF_8)) {
+            int separator = line.lastIndexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            String sink = line.substring(0, separator);
+            String value = line.substring(separator + 1).trim();
+            int comma = value.indexOf(',');
+            try {
+                if (comma < 0) {
+                    applied.put(sink, Long.parseLong(value));
+                } else {
+                    applied.put(sink, Long.parseLong(value.substring(0, comma)));
+                    positions.put(sink, Long.parseLong(value.substring(comma + 1)));
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring malformed line in " + checkpointPath + ": " + line);
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide latency histograms, counters and gauges for the registration paths,
+// looked up by name. Hot paths keep the Histogram or Counter in a static field, so
+// recording is a clock read and two atomic increments with no allocation or locking.
+// install() publishes everything over JMX as StudentRegistration:type=Metrics and
+// logs a summary of the last interval to stdout every -Dstudent.metrics.interval
+// seconds (default 60, 0 for never). -Dstudent.metrics=false turns recording off,
+// e.g. to measure what it costs; the metrics bench group does that.
+public final class RegistrationMetrics {
+
+    static final String ENABLED_PROPERTY = "student.metrics";
+    static final String INTERVAL_PROPERTY = "student.metrics.interval";
+    private static final int DEFAULT_INTERVAL_SECONDS = 60;
+    static final String OBJECT_NAME = "StudentRegistration:type=Metrics";
+
+    private static final RegistrationMetrics GLOBAL = new RegistrationMetrics();
+    private static volatile boolean enabled = !"false".equals(System.getProperty(ENABLED_PROPERTY));
+
+    // Latencies in nanoseconds in log-linear buckets: every power of two is split into
+    // SUB_BUCKETS, so a percentile is at most 1/SUB_BUCKETS (12.5%) above the true
+    // value. Plain atomic buckets: LongAdders would cost far more memory per bucket
+    // and desks do not record often enough to contend.
+    public static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+
+        public void record(long nanos) {
+            if (enabled) {
+                buckets.incrementAndGet(bucketOf(Math.max(0, nanos)));
+                totalNanos.add(nanos);
+            }
+        }
+
+        // Records the time since startNanos, a System.nanoTime() taken earlier
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        // Buckets are read one by one, so a snapshot taken while others record may be
+        // off by the few values recorded meanwhile
+        public Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return new Snapshot(counts, totalNanos.sum());
+        }
+
+        static int bucketOf(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Largest value that falls in the bucket
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+
+        Snapshot(long[] counts, long totalNanos) {
+            this.counts = counts;
+            this.totalNanos = totalNanos;
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public double getPercentileMillis(double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Histogram.upperBound(i) / 1e6;
+                }
+            }
+            return getMaxMillis();
+        }
+
+        public double getMaxMillis() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return Histogram.upperBound(i) / 1e6;
+                }
+            }
+            return 0;
+        }
+
+        // What was recorded between an earlier snapshot of the same histogram and this one
+        public Snapshot since(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(delta, totalNanos - earlier.totalNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "n=%d mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                count, getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+        }
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            add(1);
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                value.add(amount);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private boolean registered;
+
+    public static RegistrationMetrics global() {
+        return GLOBAL;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // A value read when reported, e.g. a queue length; replaces any gauge of that name
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Registers the MBean and starts the periodic summary; later calls do nothing
+    public synchronized void install() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MetricsMBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Warning: metrics are not available over JMX: " + e.getMessage());
+        }
+        int interval = Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL_SECONDS);
+        if (interval > 0) {
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Map<String, Snapshot> previous = new HashMap<>();
+            Map<String, Long> previousCounts = new HashMap<>();
+            reporter.scheduleAtFixedRate(() -> report(interval, previous, previousCounts),
+                interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    // One line per histogram or counter that changed since the last report; nothing
+    // at all when the desk was idle
+    private void report(int interval, Map<String, Snapshot> previous, Map<String, Long> previousCounts) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Snapshot now = entry.getValue().snapshot();
+            Snapshot before = previous.put(entry.getKey(), now);
+            Snapshot recent = before == null ? now : now.since(before);
+            if (recent.getCount() > 0) {
+                lines.add(String.format("  %-28s %s", entry.getKey(), recent));
+            }
+        }
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            long now = entry.getValue().get();
+            Long before = previousCounts.put(entry.getKey(), now);
+            if (now != (before == null ? 0 : before)) {
+                lines.add(String.format("  %-28s +%d (%d total)", entry.getKey(), now - (before == null ? 0 : before), now));
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            lines.add(String.format("  %-28s %d", entry.getKey(), entry.getValue().getAsLong()));
+        }
+        StringBuilder summary = new StringBuilder("Metrics, last " + interval + " s:");
+        for (String line : lines) {
+            summary.append(System.lineSeparator()).append(line);
+        }
+        System.out.println(summary);
+    }
+
+    // Every histogram as <name>.count, .meanMs, .p50Ms, .p99Ms and .maxMs since startup,
+    // every counter and gauge under its own name. Metrics created after a JMX client
+    // connected show up when it re-reads the MBeanInfo.
+    private final class MetricsMBean implements DynamicMBean {
+        private static final String COUNT = ".count";
+        private static final String MEAN = ".meanMs";
+        private static final String P50 = ".p50Ms";
+        private static final String P99 = ".p99Ms";
+        private static final String MAX = ".maxMs";
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Counter counter = counters.get(attribute);
+            if (counter != null) {
+                return counter.get();
+            }
+            LongSupplier gauge = gauges.get(attribute);
+            if (gauge != null) {
+                return gauge.getAsLong();
+            }
+            for (String suffix : new String[] {COUNT, MEAN, P50, P99, MAX}) {
+                if (!attribute.endsWith(suffix)) continue;
+                Histogram histogram = histograms.get(attribute.substring(0, attribute.length() - suffix.length()));
+                if (histogram == null) continue;
+                Snapshot snapshot = histogram.snapshot();
+                switch (suffix) {
+                    case COUNT: return snapshot.getCount();
+                    case MEAN: return snapshot.getMeanMillis();
+                    case P50: return snapshot.getPercentileMillis(50);
+                    case P99: return snapshot.getPercentileMillis(99);
+                    default: return snapshot.getMaxMillis();
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the DynamicMBean contract asks
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        // There are no operations, as getMBeanInfo says
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "No such operation: " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : histograms.keySet()) {
+                attributes.add(attribute(name + COUNT, "long", "Recorded since startup"));
+                attributes.add(attribute(name + MEAN, "double", "Mean since startup, ms"));
+                attributes.add(attribute(name + P50, "double", "Median since startup, ms"));
+                attributes.add(attribute(name + P99, "double", "99th percentile since startup, ms"));
+                attributes.add(attribute(name + MAX, "double", "Largest since startup, ms"));
+            }
+            for (String name : counters.keySet()) {
+                attributes.add(attribute(name, "long", "Count since startup"));
+            }
+            for (String name : gauges.keySet()) {
+                attributes.add(attribute(name, "long", "Current value"));
+            }
+            return new MBeanInfo(RegistrationMetrics.class.getName(), "Registration latencies and error counts",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+        }
+
+        private MBeanAttributeInfo attribute(String name, String type, String description) {
+            return new MBeanAttributeInfo(name, type, description, true, false, false);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// Raw registration input before validation. A null date of birth means the user
+// did not complete it; gender and department hold the stored codes ("M", "CSE", ...).
+// Passwords are kept as char arrays, as handed out by JPasswordField, so callers can
+// clear them once the request has been processed.
+public final class RegistrationRequest {
+
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final String confirmEmail;
+    private final char[] password;
+    private final char[] confirmPassword;
+    private final LocalDate dateOfBirth;
+    private final String gender;
+    private final String department;
+
+    public RegistrationRequest(String firstName, String lastName, String email, String confirmEmail,
+                               char[] password, char[] confirmPassword, LocalDate dateOfBirth,
+                               String gender, String department) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.confirmEmail = confirmEmail;
+        this.password = password;
+        this.confirmPassword = confirmPassword;
+        this.dateOfBirth = dateOfBirth;
+        this.gender = gender;
+        this.department = department;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getConfirmEmail() {
+        return confirmEmail;
+    }
+
+    public char[] getPassword() {
+        return password;
+    }
+
+    public char[] getConfirmPassword() {
+        return confirmPassword;
+    }
+
+    public LocalDate getDateOfBirth() {
+        return dateOfBirth;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void clearPasswords() {
+        if (password != null) {
+            Arrays.fill(password, '\0');
+        }
+        if (confirmPassword != null) {
+            Arrays.fill(confirmPassword, '\0');
+        }
+    }
+
+    public StudentRecord toRecord(String studentId) {
+        return new StudentRecord(studentId, firstName, lastName, gender, department,
+            dateOfBirth.toString(), email);
+    }
+}
@@ -0,0 +1,291 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// HTTP front end for one RegistrationService, so that several desks share one ID
+// sequence and only this process touches the CSV file, the journal and the store.
+//
+//   POST /students  {"firstName", "lastName", "email", "confirmEmail", "password",
+//                    "confirmPassword", "dateOfBirth": "yyyy-MM-dd", "gender": "M"|"F",
+//                    "department": "Civil"|"CSE"|"Electrical"|"E&C"|"Mechanical"}
+//
+// The reply is sent once the registration is in the journal:
+//   201 {"studentId", "record", "pending": [stores not written yet]}
+//   202 {"studentId", "record"} if saving takes longer than SAVE_TIMEOUT_SECONDS
+//   400 malformed request, 409 duplicate email, 422 failed validation
+//   503 persistence queue full, 500 not saved
+//
+// Requests run on virtual threads when the JDK has them (21+), otherwise on a cached
+// thread pool; either way a request thread mostly waits for the journal fsync.
+public class RegistrationServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final long SAVE_TIMEOUT_SECONDS = 30;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // Requests waiting on the journal are what fills a batch, so keep the wait short
+    private static final long BATCH_DELAY_MS = 2;
+    // Whole request, from the handler being called to the reply being sent
+    private static final RegistrationMetrics.Histogram REQUEST_TIME =
+        RegistrationMetrics.global().histogram("server.request");
+
+    static {
+        // The JDK server writes the headers and the body separately; with Nagle on, the
+        // body waits for the client's delayed ACK and every reply takes ~40 ms extra.
+        // Read once, when the server classes load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final RegistrationService service;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+
+    public RegistrationServer(RegistrationService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(address, 0);
+        this.requestExecutor = newRequestExecutor();
+        server.createContext("/students", this::handleStudents);
+        server.setExecutor(requestExecutor);
+    }
+
+    // Starts the service and the server and returns; the server runs until the JVM exits
+    public static void run(RegistrationService service, String host, int port) throws IOException {
+        long start = System.nanoTime();
+        RegistrationMetrics.global().install();
+        service.start(BATCH_DELAY_MS, TimeUnit.MILLISECONDS, Runnable::run, phase ->
+            System.out.printf("  %s (%d ms)%n", phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        reportStartupErrors(service);
+
+        RegistrationServer server = new RegistrationServer(service, new InetSocketAddress(host, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            service.close();
+        }, "registration-server-shutdown"));
+        server.start();
+        System.out.println("Registration server listening on http://" + host + ":" + server.getPort() + "/students");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting connections and gives in-flight requests a second to finish.
+    // The service is left open; it belongs to the caller.
+    public void stop() {
+        server.stop(1);
+        requestExecutor.shutdown();
+    }
+
+    static ExecutorService newRequestExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor(), when running on JDK 21+
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "registration-http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void reportStartupErrors(RegistrationService service) {
+        if (service.getStoreError() != null) {
+            System.err.println("Error initializing " + service.getStore().getName() + " storage: "
+                + service.getStoreError() + "\nWill save to CSV only.");
+        }
+        if (service.getJournalError() != null) {
+            System.err.println("Error opening registration journal: " + service.getJournalError()
+                + "\nRegistrations will be saved without a journal.");
+        }
+        if (service.getSequenceError() != null) {
+            System.err.println("Error opening student ID sequence: " + service.getSequenceError());
+        }
+    }
+
+    private void handleStudents(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!exchange.getRequestURI().getPath().equals("/students")) {
+                send(exchange, 404, error("not_found", "No such resource"));
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, error("method_not_allowed", "Use POST"));
+                return;
+            }
+
+            RegistrationRequest request;
+            try {
+                request = toRequest(Json.parseObject(readBody(exchange.getRequestBody())));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error("bad_request", e.getMessage()));
+                return;
+            }
+            register(exchange, request);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Request failed: " + e);
+            throw e;
+        } finally {
+            exchange.close();
+            REQUEST_TIME.recordSince(start);
+        }
+    }
+
+    private void register(HttpExchange exchange, RegistrationRequest request) throws IOException {
+        CompletableFuture<List<String>> saved = new CompletableFuture<>();
+        Submission submission = service.submit(request, (record, isSaved, failures) -> {
+            if (isSaved) {
+                saved.complete(failures);
+            } else {
+                saved.completeExceptionally(new IOException(String.join("; ", failures)));
+            }
+        });
+
+        switch (submission.getStatus()) {
+            case INVALID: {
+                int result = submission.getValidationResult();
+                List<String> errors = new ArrayList<>();
+                for (RegistrationValidator.Rule rule : RegistrationValidator.failedRules(result)) {
+                    errors.add(rule.getSummary());
+                }
+                Map<String, Object> body = error("invalid", RegistrationValidator.summarize(result, "; "));
+                body.put("validationResult", result);
+                body.put("errors", errors);
+                send(exchange, 422, body);
+                return;
+            }
+            case DUPLICATE_EMAIL: {
+                Map<String, Object> body = error("duplicate_email", "Email is already registered");
+                body.put("studentId", submission.getExistingStudentId());
+                send(exchange, 409, body);
+                return;
+            }
+            case BUSY:
+                send(exchange, 503, error("busy", submission.getMessage()));
+                return;
+            case FAILED:
+                send(exchange, 500, error("failed", submission.getMessage()));
+                return;
+            default:
+                break;
+        }
+
+        StudentRecord record = submission.getRecord();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("studentId", record.getStudentId());
+        body.put("record", toJson(record));
+        try {
+            body.put("pending", saved.get(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            send(exchange, 201, body);
+        } catch (TimeoutException e) {
+            send(exchange, 202, body);
+        } catch (ExecutionException e) {
+            send(exchange, 500, error("failed", e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 202, body);
+        }
+    }
+
+    static RegistrationRequest toRequest(Map<String, Object> json) {
+        String dateOfBirth = string(json, "dateOfBirth");
+        LocalDate dob = null;
+        if (dateOfBirth != null && !dateOfBirth.isEmpty()) {
+            try {
+                dob = LocalDate.parse(dateOfBirth);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid dateOfBirth (expected yyyy-MM-dd)");
+            }
+        }
+        return new RegistrationRequest(trimmed(json, "firstName"), trimmed(json, "lastName"),
+            trimmed(json, "email"), trimmed(json, "confirmEmail"),
+            chars(json, "password"), chars(json, "confirmPassword"), dob,
+            string(json, "gender"), string(json, "department"));
+    }
+
+    static Map<String, Object> toJson(StudentRecord record) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("studentId", record.getStudentId());
+        json.put("firstName", record.getFirstName());
+        json.put("lastName", record.getLastName());
+        json.put("gender", record.getGender());
+        json.put("department", record.getDepartment());
+        json.put("dateOfBirth", record.getDateOfBirth());
+        json.put("email", record.getEmail());
+        return json;
+    }
+
+    private static String string(Map<String, Object> json, String key) {
+        Object value = json.get(key);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(key + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static String trimmed(Map<String, Object> json, String key) {
+        String value = string(json, key);
+        return value == null ? "" : value.trim();
+    }
+
+    private static char[] chars(Map<String, Object> json, String key) {
+        String value = string(json, key);
+        return value == null ? new char[0] : value.toCharArray();
+    }
+
+    private static Map<String, Object> error(String code, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", code);
+        body.put("message", message);
+        return body;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (body.size() + read > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,633 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// The registration backend: validation, the duplicate-email check, ID allocation,
+// password hashing and persistence through the journal to the CSV file and the
+// primary store. Exactly one
+// process should own it for a given set of files: the Swing form when it runs on its
+// own, or RegistrationServer when several desks share one set of data.
+//
+// submit() is thread-safe. The pipeline's single worker thread is the only writer.
+// Passwords are hashed on several threads and finish in any order, so records are
+// handed to the pipeline through HandOffs, in the order of their IDs: the journal and
+// the CSV file get ascending IDs even under concurrent load.
+//
+// With a snapshot path, the registry and the search index start from the newest
+// StudentSnapshot plus the journal entries after it, instead of reading the store.
+// The journal keeps those entries (the snapshot has a checkpoint of its own) until a
+// newer snapshot is written. Snapshots are written in the background every
+// SNAPSHOT_INTERVAL registrations and on close, and the first one is built from the
+// store after a start without one.
+//
+// Registrations saved and refused are published to getEvents(); the search index
+// follows them from there, on a thread of its own.
+public class RegistrationService implements AutoCloseable, Registrar {
+
+    private static final int PERSISTENCE_QUEUE_CAPACITY = 256;
+    private static final int PERSISTENCE_BATCH_SIZE = 50;
+    static final int SNAPSHOT_INTERVAL = 10_000;
+    // The snapshot's checkpoint in the journal
+    static final String SNAPSHOT_SINK = "Snapshot";
+    private static final int SEARCH_INDEX_BATCH_SIZE = 100;
+
+    private static final RegistrationMetrics METRICS = RegistrationMetrics.global();
+    // The synchronous part of submit(), and its validation and ID allocation steps
+    private static final RegistrationMetrics.Histogram SUBMIT_TIME = METRICS.histogram("submit.total");
+    private static final RegistrationMetrics.Histogram VALIDATE_TIME = METRICS.histogram("submit.validate");
+    private static final RegistrationMetrics.Histogram ID_TIME = METRICS.histogram("submit.id");
+    // From submit() to the record being saved (or failing to be)
+    private static final RegistrationMetrics.Histogram SAVE_TIME = METRICS.histogram("submit.saved");
+    private static final RegistrationMetrics.Histogram COUNTER_RECOVERY_TIME = METRICS.histogram("startup.counter_recovery");
+    private static final RegistrationMetrics.Histogram SNAPSHOT_TIME = METRICS.histogram("snapshot.write");
+    private static final RegistrationMetrics.Counter[] OUTCOMES = new RegistrationMetrics.Counter[Submission.Status.values().length];
+
+    static {
+        for (Submission.Status status : Submission.Status.values()) {
+            OUTCOMES[status.ordinal()] = METRICS.counter("submit." + status.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    // Runs each record's hand-off to the pipeline in the order its ID was allocated.
+    // Hand-offs run outside the monitor, which accept() also allocates IDs under, one
+    // thread at a time: whoever finds nobody draining runs every ready one in order.
+    private static final class HandOffs {
+        private final Map<Long, Runnable> waiting = new HashMap<>();
+        private long issued;
+        private long next;
+        private boolean draining;
+
+        // Called under the same lock as the ID allocation, so tickets follow IDs
+        synchronized long issue() {
+            return issued++;
+        }
+
+        // Runs handOff (null for a record that will not be handed off) once every
+        // earlier ticket has been completed, along with any later ones that were
+        // waiting on this one; or leaves them to the thread already draining
+        void complete(long ticket, Runnable handOff) {
+            synchronized (this) {
+                waiting.put(ticket, handOff == null ? () -> { } : handOff);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                Runnable ready;
+                synchronized (this) {
+                    ready = waiting.remove(next);
+                    if (ready == null) {
+                        draining = false;
+                        return;
+                    }
+                    next++;
+                }
+                try {
+                    ready.run();
+                } catch (RuntimeException | Error e) {
+                    // The next complete() carries on from the one after it
+                    synchronized (this) {
+                        draining = false;
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private final StudentRepository store;
+    private final StudentCsvFile csvFile;
+    private final String journalPath;
+    private final String sequencePath;
+    private final Path snapshotPath;
+    private final RegistrationValidator validator = new RegistrationValidator();
+    private final RegistrationEvents events = new RegistrationEvents();
+    private final HandOffs handOffs = new HandOffs();
+    private RegistrationJournal journal;
+    private PersistencePipeline pipeline;
+    private StudentIdSequence idSequence;
+    private StudentRegistry registry;
+    private StudentSearchIndex searchIndex;
+    private PasswordHasher passwordHasher;
+    private Executor callbackExecutor;
+    // The snapshot the next one is merged from: the one loaded at startup or the first
+    // one written. Writes go through snapshotWriter, one at a time.
+    private volatile StudentSnapshot snapshot;
+    private long lastSnapshotSequence = -1;
+    private final AtomicInteger savedSinceSnapshot = new AtomicInteger();
+    private ExecutorService snapshotWriter;
+    // Startup problems for the caller to report; null when the step succeeded
+    private String storeError;
+    private String journalError;
+    private String sequenceError;
+    private String searchError;
+
+    // Passwords are hashed with PasswordHasher.create(), calibrated when start() runs
+    public RegistrationService(StudentRepository store, String csvPath, String journalPath, String sequencePath) {
+        this(store, csvPath, journalPath, sequencePath, null);
+    }
+
+    public RegistrationService(StudentRepository store, String csvPath, String journalPath, String sequencePath,
+                               PasswordHasher passwordHasher) {
+        this(store, csvPath, journalPath, sequencePath, null, passwordHasher);
+    }
+
+    // snapshotPath is the base name of the snapshot files, or null to load from the store
+    public RegistrationService(StudentRepository store, String csvPath, String journalPath, String sequencePath,
+                               String snapshotPath, PasswordHasher passwordHasher) {
+        this.store = store;
+        this.csvFile = new StudentCsvFile(csvPath);
+        this.journalPath = journalPath;
+        this.sequencePath = sequencePath;
+        this.snapshotPath = snapshotPath == null ? null : new File(snapshotPath).toPath();
+        this.passwordHasher = passwordHasher;
+    }
+
+    // Initializes the store, replays the journal, opens the ID sequence and loads the
+    // registry and the search index. Slow (it loads the database driver), so keep it
+    // off the EDT; it must finish before submit() is called. Completion callbacks are
+    // run on callbackExecutor; phases hears the name of each step as it finishes, and
+    // each step's time is also recorded as a startup.* metric.
+    public void start(long batchDelay, TimeUnit unit, Executor callbackExecutor, Consumer<String> phases) {
+        long phaseStart = System.nanoTime();
+        this.callbackExecutor = callbackExecutor;
+        if (passwordHasher == null) {
+            // Calibrates on its own threads while the rest of startup goes on
+            passwordHasher = PasswordHasher.create();
+        }
+        try {
+            store.initialize();
+        } catch (Exception e) {
+            storeError = e.getMessage();
+        }
+        phaseStart = finishPhase(phases, store.getName() + " ready", "store", phaseStart);
+        StudentRepository primary = storeError == null ? store : null;
+
+        // Anything journaled but not yet in the CSV file or the store is applied
+        // before the counter and the registry are read from them
+        try {
+            journal = RegistrationJournal.open(new File(journalPath).toPath());
+            if (snapshotPath != null) {
+                // Before anything can empty the journal
+                journal.register(SNAPSHOT_SINK);
+            }
+        } catch (IOException e) {
+            journalError = e.getMessage();
+        }
+        List<PersistencePipeline.RecordSink> sinks = Arrays.asList(csvFile, store);
+        pipeline = new PersistencePipeline(PERSISTENCE_QUEUE_CAPACITY, sinks,
+            PERSISTENCE_BATCH_SIZE, batchDelay, unit, journal, callbackExecutor);
+        pipeline.replayJournal();
+        phaseStart = finishPhase(phases, "journal replayed", "journal_replay", phaseStart);
+
+        try {
+            idSequence = StudentIdSequence.open(new File(sequencePath).toPath(),
+                year -> recoverStudentCounter(primary, csvFile, year));
+        } catch (IOException e) {
+            sequenceError = e.getMessage();
+        }
+        phaseStart = finishPhase(phases, "ID sequence open", "id_sequence", phaseStart);
+        List<StudentRecord> newer = new ArrayList<>();
+        StudentSnapshot loaded = journal != null && snapshotPath != null ? openSnapshot(newer) : null;
+        if (loaded != null) {
+            registry = new StudentRegistry(loaded);
+            for (StudentRecord record : newer) {
+                registry.add(record.getStudentId(), record.getEmail());
+            }
+            phaseStart = finishPhase(phases, "registry loaded from snapshot (" + registry.size() + " students)",
+                "registry", phaseStart);
+        } else {
+            registry = StudentRegistry.load(primary, csvFile);
+            phaseStart = finishPhase(phases, "registry loaded (" + registry.size() + " students)", "registry", phaseStart);
+        }
+        try {
+            if (loaded != null) {
+                searchIndex = StudentSearchIndex.load(loaded);
+                newer.forEach(searchIndex::add);
+            } else {
+                searchIndex = StudentSearchIndex.load(getBrowseStore());
+            }
+            finishPhase(phases, "search index built (" + searchIndex.size() + " students)", "search_index", phaseStart);
+            StudentSearchIndex index = searchIndex;
+            StudentRepository source = getBrowseStore();
+            events.subscribe("search-index", SEARCH_INDEX_BATCH_SIZE, new RegistrationEvents.Subscriber() {
+                // Once reloaded, registrations read from the store may come as events too
+                private boolean reloaded;
+
+                @Override
+                public void onEvents(List<RegistrationEvents.Event> batch) {
+                    for (RegistrationEvents.Event event : batch) {
+                        if (event.getType() == RegistrationEvents.Type.STUDENT_REGISTERED
+                                && (!reloaded || !index.containsId(event.getRecord().getStudentId()))) {
+                            index.add(event.getRecord());
+                        }
+                    }
+                }
+
+                @Override
+                public void onMissed(long count) throws Exception {
+                    System.err.println("The search index missed " + count + " registrations; reloading it");
+                    index.reload(source);
+                    reloaded = true;
+                }
+            });
+        } catch (Exception e) {
+            searchError = e.getMessage();
+            System.err.println("Warning: student search is unavailable: " + searchError);
+        }
+
+        if (journal != null && snapshotPath != null) {
+            snapshotWriter = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "student-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (loaded == null) {
+                StudentRepository source = getBrowseStore();
+                snapshotWriter.execute(() -> buildSnapshot(source));
+            }
+        }
+    }
+
+    // The newest snapshot, if the journal still holds everything after it; its missing
+    // registrations are added to newer. Null when there is none or it is out of date.
+    // Only that one file is mapped, after its header has been checked against the
+    // journal, and the others are deleted.
+    private StudentSnapshot openSnapshot(List<StudentRecord> newer) {
+        StudentSnapshot latest;
+        try {
+            Path file = StudentSnapshot.findLatest(snapshotPath);
+            if (file == null) {
+                return null;
+            }
+            long sequence = StudentSnapshot.readSequence(file);
+            if (sequence > journal.getLastSequence() || sequence < journal.getFirstSequence() - 1) {
+                System.err.println("Snapshot " + file + " does not match the journal; rebuilding it");
+                return null;
+            }
+            latest = StudentSnapshot.open(file);
+        } catch (IOException e) {
+            System.err.println("Could not open the student snapshot: " + e.getMessage());
+            return null;
+        }
+        try {
+            journal.readAfter(latest.getSequence(), PERSISTENCE_BATCH_SIZE, entries -> {
+                for (RegistrationJournal.Entry entry : entries) {
+                    if (!latest.containsId(entry.record.getStudentId())) {
+                        newer.add(entry.record);
+                    }
+                }
+                return true;
+            });
+        } catch (IOException e) {
+            System.err.println("Could not read the journal after the snapshot: " + e.getMessage());
+            return null;
+        }
+        journal.setApplied(SNAPSHOT_SINK, latest.getSequence());
+        snapshot = latest;
+        lastSnapshotSequence = latest.getSequence();
+        StudentSnapshot.deleteOthers(snapshotPath, latest.getFile());
+        return latest;
+    }
+
+    // First snapshot, from a full read of the store. Registrations saved during the
+    // read are after the checkpoint taken first, so they are in the journal too.
+    private void buildSnapshot(StudentRepository source) {
+        long start = System.nanoTime();
+        long sequence = journal.getApplied(source.getName());
+        Path file = StudentSnapshot.fileFor(snapshotPath, sequence);
+        try {
+            StudentSnapshot.write(source, file, sequence);
+            journal.setApplied(SNAPSHOT_SINK, sequence);
+            snapshot = StudentSnapshot.open(file);
+            lastSnapshotSequence = sequence;
+            StudentSnapshot.deleteOthers(snapshotPath, file);
+            SNAPSHOT_TIME.recordSince(start);
+        } catch (Exception e) {
+            System.err.println("Could not write the student snapshot: " + e.getMessage());
+        }
+    }
+
+    // A new snapshot from the current one and the journal entries after it, into a file
+    // of its own; nothing if no registration was saved since the last. The service and
+    // the registry then move onto it, its checkpoint lets the journal be emptied of the
+    // entries it holds, and older files are deleted once their mappings are released.
+    private void refreshSnapshot() {
+        StudentSnapshot base = snapshot;
+        if (base == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        StudentSnapshot.Writer writer = new StudentSnapshot.Writer();
+        long[] sequence = {base.getSequence()};
+        try {
+            base.forEach(record -> add(writer, record));
+            journal.readAfter(base.getSequence(), PERSISTENCE_BATCH_SIZE, entries -> {
+                for (RegistrationJournal.Entry entry : entries) {
+                    writer.add(entry.record);
+                    sequence[0] = entry.sequence;
+                }
+                return true;
+            });
+            if (sequence[0] == lastSnapshotSequence) {
+                return;
+            }
+            Path file = StudentSnapshot.fileFor(snapshotPath, sequence[0]);
+            writer.write(file, sequence[0]);
+            StudentSnapshot written = StudentSnapshot.open(file);
+            snapshot = written;
+            lastSnapshotSequence = sequence[0];
+            registry.rebase(written);
+            journal.setApplied(SNAPSHOT_SINK, sequence[0]);
+            journal.saveCheckpoint();
+            // The file just replaced is likely still mapped; it goes on a later refresh
+            StudentSnapshot.deleteOthers(snapshotPath, file);
+            SNAPSHOT_TIME.recordSince(start);
+        } catch (Exception e) {
+            Throwable cause = e instanceof UncheckedIOException ? e.getCause() : e;
+            System.err.println("Could not write the student snapshot: " + cause.getMessage());
+        }
+    }
+
+    private static void add(StudentSnapshot.Writer writer, StudentRecord record) {
+        try {
+            writer.add(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reports a finished startup step and records its time as startup.<metric>
+    private static long finishPhase(Consumer<String> phases, String message, String metric, long startNanos) {
+        METRICS.histogram("startup." + metric).recordSince(startNanos);
+        phases.accept(message);
+        return System.nanoTime();
+    }
+
+    public StudentRepository getStore() {
+        return store;
+    }
+
+    // Subscribers hear about registrations from the moment they subscribe
+    public RegistrationEvents getEvents() {
+        return events;
+    }
+
+    // Null if it could not be built; see getSearchError()
+    public StudentSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public String getSearchError() {
+        return searchError;
+    }
+
+    // Where the student browser reads from: the primary store, or the CSV file if the
+    // store could not be initialized
+    public StudentRepository getBrowseStore() {
+        return storeError == null ? store : csvFile;
+    }
+
+    public String getStoreError() {
+        return storeError;
+    }
+
+    public String getJournalError() {
+        return journalError;
+    }
+
+    public String getSequenceError() {
+        return sequenceError;
+    }
+
+    // Validates the request, claims its email, allocates an ID and queues the record.
+    // The listener hears about the record once it is saved (or could not be); if it
+    // was not saved at all the email is released first.
+    @Override
+    public Submission submit(RegistrationRequest request, PersistencePipeline.CompletionListener listener) {
+        long start = System.nanoTime();
+        Submission submission;
+        try {
+            submission = accept(request, listener, start);
+        } finally {
+            // The hasher works on its own copy
+            request.clearPasswords();
+        }
+        SUBMIT_TIME.recordSince(start);
+        OUTCOMES[submission.getStatus().ordinal()].increment();
+        if (submission.getStatus() != Submission.Status.QUEUED) {
+            events.publishRejected(null, request.getEmail(), submission.getStatus(), rejectionReason(submission));
+        }
+        return submission;
+    }
+
+    private static String rejectionReason(Submission submission) {
+        switch (submission.getStatus()) {
+            case INVALID:
+                return RegistrationValidator.summarize(submission.getValidationResult(), "; ");
+            case DUPLICATE_EMAIL:
+                return "Already registered" + (submission.getExistingStudentId() == null ? ""
+                    : " as " + submission.getExistingStudentId());
+            default:
+                return submission.getMessage();
+        }
+    }
+
+    private Submission accept(RegistrationRequest request, PersistencePipeline.CompletionListener listener,
+                              long start) {
+        int result = validator.validate(request);
+        VALIDATE_TIME.recordSince(start);
+        if (!RegistrationValidator.isValid(result)) {
+            return Submission.invalid(result);
+        }
+
+        String existingId = registry.findIdByEmail(request.getEmail());
+        if (existingId != null) {
+            return Submission.duplicateEmail(existingId);
+        }
+
+        // Back-pressure: refuse new work while the persistence queue is full
+        if (!pipeline.hasCapacity()) {
+            return Submission.failed(Submission.Status.BUSY,
+                "Registrations are still being saved. Please try again in a moment.");
+        }
+
+        String studentId;
+        long ticket;
+        long idStart = System.nanoTime();
+        try {
+            synchronized (handOffs) {
+                studentId = nextStudentId();
+                ticket = handOffs.issue();
+            }
+        } catch (IOException e) {
+            return Submission.failed(Submission.Status.FAILED, "Could not allocate a student ID: " + e.getMessage());
+        }
+        ID_TIME.recordSince(idStart);
+        StudentRecord record = request.toRecord(studentId);
+
+        // Claim the email now so a concurrent submission cannot register it twice
+        if (!registry.reserveEmail(record.getEmail(), studentId)) {
+            handOffs.complete(ticket, null);
+            return Submission.duplicateEmail(registry.findIdByEmail(record.getEmail()));
+        }
+
+        PersistencePipeline.CompletionListener completion = (persisted, saved, failures) -> {
+            SAVE_TIME.recordSince(start);
+            // Nothing was stored, so the email becomes available again
+            if (!saved) {
+                registry.release(persisted.getEmail(), persisted.getStudentId());
+                events.publishRejected(persisted, persisted.getEmail(), Submission.Status.FAILED,
+                    String.join("; ", failures));
+            } else {
+                events.publishRegistered(persisted);
+                if (snapshotWriter != null && savedSinceSnapshot.incrementAndGet() >= SNAPSHOT_INTERVAL) {
+                    savedSinceSnapshot.set(0);
+                    snapshotWriter.execute(this::refreshSnapshot);
+                }
+            }
+            if (listener != null) {
+                listener.onComplete(persisted, saved, failures);
+            }
+        };
+
+        // Hashing takes on the order of 100 ms, so the record is queued for saving
+        // from the hasher's thread once its hash is ready, after any earlier IDs
+        char[] password = request.getPassword().clone();
+        try {
+            passwordHasher.hashAsync(password).whenComplete((hash, error) -> handOffs.complete(ticket, () -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    notSaved(record, completion, "Could not hash the password: " + cause);
+                } else if (!pipeline.submit(record.withPasswordHash(hash), completion)) {
+                    notSaved(record, completion, "Could not queue registration for saving. Please try again.");
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            handOffs.complete(ticket, null);
+            Arrays.fill(password, '\0');
+            registry.release(record.getEmail(), studentId);
+            return Submission.failed(Submission.Status.BUSY,
+                "Registrations are still being saved. Please try again in a moment.");
+        }
+        return Submission.queued(record);
+    }
+
+    // Reports a record that never reached the pipeline the way the pipeline reports one
+    // it could not save, on the callback executor
+    private void notSaved(StudentRecord record, PersistencePipeline.CompletionListener completion, String failure) {
+        callbackExecutor.execute(() -> completion.onComplete(record, false, Collections.singletonList(failure)));
+    }
+
+    public boolean isJournaled() {
+        return journal != null;
+    }
+
+    // Waits for queued registrations to be saved, then closes everything
+    @Override
+    public void close() {
+        // Hashes still running hand their records to the pipeline, so finish them first
+        if (passwordHasher != null) {
+            passwordHasher.close();
+        }
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        events.close();
+        if (snapshotWriter != null) {
+            closeSnapshots();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Could not close " + journalPath + ": " + e.getMessage());
+            }
+        }
+        try {
+            store.close();
+        } catch (Exception e) {
+            System.err.println("Could not close " + store.getName() + " storage: " + e.getMessage());
+        }
+        try {
+            csvFile.close();
+        } catch (IOException e) {
+            System.err.println("Could not close the CSV file: " + e.getMessage());
+        }
+        if (idSequence != null) {
+            try {
+                idSequence.close();
+            } catch (IOException e) {
+                System.err.println("Could not close ID sequence: " + e.getMessage());
+            }
+        }
+    }
+
+    // Lets a snapshot being written finish, then writes one with everything saved, so
+    // the journal can be emptied and the next start has nothing to apply
+    private void closeSnapshots() {
+        snapshotWriter.shutdown();
+        try {
+            snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        refreshSnapshot();
+    }
+
+    private String nextStudentId() throws IOException {
+        if (idSequence == null) {
+            throw new IOException("Student ID sequence is not available");
+        }
+        return idSequence.nextId();
+    }
+
+    // Full scan of the stored IDs, only used when the sequence file has to be rebuilt
+    static int recoverStudentCounter(StudentRepository store, StudentCsvFile csvFile, int year) {
+        long start = System.nanoTime();
+        try {
+            return loadStudentCounter(store, csvFile, year);
+        } finally {
+            COUNTER_RECOVERY_TIME.recordSince(start);
+        }
+    }
+
+    private static int loadStudentCounter(StudentRepository store, StudentCsvFile csvFile, int year) {
+        String yearPrefix = String.valueOf(year) + "-";
+
+        // Try loading from the primary store first
+        if (store != null) {
+            try {
+                return store.loadMaxCounter(yearPrefix);
+
+            } catch (Exception e) {
+                // Fall back to CSV if the store fails
+                System.err.println("Could not load counter from " + store.getName() + ", trying CSV: " + e.getMessage());
+            }
+        }
+
+        // Fallback: Load from CSV
+        try {
+            return csvFile.loadMaxCounter(yearPrefix);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
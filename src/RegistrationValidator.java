@@ -0,0 +1,300 @@
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Registration rules shared by the Swing form, the headless import and any other
+// caller. validate() returns a bit mask of failed rules and allocates nothing on the
+// common path; messages are only looked up when a caller asks for them. Instances
+// are stateless apart from the cached age bounds and can be shared across threads.
+public class RegistrationValidator {
+
+    public enum Field {
+        FIRST_NAME, LAST_NAME, EMAIL, CONFIRM_EMAIL, PASSWORD, CONFIRM_PASSWORD,
+        DATE_OF_BIRTH, GENDER, DEPARTMENT
+    }
+
+    public enum Rule {
+        FIRST_NAME_REQUIRED(Field.FIRST_NAME, "First name is required", "First name is required"),
+        FIRST_NAME_TOO_LONG(Field.FIRST_NAME, "At most 50 characters", "First name must be at most 50 characters"),
+        FIRST_NAME_INVALID(Field.FIRST_NAME, "Invalid characters", "First name must not contain control characters"),
+        LAST_NAME_REQUIRED(Field.LAST_NAME, "Last name is required", "Last name is required"),
+        LAST_NAME_TOO_LONG(Field.LAST_NAME, "At most 50 characters", "Last name must be at most 50 characters"),
+        LAST_NAME_INVALID(Field.LAST_NAME, "Invalid characters", "Last name must not contain control characters"),
+        EMAIL_REQUIRED(Field.EMAIL, "Email is required", "Email is required"),
+        EMAIL_TOO_LONG(Field.EMAIL, "At most 100 characters", "Email must be at most 100 characters"),
+        EMAIL_INVALID(Field.EMAIL, "Invalid email format", "Invalid email format"),
+        CONFIRM_EMAIL_REQUIRED(Field.CONFIRM_EMAIL, "Confirm email is required", "Confirm email is required"),
+        EMAIL_MISMATCH(Field.CONFIRM_EMAIL, "Emails do not match", "Emails do not match"),
+        PASSWORD_REQUIRED(Field.PASSWORD, "Password is required", "Password is required"),
+        PASSWORD_INVALID(Field.PASSWORD, "8-20 chars, 1 letter, 1 digit",
+            "Password must be 8-20 chars with at least 1 letter and 1 digit"),
+        CONFIRM_PASSWORD_REQUIRED(Field.CONFIRM_PASSWORD, "Confirm password is required", "Confirm password is required"),
+        PASSWORD_MISMATCH(Field.CONFIRM_PASSWORD, "Passwords do not match", "Passwords do not match"),
+        DOB_REQUIRED(Field.DATE_OF_BIRTH, "Complete DOB is required", "Complete date of birth is required"),
+        AGE_OUT_OF_RANGE(Field.DATE_OF_BIRTH, "Age must be 16-60", "Age must be between 16 and 60 years"),
+        GENDER_REQUIRED(Field.GENDER, "Gender is required", "Gender is required"),
+        DEPARTMENT_REQUIRED(Field.DEPARTMENT, "Department is required", "Department is required");
+
+        private final Field field;
+        private final String label;
+        private final String summary;
+
+        Rule(Field field, String label, String summary) {
+            this.field = field;
+            this.label = label;
+            this.summary = summary;
+        }
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        // Short text for the inline error label
+        public String getLabel() {
+            return label;
+        }
+
+        // Longer text for the error summary dialog and import reports
+        public String getSummary() {
+            return summary;
+        }
+    }
+
+    // Epoch-day window of acceptable birth dates, valid until the next local midnight
+    private static final class AgeBounds {
+        final long earliestDob;
+        final long latestDob;
+        final long validUntilMillis;
+
+        AgeBounds(LocalDate today, ZoneId zone) {
+            // Age <= MAX_AGE means born after today minus (MAX_AGE + 1) years
+            this.earliestDob = today.minusYears(MAX_AGE + 1).toEpochDay() + 1;
+            this.latestDob = today.minusYears(MIN_AGE).toEpochDay();
+            this.validUntilMillis = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
+
+    public static final int VALID = 0;
+    public static final int MIN_AGE = 16;
+    public static final int MAX_AGE = 60;
+    public static final int MIN_PASSWORD_LENGTH = 8;
+    public static final int MAX_PASSWORD_LENGTH = 20;
+    // The widths of the FirstName, LastName and Email columns in StudentDatabase
+    public static final int MAX_NAME_LENGTH = 50;
+    public static final int MAX_EMAIL_LENGTH = 100;
+
+    private static final Rule[] RULES = Rule.values();
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private volatile AgeBounds ageBounds = new AgeBounds(LocalDate.now(zone), zone);
+
+    public int validate(RegistrationRequest request) {
+        int failed = VALID;
+
+        String firstName = request.getFirstName();
+        if (isEmpty(firstName)) {
+            failed |= Rule.FIRST_NAME_REQUIRED.bit();
+        } else if (firstName.length() > MAX_NAME_LENGTH) {
+            failed |= Rule.FIRST_NAME_TOO_LONG.bit();
+        } else if (hasControlCharacter(firstName)) {
+            failed |= Rule.FIRST_NAME_INVALID.bit();
+        }
+
+        String lastName = request.getLastName();
+        if (isEmpty(lastName)) {
+            failed |= Rule.LAST_NAME_REQUIRED.bit();
+        } else if (lastName.length() > MAX_NAME_LENGTH) {
+            failed |= Rule.LAST_NAME_TOO_LONG.bit();
+        } else if (hasControlCharacter(lastName)) {
+            failed |= Rule.LAST_NAME_INVALID.bit();
+        }
+
+        String email = request.getEmail();
+        if (isEmpty(email)) {
+            failed |= Rule.EMAIL_REQUIRED.bit();
+        } else if (email.length() > MAX_EMAIL_LENGTH) {
+            failed |= Rule.EMAIL_TOO_LONG.bit();
+        } else if (!isValidEmail(email)) {
+            failed |= Rule.EMAIL_INVALID.bit();
+        }
+
+        String confirmEmail = request.getConfirmEmail();
+        if (isEmpty(confirmEmail)) {
+            failed |= Rule.CONFIRM_EMAIL_REQUIRED.bit();
+        } else if (!confirmEmail.equals(email)) {
+            failed |= Rule.EMAIL_MISMATCH.bit();
+        }
+
+        char[] password = request.getPassword();
+        if (password == null || password.length == 0) {
+            failed |= Rule.PASSWORD_REQUIRED.bit();
+        } else if (!isValidPassword(password)) {
+            failed |= Rule.PASSWORD_INVALID.bit();
+        }
+
+        char[] confirmPassword = request.getConfirmPassword();
+        if (confirmPassword == null || confirmPassword.length == 0) {
+            failed |= Rule.CONFIRM_PASSWORD_REQUIRED.bit();
+        } else if (!Arrays.equals(confirmPassword, password)) {
+            failed |= Rule.PASSWORD_MISMATCH.bit();
+        }
+
+        LocalDate dob = request.getDateOfBirth();
+        if (dob == null) {
+            failed |= Rule.DOB_REQUIRED.bit();
+        } else {
+            AgeBounds bounds = currentAgeBounds();
+            long epochDay = dob.toEpochDay();
+            if (epochDay < bounds.earliestDob || epochDay > bounds.latestDob) {
+                failed |= Rule.AGE_OUT_OF_RANGE.bit();
+            }
+        }
+
+        if (!isGender(request.getGender())) {
+            failed |= Rule.GENDER_REQUIRED.bit();
+        }
+
+        if (!isDepartment(request.getDepartment())) {
+            failed |= Rule.DEPARTMENT_REQUIRED.bit();
+        }
+
+        return failed;
+    }
+
+    public static boolean isValid(int result) {
+        return result == VALID;
+    }
+
+    public static boolean hasFailed(int result, Rule rule) {
+        return (result & rule.bit()) != 0;
+    }
+
+    public static List<Rule> failedRules(int result) {
+        List<Rule> rules = new ArrayList<>(Integer.bitCount(result));
+        for (Rule rule : RULES) {
+            if (hasFailed(result, rule)) {
+                rules.add(rule);
+            }
+        }
+        return rules;
+    }
+
+    public static String summarize(int result, String separator) {
+        StringBuilder summary = new StringBuilder();
+        for (Rule rule : RULES) {
+            if (hasFailed(result, rule)) {
+                if (summary.length() > 0) summary.append(separator);
+                summary.append(rule.getSummary());
+            }
+        }
+        return summary.toString();
+    }
+
+    // Same language as ^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$ without the regex
+    // engine: the top-level domain after the last dot must be two or more letters.
+    static boolean isValidEmail(String email) {
+        int at = email.indexOf('@');
+        if (at <= 0) {
+            return false;
+        }
+        for (int i = 0; i < at; i++) {
+            char c = email.charAt(i);
+            if (!isAlphanumeric(c) && c != '+' && c != '_' && c != '.' && c != '-') {
+                return false;
+            }
+        }
+        int lastDot = -1;
+        for (int i = at + 1; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                lastDot = i;
+            } else if (!isAlphanumeric(c) && c != '-') {
+                return false;
+            }
+        }
+        if (lastDot <= at + 1 || email.length() - lastDot - 1 < 2) {
+            return false;
+        }
+        for (int i = lastDot + 1; i < email.length(); i++) {
+            if (!isLetter(email.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same language as ^(?=.*[A-Za-z])(?=.*\d).{8,20}$: 8-20 characters, no line
+    // terminators, at least one ASCII letter and one digit.
+    static boolean isValidPassword(char[] password) {
+        if (password.length < MIN_PASSWORD_LENGTH || password.length > MAX_PASSWORD_LENGTH) {
+            return false;
+        }
+        boolean letter = false;
+        boolean digit = false;
+        for (char c : password) {
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+            letter |= isLetter(c);
+            digit |= c >= '0' && c <= '9';
+        }
+        return letter && digit;
+    }
+
+    // Line breaks in a name would be quoted in students.csv, which the CSV range
+    // readers cannot split on, and NUL or other control characters have no business
+    // in a name. Gender and department are checked against fixed lists and the email
+    // format allows none of these.
+    static boolean hasControlCharacter(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isISOControl(c) || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AgeBounds currentAgeBounds() {
+        AgeBounds bounds = ageBounds;
+        if (System.currentTimeMillis() >= bounds.validUntilMillis) {
+            bounds = new AgeBounds(LocalDate.now(zone), zone);
+            ageBounds = bounds;
+        }
+        return bounds;
+    }
+
+    private static boolean isGender(String gender) {
+        return "M".equals(gender) || "F".equals(gender);
+    }
+
+    private static boolean isDepartment(String department) {
+        if (department == null) {
+            return false;
+        }
+        switch (department) {
+            case "Civil": case "CSE": case "Electrical": case "E&C": case "Mechanical":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,82 @@
+import javax.swing.*;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+// "All Students": a StudentTableModel in a JTable, with a department and name filter.
+// Clicking a column header sorts by it in the store; clicking again reverses the order.
+public class StudentBrowserPanel extends JPanel {
+
+    private static final String ALL_DEPARTMENTS = "All departments";
+    private static final String[] DEPARTMENTS = {ALL_DEPARTMENTS, "Civil", "CSE", "Electrical", "E&C", "Mechanical"};
+
+    private final StudentTableModel model;
+    private final JTable table;
+    private final JComboBox<String> comboDepartment = new JComboBox<>(DEPARTMENTS);
+    private final JTextField txtName = new JTextField(14);
+    private final JLabel lblStatus = new JLabel(" ");
+
+    public StudentBrowserPanel(StudentRepository store) {
+        super(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        model = new StudentTableModel(store);
+        model.setStatusListener(this::showStatus);
+
+        table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JTableHeader header = table.getTableHeader();
+        header.setReorderingAllowed(false);
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    model.sortBy(column);
+                }
+            }
+        });
+
+        JButton btnSearch = new JButton("Search");
+        JButton btnRefresh = new JButton("Refresh");
+        btnSearch.addActionListener(e -> applyFilter());
+        txtName.addActionListener(e -> applyFilter());
+        comboDepartment.addActionListener(e -> applyFilter());
+        btnRefresh.addActionListener(e -> model.refresh());
+
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        filters.add(new JLabel("Department"));
+        filters.add(comboDepartment);
+        filters.add(new JLabel("Name"));
+        filters.add(txtName);
+        filters.add(btnSearch);
+        filters.add(btnRefresh);
+
+        add(filters, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(lblStatus, BorderLayout.SOUTH);
+        model.refresh();
+    }
+
+    // Stops the page loader; call when the panel is thrown away
+    public void dispose() {
+        model.dispose();
+    }
+
+    private void applyFilter() {
+        String department = (String) comboDepartment.getSelectedItem();
+        StudentQuery current = model.getQuery();
+        model.setQuery(new StudentQuery(current.getSortKey(), current.isDescending(),
+            ALL_DEPARTMENTS.equals(department) ? null : department, txtName.getText()));
+    }
+
+    private void showStatus(String status) {
+        lblStatus.setText(status);
+        // Header values are copied when the columns are created; keep the sort arrow current
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setHeaderValue(model.getColumnName(table.convertColumnIndexToModel(i)));
+        }
+        table.getTableHeader().repaint();
+    }
+}
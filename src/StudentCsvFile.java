@@ -0,0 +1,451 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// The students.csv export shared by the form and the headless import.
+//
+// Appends go through a FileChannel that stays open for the life of the object and a
+// reusable direct buffer, so a registration costs an encode into the buffer rather
+// than opening and closing the file. When rows reach the disk is governed by the
+// Durability policy; with an interval, a shared timer thread syncs rows that no later
+// append does. Fields containing commas, quotes or line breaks are quoted.
+//
+// As a PositionedSink its position is the length of the file, so the journal can cut
+// it back to the last checkpoint instead of appending rows a second time.
+//
+// As a StudentRepository it has no index: counter recovery and one-off reads scan the
+// file. The student browser, which reads it page after page when it stands in for
+// an unavailable store, gets an OffHeapStudentStore copy instead, loaded by the
+// first lookup or page and kept current by appendAll.
+public class StudentCsvFile implements StudentRepository, PersistencePipeline.PositionedSink {
+
+    public static final String HEADER = "StudentID,FirstName,LastName,Gender,Department,DateOfBirth,Email";
+
+    public static final class Durability {
+        private final int rowsPerSync;
+        private final long syncIntervalNanos;
+
+        private Durability(int rowsPerSync, long syncIntervalNanos) {
+            this.rowsPerSync = rowsPerSync;
+            this.syncIntervalNanos = syncIntervalNanos;
+        }
+
+        // Every appended row is on disk when appendAll returns
+        public static Durability everyRow() {
+            return new Durability(1, 0);
+        }
+
+        // Rows are buffered, then written and synced once `rows` have accumulated
+        public static Durability everyRows(int rows) {
+            return new Durability(rows, 0);
+        }
+
+        // Rows are handed to the OS on each append and synced at most once per interval,
+        // by the append after it has passed or, if none comes, by a timer at its end
+        public static Durability interval(long interval, TimeUnit unit) {
+            return new Durability(0, unit.toNanos(interval));
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Longest UTF-8 encoding of a single code point
+    private static final int MAX_BYTES_PER_CODE_POINT = 4;
+    // Syncs rows of interval-durability files that no later append has synced
+    private static final ScheduledExecutorService SYNC_TIMER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "csv-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private final Durability durability;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private int unsyncedRows;
+    private long lastSync = System.nanoTime();
+    private ScheduledFuture<?> scheduledSync;
+    private OffHeapStudentStore copy;
+
+    public StudentCsvFile(String path) {
+        this(path, Durability.everyRow());
+    }
+
+    public StudentCsvFile(String path, Durability durability) {
+        this.file = new File(path);
+        this.durability = durability;
+    }
+
+    @Override
+    public String getName() {
+        return "CSV";
+    }
+
+    // The file and its header are created by the first append
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public void save(StudentRecord record) throws IOException {
+        appendAll(Collections.singletonList(record));
+    }
+
+    // Every row is written or, if the file cannot be, none counts as saved
+    @Override
+    public void saveAll(List<StudentRecord> records, String[] failures) throws IOException {
+        appendAll(records);
+    }
+
+    public synchronized void appendAll(List<StudentRecord> records) throws IOException {
+        ensureOpen();
+        try {
+            encode(records);
+        } catch (IOException e) {
+            // Some of the rows may have been written; the rest are dropped with the
+            // buffer, and the file is read again when needed
+            buffer.clear();
+            copy = null;
+            throw e;
+        }
+        if (copy != null) {
+            for (StudentRecord record : records) {
+                // As in the file, without the password hash
+                copy.append(record.withPasswordHash(null));
+            }
+        }
+
+        if (durability.rowsPerSync > 0) {
+            if (unsyncedRows >= durability.rowsPerSync) {
+                sync();
+            }
+        } else {
+            writeBuffer();
+            long sinceSync = System.nanoTime() - lastSync;
+            if (sinceSync >= durability.syncIntervalNanos) {
+                sync();
+            } else if (scheduledSync == null) {
+                scheduledSync = SYNC_TIMER.schedule(this::syncWhenDue,
+                    durability.syncIntervalNanos - sinceSync, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Timer side of the interval policy: syncs rows still unsynced, or waits again if
+    // an append synced since this was scheduled
+    private synchronized void syncWhenDue() {
+        scheduledSync = null;
+        if (channel == null || unsyncedRows == 0) {
+            return;
+        }
+        long sinceSync = System.nanoTime() - lastSync;
+        if (sinceSync < durability.syncIntervalNanos) {
+            scheduledSync = SYNC_TIMER.schedule(this::syncWhenDue,
+                durability.syncIntervalNanos - sinceSync, TimeUnit.NANOSECONDS);
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Could not sync " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void encode(List<StudentRecord> records) throws IOException {
+        for (StudentRecord record : records) {
+            putField(record.getStudentId());
+            putByte(',');
+            putField(record.getFirstName());
+            putByte(',');
+            putField(record.getLastName());
+            putByte(',');
+            putField(record.getGender());
+            putByte(',');
+            putField(record.getDepartment());
+            putByte(',');
+            putField(record.getDateOfBirth());
+            putByte(',');
+            putField(record.getEmail());
+            putByte('\n');
+            unsyncedRows++;
+        }
+    }
+
+    // The length of the file once everything appended so far is written
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return channel.size() + buffer.position();
+    }
+
+    @Override
+    public synchronized boolean truncate(long position, List<String> studentIds) throws IOException {
+        ensureOpen();
+        sync();
+        long size = channel.size();
+        if (size <= position) {
+            return size == position;
+        }
+        boolean torn;
+        try (FileChannel reader = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            reader.read(last, size - 1);
+            torn = last.get(0) != '\n';
+        }
+        // The rows after position, which is where a row starts; any row that does not
+        // match means the file is left alone
+        int matched = 0;
+        boolean mismatch = false;
+        try (CsvReader reader = CsvReader.open(file.toPath(), CsvReader.DEFAULT_WINDOW_SIZE, position, size)) {
+            while (reader.next()) {
+                if (mismatch) {
+                    return false;
+                }
+                CsvReader.Row row = reader.row();
+                if (matched < studentIds.size() && row.getFieldCount() > 0
+                        && row.field(0).equals(studentIds.get(matched))) {
+                    matched++;
+                } else {
+                    // Only the last row may differ, and only if it was cut short
+                    mismatch = true;
+                }
+            }
+        }
+        if (mismatch && !torn) {
+            return false;
+        }
+        channel.truncate(position);
+        channel.force(true);
+        // The copy may hold the rows that were cut off
+        copy = null;
+        return true;
+    }
+
+    // Writes anything buffered and forces it to disk
+    public synchronized void flush() throws IOException {
+        if (channel != null) {
+            sync();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduledSync != null) {
+            scheduledSync.cancel(false);
+            scheduledSync = null;
+        }
+        if (channel != null) {
+            try {
+                sync();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    @Override
+    public void forEachIdAndEmail(BiConsumer<String, String> consumer) throws IOException {
+        flush();
+        if (!file.exists()) {
+            return;
+        }
+
+        try (CsvReader reader = CsvReader.open(file.toPath())) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                CsvReader.Row row = reader.row();
+                if (row.getFieldCount() == 7) {
+                    consumer.accept(row.field(0), row.field(6));
+                }
+            }
+        }
+    }
+
+    @Override
+    public int loadMaxCounter(String yearPrefix) throws IOException {
+        flush();
+        int maxCounter = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+
+        try (CsvReader reader = CsvReader.open(file.toPath())) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                // Only the ID column is looked at, straight from the mapped bytes
+                CsvReader.Row row = reader.row();
+                if (row.startsWith(0, yearPrefix)) {
+                    int count = row.parseInt(0, yearPrefix.length());
+                    if (count > maxCounter) maxCounter = count;
+                }
+            }
+        }
+        return maxCounter;
+    }
+
+    @Override
+    public StudentRecord findById(String studentId) throws IOException {
+        return copy().findById(studentId);
+    }
+
+    // Both scan forEach, which reads the copy once it is loaded
+    @Override
+    public List<StudentRecord> findPage(StudentQuery query, StudentQuery.Key after, int limit) throws Exception {
+        copy();
+        return StudentQuery.scanPage(this, query, after, limit);
+    }
+
+    @Override
+    public StudentQuery.PageIndex indexPages(StudentQuery query, int pageSize) throws Exception {
+        copy();
+        return StudentQuery.scanIndex(this, query, pageSize);
+    }
+
+    // Reads the file into the off-heap copy the first time
+    private synchronized OffHeapStudentStore copy() throws IOException {
+        if (copy == null) {
+            OffHeapStudentStore loaded = new OffHeapStudentStore();
+            readFile(loaded::append);
+            copy = loaded;
+        }
+        return copy;
+    }
+
+    // From the off-heap copy once there is one, otherwise straight from the file
+    @Override
+    public void forEach(Consumer<StudentRecord> consumer) throws IOException {
+        OffHeapStudentStore loaded;
+        synchronized (this) {
+            loaded = copy;
+        }
+        if (loaded != null) {
+            loaded.forEach(consumer);
+        } else {
+            readFile(consumer);
+        }
+    }
+
+    private void readFile(Consumer<StudentRecord> consumer) throws IOException {
+        flush();
+        if (!file.exists()) {
+            return;
+        }
+
+        try (CsvReader reader = CsvReader.open(file.toPath())) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                CsvReader.Row row = reader.row();
+                if (row.getFieldCount() == 7) {
+                    String[] fields = row.toArray();
+                    consumer.accept(new StudentRecord(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]));
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Write header if file is new
+        if (channel.size() == 0) {
+            for (int i = 0; i < HEADER.length(); i++) {
+                putByte(HEADER.charAt(i));
+            }
+            putByte('\n');
+            sync();
+        }
+    }
+
+    private void putField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = needsQuoting(value);
+        if (quote) {
+            putByte('"');
+        }
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint == '"') {
+                putByte('"');
+            }
+            putCodePoint(codePoint);
+        }
+        if (quote) {
+            putByte('"');
+        }
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void putCodePoint(int codePoint) throws IOException {
+        if (buffer.remaining() < MAX_BYTES_PER_CODE_POINT) {
+            writeBuffer();
+        }
+        if (codePoint < 0x80) {
+            buffer.put((byte) codePoint);
+        } else if (codePoint < 0x800) {
+            buffer.put((byte) (0xC0 | (codePoint >> 6)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else if (Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+            // Unpaired surrogate; encode it the way String.getBytes would
+            buffer.put((byte) '?');
+        } else if (codePoint < 0x10000) {
+            buffer.put((byte) (0xE0 | (codePoint >> 12)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else {
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        }
+    }
+
+    private void putByte(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+        buffer.put((byte) c);
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void sync() throws IOException {
+        writeBuffer();
+        channel.force(false);
+        unsyncedRows = 0;
+        lastSync = System.nanoTime();
+    }
+}
@@ -0,0 +1,417 @@
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Access database holding the Students table, reached through a ConnectionPool.
+public class StudentDatabase implements StudentRepository {
+
+    private static final String TABLE_NAME = "Students";
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE Students (" +
+        "StudentID VARCHAR(15) PRIMARY KEY, " +
+        "FirstName VARCHAR(50) NOT NULL, " +
+        "LastName VARCHAR(50) NOT NULL, " +
+        "Gender VARCHAR(1) NOT NULL, " +
+        "Department VARCHAR(50) NOT NULL, " +
+        "DateOfBirth DATE NOT NULL, " +
+        "Email VARCHAR(100) NOT NULL, " +
+        "PasswordHash VARCHAR(255), " +
+        "StudentKey VARCHAR(20))";
+    // Tables created before passwords were stored get the column on startup
+    private static final String PASSWORD_COLUMN = "PasswordHash";
+    private static final String ADD_PASSWORD_COLUMN_SQL = "ALTER TABLE Students ADD COLUMN PasswordHash VARCHAR(255)";
+    // StudentQuery.sortableId of the StudentID, which sorts 2025-100000 after 2025-99999
+    // as text, so pages are read in ID order through an index. Tables created before it
+    // get the column, filled in, on startup.
+    private static final String KEY_COLUMN = "StudentKey";
+    private static final String ADD_KEY_COLUMN_SQL = "ALTER TABLE Students ADD COLUMN StudentKey VARCHAR(20)";
+    private static final String SELECT_MISSING_KEYS_SQL = "SELECT StudentID FROM Students WHERE StudentKey IS NULL";
+    private static final String UPDATE_KEY_SQL = "UPDATE Students SET StudentKey = ? WHERE StudentID = ?";
+    private static final String CREATE_KEY_INDEX_SQL = "CREATE UNIQUE INDEX StudentKeyIndex ON Students (StudentKey)";
+    private static final String INSERT_STUDENT_SQL =
+        "INSERT INTO Students (StudentID, FirstName, LastName, Gender, Department, DateOfBirth, Email, PasswordHash, " +
+        "StudentKey) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String MAX_COUNTER_SQL = "SELECT StudentID FROM Students WHERE StudentID LIKE ?";
+    private static final String FIND_BY_ID_SQL =
+        "SELECT StudentID, FirstName, LastName, Gender, Department, DateOfBirth, Email " +
+        "FROM Students WHERE StudentID = ?";
+    private static final String SELECT_ALL_SQL =
+        "SELECT StudentID, FirstName, LastName, Gender, Department, DateOfBirth, Email FROM Students";
+    // Rows of the index query are streamed rather than held by the driver all at once
+    private static final int INDEX_FETCH_SIZE = 1000;
+
+    private final ConnectionPool connectionPool;
+
+    public StudentDatabase(String url, int poolSize) {
+        this.connectionPool = new ConnectionPool(url, poolSize);
+    }
+
+    @Override
+    public String getName() {
+        return "Database";
+    }
+
+    @Override
+    public void initialize() throws SQLException {
+        connectionPool.execute(conn -> {
+            // Create Students table if it doesn't exist
+            if (!tableExists(conn.getConnection(), TABLE_NAME)) {
+                try (Statement stmt = conn.getConnection().createStatement()) {
+                    stmt.execute(CREATE_TABLE_SQL);
+                    stmt.execute(CREATE_KEY_INDEX_SQL);
+                }
+            } else {
+                if (!columnExists(conn.getConnection(), TABLE_NAME, PASSWORD_COLUMN)) {
+                    try (Statement stmt = conn.getConnection().createStatement()) {
+                        stmt.execute(ADD_PASSWORD_COLUMN_SQL);
+                    }
+                }
+                if (!columnExists(conn.getConnection(), TABLE_NAME, KEY_COLUMN)) {
+                    addKeyColumn(conn.getConnection());
+                }
+            }
+
+            // Warm the insert statement so the first submit does not pay for it
+            conn.prepare(INSERT_STUDENT_SQL);
+            return null;
+        });
+    }
+
+    // One pass over the IDs, then the index, which the filled-in column must satisfy
+    private static void addKeyColumn(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(ADD_KEY_COLUMN_SQL);
+        }
+        List<String> ids = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_MISSING_KEYS_SQL)) {
+            while (rs.next()) {
+                ids.add(rs.getString(1));
+            }
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_KEY_SQL)) {
+            for (String id : ids) {
+                pstmt.setString(1, StudentQuery.sortableId(id));
+                pstmt.setString(2, id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(CREATE_KEY_INDEX_SQL);
+        }
+    }
+
+    // Access table names are case-insensitive and drivers differ in how they report
+    // them, so list the tables rather than guessing the case of the pattern
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(null, null, "%", new String[] {"TABLE"})) {
+            while (rs.next()) {
+                if (table.equalsIgnoreCase(rs.getString("TABLE_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(null, null, "%", "%")) {
+            while (rs.next()) {
+                if (table.equalsIgnoreCase(rs.getString("TABLE_NAME")) && column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void save(StudentRecord record) throws SQLException {
+        insert(record);
+    }
+
+    @Override
+    public void saveAll(List<StudentRecord> records, String[] failures) throws IOException {
+        try {
+            insertBatch(records, failures);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    public void insert(StudentRecord record) throws SQLException {
+        connectionPool.execute(conn -> {
+            PreparedStatement pstmt = conn.prepare(INSERT_STUDENT_SQL);
+            bind(pstmt, record);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    // Inserts all records with one executeBatch inside a single transaction. If the
+    // batch fails it is rolled back and the rows are retried one by one so that good
+    // rows are kept and each failure is attributed to its own row. Errors that are
+    // not about a row (the database cannot be reached, say) are thrown.
+    public void insertBatch(List<StudentRecord> records, String[] failures) throws SQLException {
+        try {
+            connectionPool.execute(conn -> {
+                Connection connection = conn.getConnection();
+                PreparedStatement pstmt = conn.prepare(INSERT_STUDENT_SQL);
+                connection.setAutoCommit(false);
+                try {
+                    for (StudentRecord record : records) {
+                        bind(pstmt, record);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    pstmt.clearBatch();
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                return null;
+            });
+        } catch (BatchUpdateException e) {
+            insertIndividually(records, failures);
+        } catch (SQLException e) {
+            if (!isRowError(e)) {
+                throw e;
+            }
+            if (records.size() > 1) {
+                insertIndividually(records, failures);
+            } else {
+                failures[0] = e.getMessage();
+            }
+        }
+    }
+
+    // A value the column cannot hold (SQLSTATE class 22) or a broken constraint, such
+    // as a duplicate key (class 23), as opposed to the database being unavailable
+    private static boolean isRowError(SQLException e) {
+        if (e instanceof SQLDataException || e instanceof SQLIntegrityConstraintViolationException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    @Override
+    public int loadMaxCounter(String yearPrefix) throws SQLException {
+        return connectionPool.execute(conn -> {
+            PreparedStatement pstmt = conn.prepare(MAX_COUNTER_SQL);
+            pstmt.setString(1, yearPrefix + "%");
+            int max = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String id = rs.getString("StudentID");
+                    try {
+                        int count = Integer.parseInt(id.substring(5));
+                        if (count > max) max = count;
+                    } catch (Exception e) {}
+                }
+            }
+            return max;
+        });
+    }
+
+    @Override
+    public void forEachIdAndEmail(BiConsumer<String, String> consumer) throws SQLException {
+        connectionPool.execute(conn -> {
+            try (Statement stmt = conn.getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT StudentID, Email FROM Students")) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public StudentRecord findById(String studentId) throws SQLException {
+        return connectionPool.execute(conn -> {
+            PreparedStatement pstmt = conn.prepare(FIND_BY_ID_SQL);
+            pstmt.setString(1, studentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return toRecord(rs);
+            }
+        });
+    }
+
+    // A forward-only, read-only cursor fetched in batches, so reports and exports over
+    // the whole table do not buffer it
+    @Override
+    public void forEach(Consumer<StudentRecord> consumer) throws SQLException {
+        connectionPool.execute(conn -> {
+            try (Statement stmt = conn.getConnection().createStatement(
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(INDEX_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery(SELECT_ALL_SQL)) {
+                    while (rs.next()) {
+                        consumer.accept(toRecord(rs));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Keyset page: WHERE <filter> AND (sort, StudentKey) > (after) ORDER BY sort, StudentKey
+    @Override
+    public List<StudentRecord> findPage(StudentQuery query, StudentQuery.Key after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_ALL_SQL);
+        appendWhere(sql, query, after);
+        appendOrderBy(sql, query);
+        return connectionPool.execute(conn -> {
+            PreparedStatement pstmt = conn.prepare(sql.toString());
+            bindWhere(pstmt, query, after);
+            pstmt.setMaxRows(limit);
+            List<StudentRecord> page = new ArrayList<>(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(toRecord(rs));
+                }
+            }
+            return page;
+        });
+    }
+
+    // Streams only the sort column and the ID of the matching rows, keeping every
+    // pageSize-th key
+    @Override
+    public StudentQuery.PageIndex indexPages(StudentQuery query, int pageSize) throws SQLException {
+        String column = query.getSortKey().getColumn();
+        StringBuilder sql = new StringBuilder("SELECT ").append(column).append(", StudentID FROM Students");
+        appendWhere(sql, query, null);
+        appendOrderBy(sql, query);
+        return connectionPool.execute(conn -> {
+            PreparedStatement pstmt = conn.prepare(sql.toString());
+            bindWhere(pstmt, query, null);
+            pstmt.setMaxRows(0);
+            pstmt.setFetchSize(INDEX_FETCH_SIZE);
+            List<StudentQuery.Key> pageEnds = new ArrayList<>();
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (++count % pageSize == 0) {
+                        pageEnds.add(new StudentQuery.Key(rs.getString(1), rs.getString(2)));
+                    }
+                }
+            }
+            return new StudentQuery.PageIndex(count, pageEnds);
+        });
+    }
+
+    private static void appendWhere(StringBuilder sql, StudentQuery query, StudentQuery.Key after) {
+        List<String> conditions = new ArrayList<>();
+        if (query.getDepartment() != null) {
+            conditions.add("Department = ?");
+        }
+        if (query.getNameFilter() != null) {
+            // InStr rather than LIKE, so the filter needs no wildcard escaping
+            conditions.add("(InStr(LCase(FirstName), ?) > 0 OR InStr(LCase(LastName), ?) > 0)");
+        }
+        if (after != null) {
+            String op = query.isDescending() ? "<" : ">";
+            String column = query.getSortKey().getColumn();
+            conditions.add(query.getSortKey() == StudentQuery.SortKey.STUDENT_ID
+                ? "StudentKey " + op + " ?"
+                : "(" + column + " " + op + " ? OR (" + column + " = ? AND StudentKey " + op + " ?))");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+    }
+
+    private static void appendOrderBy(StringBuilder sql, StudentQuery query) {
+        String direction = query.isDescending() ? " DESC" : "";
+        sql.append(" ORDER BY ");
+        if (query.getSortKey() != StudentQuery.SortKey.STUDENT_ID) {
+            sql.append(query.getSortKey().getColumn()).append(direction).append(", ");
+        }
+        sql.append("StudentKey").append(direction);
+    }
+
+    private static void bindWhere(PreparedStatement pstmt, StudentQuery query, StudentQuery.Key after)
+            throws SQLException {
+        int index = 1;
+        if (query.getDepartment() != null) {
+            pstmt.setString(index++, query.getDepartment());
+        }
+        if (query.getNameFilter() != null) {
+            pstmt.setString(index++, query.getNameFilter());
+            pstmt.setString(index++, query.getNameFilter());
+        }
+        if (after != null) {
+            if (query.getSortKey() != StudentQuery.SortKey.STUDENT_ID) {
+                pstmt.setString(index++, after.getValue());
+                pstmt.setString(index++, after.getValue());
+            }
+            pstmt.setString(index, StudentQuery.sortableId(after.getStudentId()));
+        }
+    }
+
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
+
+    private void insertIndividually(List<StudentRecord> records, String[] failures) throws SQLException {
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                insert(records.get(i));
+            } catch (SQLException e) {
+                if (!isRowError(e)) {
+                    throw e;
+                }
+                failures[i] = e.getMessage();
+            }
+        }
+    }
+
+    private static StudentRecord toRecord(ResultSet rs) throws SQLException {
+        return new StudentRecord(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+            rs.getString(5), rs.getDate(6).toLocalDate().toString(), rs.getString(7));
+    }
+
+    private static void bind(PreparedStatement pstmt, StudentRecord record) throws SQLException {
+        pstmt.setString(1, record.getStudentId());
+        pstmt.setString(2, record.getFirstName());
+        pstmt.setString(3, record.getLastName());
+        pstmt.setString(4, record.getGender());
+        pstmt.setString(5, record.getDepartment());
+        pstmt.setDate(6, java.sql.Date.valueOf(record.getDateOfBirth()));
+        pstmt.setString(7, record.getEmail());
+        if (record.getPasswordHash() != null) {
+            pstmt.setString(8, record.getPasswordHash());
+        } else {
+            pstmt.setNull(8, Types.VARCHAR);
+        }
+        pstmt.setString(9, StudentQuery.sortableId(record.getStudentId()));
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Writes the students a StudentQuery's filter matches to a CSV file (the same format as
+// students.csv) or a JSON array, streaming from StudentRepository.forEach so only one
+// batch of records is held at a time. Password hashes are never exported.
+public final class StudentExport {
+
+    private static final int BATCH_SIZE = 1000;
+
+    public enum Format {
+        CSV, JSON;
+
+        // From the output file's extension
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".json")) {
+                return JSON;
+            }
+            throw new IllegalArgumentException("Cannot tell the format of " + file + ", expected .csv or .json");
+        }
+    }
+
+    private StudentExport() {
+    }
+
+    // Replaces `out` with the matching students and returns how many were written
+    public static long export(StudentRepository source, StudentQuery filter, Path out, Format format) throws Exception {
+        Files.deleteIfExists(out);
+        try {
+            return format == Format.CSV ? exportCsv(source, filter, out) : exportJson(source, filter, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long exportCsv(StudentRepository source, StudentQuery filter, Path out) throws Exception {
+        // Synced once at the end; a half-written export is simply rerun
+        StudentCsvFile csv = new StudentCsvFile(out.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.HOURS));
+        List<StudentRecord> batch = new ArrayList<>(BATCH_SIZE);
+        long[] written = new long[1];
+        try {
+            source.forEach(record -> {
+                if (!filter.matches(record)) {
+                    return;
+                }
+                batch.add(record);
+                if (batch.size() == BATCH_SIZE) {
+                    append(csv, batch);
+                    written[0] += BATCH_SIZE;
+                }
+            });
+            written[0] += batch.size();
+            append(csv, batch);
+        } finally {
+            csv.close();
+        }
+        if (written[0] == 0) {
+            // No first append, so no header yet
+            Files.write(out, (StudentCsvFile.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return written[0];
+    }
+
+    private static void append(StudentCsvFile csv, List<StudentRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            csv.appendAll(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.clear();
+    }
+
+    private static long exportJson(StudentRepository source, StudentQuery filter, Path out) throws Exception {
+        long[] written = new long[1];
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            writer.write('[');
+            source.forEach(record -> {
+                if (!filter.matches(record)) {
+                    return;
+                }
+                try {
+                    writer.write(written[0]++ == 0 ? "\n" : ",\n");
+                    writer.write(Json.write(RegistrationServer.toJson(record)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.write(written[0] == 0 ? "]\n" : "\n]\n");
+        }
+        return written[0];
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+// Persisted student ID sequence kept in a small memory-mapped file, so startup reads
+// one 16-byte header instead of scanning every stored ID. The file is only rebuilt
+// from the stored data when it is missing or fails its checksum.
+//
+// Layout: magic, year, counter, CRC32 of the first 12 bytes.
+public class StudentIdSequence implements AutoCloseable {
+
+    public interface CounterRecovery {
+        // Returns the highest counter already used for the given year
+        int loadMaxCounter(int year) throws Exception;
+    }
+
+    private static final int MAGIC = 0x53494431; // "SID1"
+    private static final int FILE_SIZE = 16;
+    private static final int YEAR_OFFSET = 4;
+    private static final int COUNTER_OFFSET = 8;
+    private static final int CHECKSUM_OFFSET = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CounterRecovery recovery;
+    private int year;
+    private int counter;
+
+    private StudentIdSequence(FileChannel channel, MappedByteBuffer buffer, CounterRecovery recovery) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.recovery = recovery;
+    }
+
+    public static StudentIdSequence open(Path file, CounterRecovery recovery) throws IOException {
+        boolean existed = Files.exists(file) && Files.size(file) == FILE_SIZE;
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            StudentIdSequence sequence = new StudentIdSequence(channel, buffer, recovery);
+            FileLock lock = channel.lock();
+            try {
+                if (!existed || !sequence.readHeader()) {
+                    System.err.println("Student ID sequence " + file + " missing or corrupt, rebuilding from data");
+                    sequence.rebuild(LocalDate.now().getYear());
+                }
+            } finally {
+                lock.release();
+            }
+            return sequence;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Allocates the next ID for the current year. Safe for concurrent callers in this
+    // process; the file lock also serializes allocators in other processes.
+    public synchronized String nextId() throws IOException {
+        return nextIds(1)[0];
+    }
+
+    // Allocates a contiguous block of IDs under a single lock, for bulk writers. The
+    // header is forced before the IDs are handed out, so a crash of the machine cannot
+    // bring back a counter below IDs that were already stored.
+    public synchronized String[] nextIds(int count) throws IOException {
+        int currentYear = LocalDate.now().getYear();
+        FileLock lock = channel.lock();
+        try {
+            // Another process may have advanced the counter since our last allocation
+            if (!readHeader()) {
+                rebuild(currentYear);
+            }
+            if (year != currentYear) {
+                year = currentYear;
+                counter = 0;
+            }
+            int first = counter + 1;
+            counter += count;
+            writeHeader();
+            buffer.force();
+
+            String[] ids = new String[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = String.format("%d-%05d", year, first + i);
+            }
+            return ids;
+        } finally {
+            lock.release();
+        }
+    }
+
+    public synchronized int getCounter() {
+        return counter;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private boolean readHeader() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(CHECKSUM_OFFSET) != checksum()) {
+            return false;
+        }
+        year = buffer.getInt(YEAR_OFFSET);
+        counter = buffer.getInt(COUNTER_OFFSET);
+        return counter >= 0;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(YEAR_OFFSET, year);
+        buffer.putInt(COUNTER_OFFSET, counter);
+        buffer.putInt(CHECKSUM_OFFSET, checksum());
+    }
+
+    private int checksum() {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < CHECKSUM_OFFSET; i++) {
+            crc.update(buffer.get(i));
+        }
+        return (int) crc.getValue();
+    }
+
+    private void rebuild(int currentYear) throws IOException {
+        int max;
+        try {
+            max = recovery.loadMaxCounter(currentYear);
+        } catch (Exception e) {
+            throw new IOException("Could not rebuild student ID sequence: " + e.getMessage(), e);
+        }
+        year = currentYear;
+        counter = max;
+        writeHeader();
+        buffer.force();
+    }
+}
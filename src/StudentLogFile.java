@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Embedded append-only store: every student is one checksummed entry at the end of a
+// single file, and an in-memory index maps each StudentID to the offset of its entry.
+// Inserts are sequential writes with one fsync per batch, lookups are one positional
+// read, and nothing is ever rewritten in place.
+//
+// Entries are ChecksummedLog entries holding a RecordCodec-encoded record. The index
+// is rebuilt by reading the file on initialize(); a torn entry at the end (a crash
+// mid-write) is cut off, since it was never acknowledged.
+public class StudentLogFile implements StudentRepository {
+
+    private final ChecksummedLog log;
+    private final ConcurrentHashMap<String, Long> offsetById = new ConcurrentHashMap<>();
+    // Highest counter in the index per year prefix ("2025-"), kept up as IDs are added
+    // so that rebuilding the ID sequence does not walk every key
+    private final ConcurrentHashMap<String, Integer> maxCounterByPrefix = new ConcurrentHashMap<>();
+    private final RecordCodec codec = new RecordCodec();
+    // The index sorted by ID, taken by indexPages() for browsing in ID order; students
+    // saved afterwards appear once the browser indexes its query again
+    private volatile SortedIds sortedIds;
+
+    private static final class SortedIds {
+        final String[] ids;
+        final long[] offsets;
+
+        SortedIds(String[] ids, long[] offsets) {
+            this.ids = ids;
+            this.offsets = offsets;
+        }
+    }
+
+    public StudentLogFile(Path path) {
+        this.log = new ChecksummedLog(path);
+    }
+
+    @Override
+    public String getName() {
+        return "Log";
+    }
+
+    @Override
+    public synchronized void initialize() throws IOException {
+        if (log.isOpen()) {
+            return;
+        }
+        offsetById.clear();
+        maxCounterByPrefix.clear();
+        log.open((offset, entry, length) -> {
+            String id = RecordCodec.decode(entry, 0, length).getStudentId();
+            offsetById.put(id, offset);
+            noteCounter(id);
+        });
+    }
+
+    @Override
+    public void save(StudentRecord record) throws Exception {
+        String[] failures = new String[1];
+        saveAll(List.of(record), failures);
+        if (failures[0] != null) {
+            throw new IOException(failures[0]);
+        }
+    }
+
+    // Appends the batch and forces it to disk once. A StudentID that is already stored
+    // fails that row only; an I/O error rolls the batch back and is thrown.
+    @Override
+    public synchronized void saveAll(List<StudentRecord> records, String[] failures) throws IOException {
+        Map<String, Long> added = new LinkedHashMap<>();
+        long batchStart = log.end();
+        try {
+            initialize();
+            batchStart = log.end();
+            for (int i = 0; i < records.size(); i++) {
+                StudentRecord record = records.get(i);
+                String id = record.getStudentId();
+                if (offsetById.containsKey(id) || added.containsKey(id)) {
+                    failures[i] = "Duplicate StudentID " + id;
+                    continue;
+                }
+                if (!codec.encode(record, 0)) {
+                    failures[i] = "A field of " + id + " is longer than " + RecordCodec.MAX_FIELD_BYTES + " bytes";
+                    continue;
+                }
+                added.put(id, log.append(codec.bytes(), codec.length()));
+            }
+            log.commit();
+        } catch (IOException e) {
+            if (log.isOpen()) {
+                log.rollBack(batchStart);
+            }
+            throw e;
+        }
+
+        // Only index entries that are on disk, so lookups never see a rolled-back row
+        offsetById.putAll(added);
+        for (String id : added.keySet()) {
+            noteCounter(id);
+        }
+    }
+
+    @Override
+    public int loadMaxCounter(String yearPrefix) {
+        return maxCounterByPrefix.getOrDefault(yearPrefix, 0);
+    }
+
+    private void noteCounter(String id) {
+        int dash = id.indexOf('-');
+        if (dash < 0) {
+            return;
+        }
+        int counter;
+        try {
+            counter = Integer.parseInt(id, dash + 1, id.length(), 10);
+        } catch (NumberFormatException e) {
+            // Not one of ours
+            return;
+        }
+        maxCounterByPrefix.merge(id.substring(0, dash + 1), counter, Math::max);
+    }
+
+    @Override
+    public void forEachIdAndEmail(BiConsumer<String, String> consumer) throws IOException {
+        log.scan(0, committedEnd(), (offset, entry, length) -> {
+            StudentRecord record = RecordCodec.decode(entry, 0, length);
+            consumer.accept(record.getStudentId(), record.getEmail());
+        });
+    }
+
+    @Override
+    public StudentRecord findById(String studentId) throws IOException {
+        Long offset = offsetById.get(studentId);
+        if (offset == null) {
+            return null;
+        }
+        byte[] entry = log.read(offset);
+        return RecordCodec.decode(entry, 0, entry.length);
+    }
+
+    // The students saved before the call, read without holding the lock, so batches
+    // are saved while a snapshot or index is built from the log
+    @Override
+    public void forEach(Consumer<StudentRecord> consumer) throws IOException {
+        log.scan(0, committedEnd(), (offset, entry, length) -> consumer.accept(RecordCodec.decode(entry, 0, length)));
+    }
+
+    // saveAll commits before it releases the lock, so the end seen under it is on disk
+    private synchronized long committedEnd() throws IOException {
+        initialize();
+        return log.end();
+    }
+
+    // In ID order the page is read straight from the sorted index; other orders scan
+    // the log
+    @Override
+    public List<StudentRecord> findPage(StudentQuery query, StudentQuery.Key after, int limit) throws Exception {
+        if (query.getSortKey() != StudentQuery.SortKey.STUDENT_ID) {
+            return StudentRepository.super.findPage(query, after, limit);
+        }
+        SortedIds sorted = sortedIds;
+        if (sorted == null) {
+            sorted = sortIds();
+        }
+        boolean descending = query.isDescending();
+        int step = descending ? -1 : 1;
+        int i;
+        if (after == null) {
+            i = descending ? sorted.ids.length - 1 : 0;
+        } else {
+            int found = Arrays.binarySearch(sorted.ids, after.getStudentId(), StudentQuery::compareIds);
+            // The first ID past `after`, whether or not it is in the snapshot
+            i = found >= 0 ? found + step : (descending ? -found - 2 : -found - 1);
+        }
+        List<StudentRecord> page = new ArrayList<>(limit);
+        for (; i >= 0 && i < sorted.ids.length && page.size() < limit; i += step) {
+            byte[] entry = log.read(sorted.offsets[i]);
+            StudentRecord record = RecordCodec.decode(entry, 0, entry.length);
+            if (query.matches(record)) {
+                page.add(record);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public StudentQuery.PageIndex indexPages(StudentQuery query, int pageSize) throws Exception {
+        if (query.getSortKey() != StudentQuery.SortKey.STUDENT_ID) {
+            return StudentRepository.super.indexPages(query, pageSize);
+        }
+        if (query.isFiltered()) {
+            // findPage() sorts the index afresh when it is first asked for a page
+            sortedIds = null;
+            return StudentRepository.super.indexPages(query, pageSize);
+        }
+        SortedIds sorted = sortIds();
+        int count = sorted.ids.length;
+        List<StudentQuery.Key> pageEnds = new ArrayList<>(count / pageSize);
+        for (int n = pageSize; n <= count; n += pageSize) {
+            String id = sorted.ids[query.isDescending() ? count - n : n - 1];
+            pageEnds.add(new StudentQuery.Key(id, id));
+        }
+        return new StudentQuery.PageIndex(count, pageEnds);
+    }
+
+    private SortedIds sortIds() {
+        String[] ids = offsetById.keySet().toArray(new String[0]);
+        Arrays.sort(ids, StudentQuery::compareIds);
+        long[] offsets = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i] = offsetById.get(ids[i]);
+        }
+        SortedIds sorted = new SortedIds(ids, offsets);
+        sortedIds = sorted;
+        return sorted;
+    }
+
+    public int size() {
+        return offsetById.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+}
@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+// What the student browser shows: an optional department and name filter and a sort
+// order. Pages are found by keyset: a page starts after the Key (sort value, StudentID)
+// of the last row of the page before it, so no store ever has to skip rows.
+//
+// StudentIDs are in compareIds order, by year and then counter, so that 2025-100000
+// comes after 2025-99999.
+public final class StudentQuery {
+
+    public enum SortKey {
+        STUDENT_ID("StudentID"),
+        FIRST_NAME("FirstName"),
+        LAST_NAME("LastName"),
+        DEPARTMENT("Department");
+
+        private final String column;
+
+        SortKey(String column) {
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        String valueOf(StudentRecord record) {
+            switch (this) {
+                case FIRST_NAME: return record.getFirstName();
+                case LAST_NAME: return record.getLastName();
+                case DEPARTMENT: return record.getDepartment();
+                default: return record.getStudentId();
+            }
+        }
+    }
+
+    // Position of a row in query order. For STUDENT_ID the value is the ID itself.
+    public static final class Key {
+        private final String value;
+        private final String studentId;
+
+        public Key(String value, String studentId) {
+            this.value = value;
+            this.studentId = studentId;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+    }
+
+    // Row count of a query and the key of the last row of each full page
+    public static final class PageIndex {
+        private final int rowCount;
+        private final List<Key> pageEnds;
+
+        public PageIndex(int rowCount, List<Key> pageEnds) {
+            this.rowCount = rowCount;
+            this.pageEnds = pageEnds;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        // The key page `page` starts after; null for the first page
+        public Key after(int page) {
+            return page == 0 ? null : pageEnds.get(page - 1);
+        }
+    }
+
+    public static final StudentQuery ALL = new StudentQuery(SortKey.STUDENT_ID, false, null, null);
+
+    // Digits of the counter in sortableId, enough for any int
+    private static final int SORTABLE_DIGITS = 10;
+
+    private final SortKey sortKey;
+    private final boolean descending;
+    private final String department;
+    private final String nameFilter;
+
+    // department and nameFilter are null (or empty) for no filter; the name filter
+    // matches a first or last name containing it, ignoring case
+    public StudentQuery(SortKey sortKey, boolean descending, String department, String nameFilter) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.department = department == null || department.isEmpty() ? null : department;
+        this.nameFilter = nameFilter == null || nameFilter.trim().isEmpty()
+            ? null : nameFilter.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    // Lower case, or null
+    public String getNameFilter() {
+        return nameFilter;
+    }
+
+    public StudentQuery sortedBy(SortKey key, boolean descending) {
+        return new StudentQuery(key, descending, department, nameFilter);
+    }
+
+    public boolean isFiltered() {
+        return department != null || nameFilter != null;
+    }
+
+    public boolean matches(StudentRecord record) {
+        if (department != null && !department.equals(record.getDepartment())) {
+            return false;
+        }
+        return nameFilter == null || containsName(record.getFirstName()) || containsName(record.getLastName());
+    }
+
+    public Key keyOf(StudentRecord record) {
+        return new Key(sortKey.valueOf(record), record.getStudentId());
+    }
+
+    // Negative if the record comes before the key in query order
+    public int compare(StudentRecord record, Key key) {
+        return compare(sortKey.valueOf(record), record.getStudentId(), key.value, key.studentId);
+    }
+
+    private int compare(Key a, Key b) {
+        return compare(a.value, a.studentId, b.value, b.studentId);
+    }
+
+    private int compare(String value, String studentId, String otherValue, String otherId) {
+        int order = sortKey == SortKey.STUDENT_ID ? 0 : value.compareTo(otherValue);
+        if (order == 0) {
+            order = compareIds(studentId, otherId);
+        }
+        return descending ? -order : order;
+    }
+
+    // StudentID order: the year, then the counter, as numbers. Counters are padded to
+    // five digits and have no other leading zeros, so that is the text up to the dash,
+    // then the length, then the text.
+    public static int compareIds(String a, String b) {
+        int prefixA = a.indexOf('-') + 1;
+        int prefixB = b.indexOf('-') + 1;
+        for (int i = 0; i < prefixA && i < prefixB; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return a.charAt(i) - b.charAt(i);
+            }
+        }
+        if (prefixA != prefixB) {
+            return prefixA - prefixB;
+        }
+        if (a.length() != b.length()) {
+            return a.length() - b.length();
+        }
+        return a.compareTo(b);
+    }
+
+    // The ID with its counter padded to ten digits, whose text order is compareIds
+    // order; StudentDatabase keeps it in an indexed column to page on
+    public static String sortableId(String studentId) {
+        int dash = studentId.indexOf('-') + 1;
+        int digits = studentId.length() - dash;
+        if (digits >= SORTABLE_DIGITS) {
+            return studentId;
+        }
+        StringBuilder sortable = new StringBuilder(dash + SORTABLE_DIGITS).append(studentId, 0, dash);
+        for (int i = digits; i < SORTABLE_DIGITS; i++) {
+            sortable.append('0');
+        }
+        return sortable.append(studentId, dash, studentId.length()).toString();
+    }
+
+    private boolean containsName(String name) {
+        return name != null && name.toLowerCase(Locale.ROOT).contains(nameFilter);
+    }
+
+    // Default StudentSource.findPage for stores without an index on the sort key:
+    // one pass over every record, keeping the `limit` smallest after the key in a heap
+    static List<StudentRecord> scanPage(StudentSource store, StudentQuery query, Key after, int limit)
+            throws Exception {
+        Comparator<StudentRecord> order = (a, b) -> query.compare(a, query.keyOf(b));
+        PriorityQueue<StudentRecord> page = new PriorityQueue<>(limit + 1, order.reversed());
+        store.forEach(record -> {
+            if (!query.matches(record) || (after != null && query.compare(record, after) <= 0)) {
+                return;
+            }
+            if (page.size() < limit) {
+                page.add(record);
+            } else if (order.compare(record, page.peek()) < 0) {
+                page.poll();
+                page.add(record);
+            }
+        });
+        List<StudentRecord> sorted = new ArrayList<>(page);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    // Default StudentSource.indexPages: sorts the keys of every matching record.
+    // Only the page ends are kept, but the sort needs all keys for a moment.
+    static PageIndex scanIndex(StudentSource store, StudentQuery query, int pageSize) throws Exception {
+        List<Key> keys = new ArrayList<>();
+        store.forEach(record -> {
+            if (query.matches(record)) {
+                keys.add(query.keyOf(record));
+            }
+        });
+        keys.sort(query::compare);
+        return index(keys, pageSize);
+    }
+
+    // Page ends of keys already in query order
+    static PageIndex index(List<Key> sortedKeys, int pageSize) {
+        List<Key> pageEnds = new ArrayList<>();
+        for (int i = pageSize - 1; i < sortedKeys.size(); i += pageSize) {
+            pageEnds.add(sortedKeys.get(i));
+        }
+        return new PageIndex(sortedKeys.size(), Collections.unmodifiableList(pageEnds));
+    }
+}
@@ -0,0 +1,502 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Finds where students.csv and the primary store have drifted apart. Each registration
+// is saved to both separately, so one can fail while the other succeeds ("Will save
+// to CSV only").
+//
+// Both sides are streamed in StudentID order and merge-joined, so memory does not grow
+// with the number of students. The store is read a page at a time through findPage,
+// which seeks on the ID. The CSV file is in registration order, which is ID order
+// except for rows appended later (repairs, mostly): a first pass finds where the
+// file's ascending runs start, and the second merges the runs, one reader each. If
+// there are more than MAX_RUNS, groups of them are first merged into temporary files
+// beside the CSV file, so that no more readers than that are open at once. IDs are
+// compared as StudentQuery.compareIds does, which is the order the stores page in.
+//
+// Students on one side only, students with different fields on each side and IDs
+// repeated in the CSV file are reported. With repair, the students missing from a side
+// are copied to it in batches; differing students are only reported, as there is no
+// telling which side is right. A checkpoint file records the highest StudentID
+// reconciled and how far the CSV file was read, and the next run starts from there.
+// CSV rows appended since then with an older ID are looked up in the store one by one.
+public final class StudentReconciler {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final long WINDOW_BYTES = 16L << 20;
+    // Runs read side by side, each with a reader and its mapping window
+    private static final int MAX_RUNS = 32;
+    private static final Comparator<Run> RUN_ORDER =
+        (a, b) -> StudentQuery.compareIds(a.head.getStudentId(), b.head.getStudentId());
+    private static final String CHECKPOINT_ID = "StudentID";
+    private static final String CHECKPOINT_OFFSET = "CsvOffset";
+
+    // Where the last run stopped: the highest ID compared and the CSV size after it
+    private static final class Checkpoint {
+        final String studentId;
+        final long csvOffset;
+
+        Checkpoint(String studentId, long csvOffset) {
+            this.studentId = studentId;
+            this.csvOffset = csvOffset;
+        }
+
+        // null if there is no checkpoint or it cannot be read
+        static Checkpoint read(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            String studentId = null;
+            long csvOffset = -1;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int equals = line.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                String value = line.substring(equals + 1);
+                if (line.startsWith(CHECKPOINT_ID + "=")) {
+                    studentId = value.isEmpty() ? null : value;
+                } else if (line.startsWith(CHECKPOINT_OFFSET + "=")) {
+                    try {
+                        csvOffset = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        csvOffset = -1;
+                    }
+                }
+            }
+            if (csvOffset < 0) {
+                System.err.println("Reconciliation checkpoint " + file + " is corrupt, checking every student");
+                return null;
+            }
+            return new Checkpoint(studentId, csvOffset);
+        }
+
+        void write(Path file) throws IOException {
+            String text = CHECKPOINT_ID + "=" + (studentId == null ? "" : studentId) + "\n"
+                + CHECKPOINT_OFFSET + "=" + csvOffset + "\n";
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // Where the rows of an ascending run are: from start, where a row begins, to end
+    private static final class Span {
+        final Path file;
+        final long start;
+        final long end;
+
+        Span(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // The rows of one ascending run of the CSV file
+    private static final class Run implements AutoCloseable {
+        private final CsvReader reader;
+        private StudentRecord head;
+
+        Run(Span span) throws IOException {
+            this.reader = CsvReader.open(span.file, WINDOW_BYTES, span.start, span.end);
+        }
+
+        // Moves head to the next student of the run; false at its end
+        boolean advance() throws IOException {
+            while (reader.next()) {
+                CsvReader.Row row = reader.row();
+                if (row.getFieldCount() == 7) {
+                    String[] fields = row.toArray();
+                    head = new StudentRecord(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]);
+                    return true;
+                }
+            }
+            head = null;
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private final Path csvPath;
+    private final StudentRepository store;
+    // Only when repairing
+    private final StudentCsvFile csvFile;
+    private final Consumer<String> report;
+    private final List<StudentRecord> toStore = new ArrayList<>(BATCH_SIZE);
+    private final List<StudentRecord> toCsv = new ArrayList<>(BATCH_SIZE);
+    private List<StudentRecord> storePage = new ArrayList<>();
+    private int storeIndex;
+    private StudentQuery.Key storeAfter;
+    private boolean storeDone;
+    private String lastCsvId;
+    private String highestId;
+    private long compared;
+    private long differing;
+    private long onlyInCsv;
+    private long onlyInStore;
+    private long repeated;
+    private long addedToStore;
+    private long addedToCsv;
+    private long failed;
+
+    private StudentReconciler(Path csvPath, StudentRepository store, StudentCsvFile csvFile, Consumer<String> report) {
+        this.csvPath = csvPath;
+        this.store = store;
+        this.csvFile = csvFile;
+        this.report = report;
+    }
+
+    // Reconciles the CSV file with the (initialized) store from the checkpoint on, or
+    // from the start if there is none, and moves the checkpoint to where it stopped.
+    // Each difference is handed to report as a line of text.
+    public static StudentReconciler run(Path csv, StudentRepository store, Path checkpointFile, boolean repair,
+                                        Consumer<String> report) throws Exception {
+        Checkpoint from = Checkpoint.read(checkpointFile);
+        long end = Files.exists(csv) ? Files.size(csv) : 0;
+        if (from != null && from.csvOffset > end) {
+            System.err.println(csv + " is shorter than when it was last reconciled, checking every student");
+            from = null;
+        }
+        // Synced once a second and on close, like an import
+        StudentCsvFile csvFile = repair
+            ? new StudentCsvFile(csv.toString(), StudentCsvFile.Durability.interval(1, TimeUnit.SECONDS)) : null;
+        StudentReconciler reconciler = new StudentReconciler(csv, store, csvFile, report);
+        try {
+            reconciler.reconcile(from == null ? null : from.studentId, from == null ? 0 : from.csvOffset, end);
+        } finally {
+            if (csvFile != null) {
+                csvFile.close();
+            }
+        }
+        // Rows the repair appended have been reconciled too
+        long reconciledTo = repair && Files.exists(csv) ? Files.size(csv) : end;
+        String highest = reconciler.highestId;
+        if (from != null && (highest == null
+                || (from.studentId != null && StudentQuery.compareIds(from.studentId, highest) > 0))) {
+            highest = from.studentId;
+        }
+        new Checkpoint(highest, reconciledTo).write(checkpointFile);
+        return reconciler;
+    }
+
+    private void reconcile(String after, long start, long end) throws Exception {
+        List<Span> spans = findRuns(csvPath, start, end);
+        List<Path> merged = new ArrayList<>();
+        PriorityQueue<Run> runs = new PriorityQueue<>(RUN_ORDER);
+        try {
+            while (spans.size() > MAX_RUNS) {
+                spans = mergeRuns(spans, merged);
+            }
+            openRuns(spans, runs);
+            if (after != null) {
+                storeAfter = new StudentQuery.Key(after, after);
+            }
+            StudentRecord stored = nextStored();
+            while (!runs.isEmpty() || stored != null) {
+                StudentRecord inCsv = runs.isEmpty() ? null : runs.peek().head;
+                if (inCsv != null && inCsv.getStudentId().equals(lastCsvId)) {
+                    repeated++;
+                    report.accept("Repeated in the CSV file: " + describe(inCsv));
+                    advance(runs);
+                } else if (inCsv != null && after != null
+                        && StudentQuery.compareIds(inCsv.getStudentId(), after) <= 0) {
+                    // Appended after an earlier run had passed its ID
+                    StudentRecord found = store.findById(inCsv.getStudentId());
+                    if (found == null) {
+                        missingFromStore(inCsv);
+                    } else {
+                        compare(inCsv, found);
+                    }
+                    advance(runs);
+                } else {
+                    int order = inCsv == null ? 1
+                        : stored == null ? -1 : StudentQuery.compareIds(inCsv.getStudentId(), stored.getStudentId());
+                    if (order < 0) {
+                        missingFromStore(inCsv);
+                        advance(runs);
+                    } else if (order > 0) {
+                        missingFromCsv(stored);
+                        seen(stored.getStudentId());
+                        stored = nextStored();
+                    } else {
+                        compare(inCsv, stored);
+                        advance(runs);
+                        stored = nextStored();
+                    }
+                }
+            }
+            flushRepairs();
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+            for (Path file : merged) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void openRuns(List<Span> spans, PriorityQueue<Run> runs) throws IOException {
+        for (Span span : spans) {
+            Run run = new Run(span);
+            if (run.advance()) {
+                runs.add(run);
+            } else {
+                run.close();
+            }
+        }
+    }
+
+    // Merges each group of MAX_RUNS runs into a temporary file, added to `merged`, and
+    // returns the runs that are left
+    private List<Span> mergeRuns(List<Span> spans, List<Path> merged) throws IOException {
+        List<Span> next = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i += MAX_RUNS) {
+            List<Span> group = spans.subList(i, Math.min(i + MAX_RUNS, spans.size()));
+            if (group.size() == 1) {
+                next.add(group.get(0));
+                continue;
+            }
+            Path file = Files.createTempFile(csvPath.toAbsolutePath().getParent(), "students-reconcile", ".csv");
+            merged.add(file);
+            // Only read back by this run, so never synced
+            StudentCsvFile out = new StudentCsvFile(file.toString(),
+                StudentCsvFile.Durability.everyRows(Integer.MAX_VALUE));
+            PriorityQueue<Run> runs = new PriorityQueue<>(RUN_ORDER);
+            List<StudentRecord> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                openRuns(group, runs);
+                while (!runs.isEmpty()) {
+                    Run run = runs.poll();
+                    batch.add(run.head);
+                    if (run.advance()) {
+                        runs.add(run);
+                    } else {
+                        run.close();
+                    }
+                    if (batch.size() == BATCH_SIZE) {
+                        out.appendAll(batch);
+                        batch.clear();
+                    }
+                }
+                out.appendAll(batch);
+            } finally {
+                for (Run run : runs) {
+                    run.close();
+                }
+                out.close();
+            }
+            // The rows start after the header StudentCsvFile wrote
+            next.add(new Span(file, StudentCsvFile.HEADER.length() + 1, Files.size(file)));
+        }
+        return next;
+    }
+
+    // The ascending runs of the rows in [start, end). They are found by one sequential
+    // read, so each starts where a row does.
+    private static List<Span> findRuns(Path csv, long start, long end) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        if (start < end) {
+            try (CsvReader reader = CsvReader.open(csv, WINDOW_BYTES, start, end)) {
+                if (start == 0) {
+                    reader.next(); // Skip header
+                }
+                String previous = null;
+                while (reader.next()) {
+                    CsvReader.Row row = reader.row();
+                    if (row.getFieldCount() != 7) {
+                        continue;
+                    }
+                    String id = row.field(0);
+                    if (previous == null || StudentQuery.compareIds(id, previous) < 0) {
+                        bounds.add(row.getOffset());
+                    }
+                    previous = id;
+                }
+            }
+        }
+        bounds.add(end);
+        List<Span> spans = new ArrayList<>(bounds.size());
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+            spans.add(new Span(csv, bounds.get(i), bounds.get(i + 1)));
+        }
+        return spans;
+    }
+
+    private void advance(PriorityQueue<Run> runs) throws IOException {
+        Run run = runs.poll();
+        lastCsvId = run.head.getStudentId();
+        seen(lastCsvId);
+        if (run.advance()) {
+            runs.add(run);
+        } else {
+            run.close();
+        }
+    }
+
+    private StudentRecord nextStored() throws Exception {
+        if (storeIndex == storePage.size()) {
+            if (storeDone) {
+                return null;
+            }
+            storePage = store.findPage(StudentQuery.ALL, storeAfter, BATCH_SIZE);
+            storeIndex = 0;
+            storeDone = storePage.size() < BATCH_SIZE;
+            if (storePage.isEmpty()) {
+                return null;
+            }
+            String last = storePage.get(storePage.size() - 1).getStudentId();
+            storeAfter = new StudentQuery.Key(last, last);
+        }
+        return storePage.get(storeIndex++);
+    }
+
+    private void seen(String studentId) {
+        if (highestId == null || StudentQuery.compareIds(studentId, highestId) > 0) {
+            highestId = studentId;
+        }
+    }
+
+    private void compare(StudentRecord inCsv, StudentRecord stored) {
+        compared++;
+        List<String> differences = new ArrayList<>();
+        difference(differences, "FirstName", inCsv.getFirstName(), stored.getFirstName());
+        difference(differences, "LastName", inCsv.getLastName(), stored.getLastName());
+        difference(differences, "Gender", inCsv.getGender(), stored.getGender());
+        difference(differences, "Department", inCsv.getDepartment(), stored.getDepartment());
+        difference(differences, "DateOfBirth", inCsv.getDateOfBirth(), stored.getDateOfBirth());
+        difference(differences, "Email", inCsv.getEmail(), stored.getEmail());
+        if (!differences.isEmpty()) {
+            differing++;
+            report.accept("Differs, " + inCsv.getStudentId() + ": " + String.join("; ", differences));
+        }
+    }
+
+    private void difference(List<String> differences, String column, String inCsv, String stored) {
+        if (!Objects.equals(inCsv, stored)) {
+            differences.add(column + " '" + inCsv + "' in the CSV file, '" + stored + "' in " + store.getName());
+        }
+    }
+
+    private void missingFromStore(StudentRecord record) throws Exception {
+        onlyInCsv++;
+        report.accept("Missing from " + store.getName() + ": " + describe(record));
+        if (csvFile != null) {
+            toStore.add(record);
+            if (toStore.size() == BATCH_SIZE) {
+                flushRepairs();
+            }
+        }
+    }
+
+    private void missingFromCsv(StudentRecord record) throws Exception {
+        onlyInStore++;
+        report.accept("Missing from the CSV file: " + describe(record));
+        if (csvFile != null) {
+            toCsv.add(record);
+            if (toCsv.size() == BATCH_SIZE) {
+                flushRepairs();
+            }
+        }
+    }
+
+    private void flushRepairs() throws IOException {
+        if (!toStore.isEmpty()) {
+            String[] failures = new String[toStore.size()];
+            try {
+                store.saveAll(toStore, failures);
+            } catch (IOException e) {
+                Arrays.fill(failures, e.getMessage());
+            }
+            for (int i = 0; i < failures.length; i++) {
+                if (failures[i] == null) {
+                    addedToStore++;
+                } else {
+                    failed++;
+                    report.accept("Could not add " + toStore.get(i).getStudentId() + " to " + store.getName()
+                        + ": " + failures[i]);
+                }
+            }
+            toStore.clear();
+        }
+        if (!toCsv.isEmpty()) {
+            csvFile.appendAll(toCsv);
+            addedToCsv += toCsv.size();
+            toCsv.clear();
+        }
+    }
+
+    private static String describe(StudentRecord record) {
+        return record.getStudentId() + " " + record.getFirstName() + " " + record.getLastName()
+            + " <" + record.getEmail() + ">";
+    }
+
+    public long getCompared() {
+        return compared;
+    }
+
+    public long getDiffering() {
+        return differing;
+    }
+
+    public long getOnlyInCsv() {
+        return onlyInCsv;
+    }
+
+    public long getOnlyInStore() {
+        return onlyInStore;
+    }
+
+    public long getRepeated() {
+        return repeated;
+    }
+
+    public long getAddedToStore() {
+        return addedToStore;
+    }
+
+    public long getAddedToCsv() {
+        return addedToCsv;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%d students in both (%d differ), %d only in the CSV file, %d only in %s, "
+            + "%d repeated in the CSV file", compared, differing, onlyInCsv, onlyInStore, store.getName(), repeated);
+        if (csvFile != null) {
+            summary += String.format("%nAdded %d to %s (%d failed) and %d to the CSV file",
+                addedToStore, store.getName(), failed, addedToCsv);
+        }
+        return summary;
+    }
+}
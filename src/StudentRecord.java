@@ -0,0 +1,71 @@
+public final class StudentRecord {
+
+    private final String studentId;
+    private final String firstName;
+    private final String lastName;
+    private final String gender;
+    private final String department;
+    private final String dateOfBirth;
+    private final String email;
+    // PasswordHasher output; null for records without a password, such as imported
+    // rosters, and for records read back from the CSV file or for browsing
+    private final String passwordHash;
+
+    public StudentRecord(String studentId, String firstName, String lastName,
+                         String gender, String department, String dateOfBirth, String email) {
+        this(studentId, firstName, lastName, gender, department, dateOfBirth, email, null);
+    }
+
+    public StudentRecord(String studentId, String firstName, String lastName, String gender,
+                         String department, String dateOfBirth, String email, String passwordHash) {
+        this.studentId = studentId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.gender = gender;
+        this.department = department;
+        this.dateOfBirth = dateOfBirth;
+        this.email = email;
+        this.passwordHash = passwordHash;
+    }
+
+    public StudentRecord withPasswordHash(String hash) {
+        return new StudentRecord(studentId, firstName, lastName, gender, department, dateOfBirth, email, hash);
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public String getDateOfBirth() {
+        return dateOfBirth;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public String toDisplayString() {
+        return String.format("ID: %s | %s %s | %s | %s | %s | %s",
+            studentId, firstName, lastName, gender, department, dateOfBirth, email);
+    }
+}
@@ -1,698 +1,886 @@
-import javax.swing.*;
-import javax.swing.border.*;
-import java.awt.*;
-import java.awt.event.*;
-import java.io.*;
-import java.sql.*;
-import java.time.LocalDate;
-import java.time.Period;
-import java.util.regex.Pattern;
-
-
-public class StudentRegistrationForm extends JFrame {
-    
-    private JTextField txtFirstName, txtLastName, txtEmail, txtConfirmEmail;
-    private JPasswordField txtPassword, txtConfirmPassword;
-    private JComboBox<String> comboYear, comboMonth, comboDay;
-    private JRadioButton rbMale, rbFemale;
-    private JRadioButton rbCivil, rbCSE, rbElectrical, rbEC, rbMechanical;
-    private ButtonGroup genderGroup, departmentGroup;
-    private JButton btnSubmit, btnCancel;
-    private JTextArea txtDataDisplay;
-    
-
-    private JLabel lblFirstNameError, lblLastNameError, lblEmailError, lblConfirmEmailError;
-    private JLabel lblPasswordError, lblConfirmPasswordError, lblDOBError, lblGenderError, lblDepartmentError;
-    
-
-    private static final String CSV_FILE = "students.csv";
-    private static final String DB_FILE = "students.accdb";
-    private static final String DB_URL = "jdbc:ucanaccess://" + DB_FILE;
-    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-    private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[A-Za-z])(?=.*\\d).{8,20}$");
-    
-
-    private static int studentCounter = 0;
-    
-    public StudentRegistrationForm() {
-        initializeComponents();
-        setupExactUILayout();
-        setupEventListeners();
-        initializeDatabase();
-        loadStudentCounter();
-    }
-    
-    private void initializeComponents() {
-
-        setTitle("New Student Registration Form");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(750, 550);
-        setLocationRelativeTo(null);
-        setResizable(false);
-        
-
-        getContentPane().setBackground(new Color(220, 228, 236));
-        
-
-        txtFirstName = new JTextField(18);
-        txtLastName = new JTextField(18);
-        txtEmail = new JTextField(18);
-        txtConfirmEmail = new JTextField(18);
-        txtPassword = new JPasswordField(18);
-        txtConfirmPassword = new JPasswordField(18);
-        
-        comboYear = new JComboBox<>();
-        comboMonth = new JComboBox<>();
-        comboDay = new JComboBox<>();
-        populateDateComboBoxes();
-        
-        rbMale = new JRadioButton("Male");
-        rbFemale = new JRadioButton("Female");
-        genderGroup = new ButtonGroup();
-        genderGroup.add(rbMale);
-        genderGroup.add(rbFemale);
-        
-
-        rbCivil = new JRadioButton("Civil");
-        rbCSE = new JRadioButton("Computer Science and Engineering");
-        rbElectrical = new JRadioButton("Electrical");
-        rbEC = new JRadioButton("Electronics and Communication");
-        rbMechanical = new JRadioButton("Mechanical");
-        departmentGroup = new ButtonGroup();
-        departmentGroup.add(rbCivil);
-        departmentGroup.add(rbCSE);
-        departmentGroup.add(rbElectrical);
-        departmentGroup.add(rbEC);
-        departmentGroup.add(rbMechanical);
-        
-        btnSubmit = new JButton("Submit");
-        btnCancel = new JButton("Cancel");
-        
-        txtDataDisplay = new JTextArea(10, 25);
-        txtDataDisplay.setEditable(false);
-        txtDataDisplay.setFont(new Font("Monospaced", Font.PLAIN, 11));
-        txtDataDisplay.setLineWrap(true);
-        txtDataDisplay.setWrapStyleWord(true);
-        
-        lblFirstNameError = createErrorLabel();
-        lblLastNameError = createErrorLabel();
-        lblEmailError = createErrorLabel();
-        lblConfirmEmailError = createErrorLabel();
-        lblPasswordError = createErrorLabel();
-        lblConfirmPasswordError = createErrorLabel();
-        lblDOBError = createErrorLabel();
-        lblGenderError = createErrorLabel();
-        lblDepartmentError = createErrorLabel();
-    }
-    
-    private JLabel createErrorLabel() {
-        JLabel label = new JLabel(" ");
-        label.setForeground(Color.RED);
-        label.setFont(new Font("Arial", Font.PLAIN, 9));
-        return label;
-    }
-    
-    private void populateDateComboBoxes() {
-
-        int currentYear = LocalDate.now().getYear();
-        int minYear = currentYear - 60;
-        int maxYear = currentYear - 16;
-        
-        comboYear.addItem("Select Year");
-        for (int year = maxYear; year >= minYear; year--) {
-            comboYear.addItem(String.valueOf(year));
-        }
-        
-        comboMonth.addItem("Select Month");
-        String[] months = {"January", "February", "March", "April", "May", "June",
-                          "July", "August", "September", "October", "November", "December"};
-        for (String month : months) {
-            comboMonth.addItem(month);
-        }
-        
-
-        comboDay.addItem("Select Day");
-        for (int day = 1; day <= 31; day++) {
-            comboDay.addItem(String.valueOf(day));
-        }
-    }
-    
-    private void updateDays() {
-        String yearStr = (String) comboYear.getSelectedItem();
-        String month = (String) comboMonth.getSelectedItem();
-        
-        if (yearStr == null || yearStr.equals("Select Year") || 
-            month == null || month.equals("Select Month")) {
-            return;
-        }
-        
-        int year = Integer.parseInt(yearStr);
-        int monthIndex = comboMonth.getSelectedIndex();
-        int daysInMonth = getDaysInMonth(year, monthIndex);
-        
-        String selectedDay = (String) comboDay.getSelectedItem();
-        comboDay.removeAllItems();
-        comboDay.addItem("Select Day");
-        for (int day = 1; day <= daysInMonth; day++) {
-            comboDay.addItem(String.valueOf(day));
-        }
-        
-
-        if (selectedDay != null && !selectedDay.equals("Select Day")) {
-            int dayNum = Integer.parseInt(selectedDay);
-            if (dayNum <= daysInMonth) {
-                comboDay.setSelectedItem(selectedDay);
-            }
-        }
-    }
-    
-    private int getDaysInMonth(int year, int month) {
-        switch (month) {
-            case 1: case 3: case 5: case 7: case 8: case 10: case 12:
-                return 31;
-            case 4: case 6: case 9: case 11:
-                return 30;
-            case 2:
-                return isLeapYear(year) ? 29 : 28;
-            default:
-                return 31;
-        }
-    }
-    
-    private boolean isLeapYear(int year) {
-        return (year % 4 == 0 && year % 100 != 0) || (year % 400 == 0);
-    }
-    
-
-    private void setupExactUILayout() {
-
-        JPanel mainPanel = new JPanel(null); 
-        mainPanel.setBackground(new Color(220, 228, 236));
-        mainPanel.setPreferredSize(new Dimension(750, 520));
-        
-
-        JLabel lblTitle = new JLabel("New Student Registration Form");
-        lblTitle.setFont(new Font("Arial", Font.BOLD, 14));
-        lblTitle.setBounds(250, 10, 250, 25);
-        mainPanel.add(lblTitle);
-        
-
-        int labelX = 20;
-        int fieldX = 150;
-        int startY = 45;
-        int rowHeight = 32;
-        
-
-        JLabel lblFirstName = new JLabel("Student First Name");
-        lblFirstName.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblFirstName);
-        txtFirstName.setBounds(fieldX, startY, 180, 22);
-        mainPanel.add(txtFirstName);
-        lblFirstNameError.setBounds(fieldX, startY + 18, 180, 12);
-        mainPanel.add(lblFirstNameError);
-        
-
-        startY += rowHeight;
-        JLabel lblLastName = new JLabel("Student Last Name");
-        lblLastName.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblLastName);
-        txtLastName.setBounds(fieldX, startY, 180, 22);
-        mainPanel.add(txtLastName);
-        lblLastNameError.setBounds(fieldX, startY + 18, 180, 12);
-        mainPanel.add(lblLastNameError);
-        
-
-        startY += rowHeight;
-        JLabel lblEmail = new JLabel("Email Address");
-        lblEmail.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblEmail);
-        txtEmail.setBounds(fieldX, startY, 180, 22);
-        mainPanel.add(txtEmail);
-        lblEmailError.setBounds(fieldX, startY + 18, 180, 12);
-        mainPanel.add(lblEmailError);
-        
-
-        startY += rowHeight;
-        JLabel lblConfirmEmail = new JLabel("Confirm Email Address");
-        lblConfirmEmail.setBounds(labelX, startY, 125, 20);
-        mainPanel.add(lblConfirmEmail);
-        txtConfirmEmail.setBounds(fieldX, startY, 180, 22);
-        mainPanel.add(txtConfirmEmail);
-        lblConfirmEmailError.setBounds(fieldX, startY + 18, 180, 12);
-        mainPanel.add(lblConfirmEmailError);
-        
-
-        startY += rowHeight;
-        JLabel lblPassword = new JLabel("Password");
-        lblPassword.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblPassword);
-        txtPassword.setBounds(fieldX, startY, 180, 22);
-        mainPanel.add(txtPassword);
-        lblPasswordError.setBounds(fieldX, startY + 18, 180, 12);
-        mainPanel.add(lblPasswordError);
-        
-
-        startY += rowHeight;
-        JLabel lblConfirmPassword = new JLabel("Confirm Password");
-        lblConfirmPassword.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblConfirmPassword);
-        txtConfirmPassword.setBounds(fieldX, startY, 180, 22);
-        mainPanel.add(txtConfirmPassword);
-        lblConfirmPasswordError.setBounds(fieldX, startY + 18, 180, 12);
-        mainPanel.add(lblConfirmPasswordError);
-        
-
-        startY += rowHeight;
-        JLabel lblDOB = new JLabel("Date of Birth");
-        lblDOB.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblDOB);
-        
-        comboYear.setBounds(fieldX, startY, 85, 22);
-        comboMonth.setBounds(fieldX + 90, startY, 100, 22);
-        comboDay.setBounds(fieldX + 195, startY, 80, 22);
-        mainPanel.add(comboYear);
-        mainPanel.add(comboMonth);
-        mainPanel.add(comboDay);
-        
-        lblDOBError.setBounds(fieldX, startY + 18, 250, 12);
-        mainPanel.add(lblDOBError);
-        
-
-        rbMale.setBounds(fieldX, startY + 35, 60, 20);
-        rbFemale.setBounds(fieldX + 65, startY + 35, 70, 20);
-        rbMale.setBackground(new Color(220, 228, 236));
-        rbFemale.setBackground(new Color(220, 228, 236));
-        mainPanel.add(rbMale);
-        mainPanel.add(rbFemale);
-        
-        lblGenderError.setBounds(fieldX + 140, startY + 38, 150, 12);
-        mainPanel.add(lblGenderError);
-        
-
-        startY += 65;
-        JLabel lblDepartment = new JLabel("Department");
-        lblDepartment.setBounds(labelX, startY, 120, 20);
-        mainPanel.add(lblDepartment);
-        
-        int deptY = startY;
-        rbCivil.setBounds(fieldX, deptY, 200, 18);
-        rbCivil.setBackground(new Color(220, 228, 236));
-        mainPanel.add(rbCivil);
-        
-        deptY += 20;
-        rbCSE.setBounds(fieldX, deptY, 250, 18);
-        rbCSE.setBackground(new Color(220, 228, 236));
-        mainPanel.add(rbCSE);
-        
-        deptY += 20;
-        rbElectrical.setBounds(fieldX, deptY, 200, 18);
-        rbElectrical.setBackground(new Color(220, 228, 236));
-        mainPanel.add(rbElectrical);
-        
-        deptY += 20;
-        rbEC.setBounds(fieldX, deptY, 220, 18);
-        rbEC.setBackground(new Color(220, 228, 236));
-        mainPanel.add(rbEC);
-        
-        deptY += 20;
-        rbMechanical.setBounds(fieldX, deptY, 200, 18);
-        rbMechanical.setBackground(new Color(220, 228, 236));
-        mainPanel.add(rbMechanical);
-        
-        lblDepartmentError.setBounds(fieldX, deptY + 20, 200, 12);
-        mainPanel.add(lblDepartmentError);
-
-        btnSubmit.setBounds(fieldX, 420, 80, 25);
-        btnCancel.setBounds(fieldX + 90, 420, 80, 25);
-        mainPanel.add(btnSubmit);
-        mainPanel.add(btnCancel);
-        
-        JLabel lblDataTitle = new JLabel("Your Data is Below:");
-        lblDataTitle.setBounds(460, 200, 150, 20);
-        lblDataTitle.setFont(new Font("Arial", Font.BOLD, 11));
-        mainPanel.add(lblDataTitle);
-        
-        JScrollPane scrollPane = new JScrollPane(txtDataDisplay);
-        scrollPane.setBounds(460, 225, 260, 220);
-        scrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY));
-        mainPanel.add(scrollPane);
-        
-        add(mainPanel);
-    }
-    
-    private void setupEventListeners() {
-
-        comboYear.addActionListener(e -> updateDays());
-        comboMonth.addActionListener(e -> updateDays());
-        
-
-        btnSubmit.addActionListener(e -> handleSubmit());
-        
-        // Cancel button
-        btnCancel.addActionListener(e -> handleCancel());
-    }
-    
-    private void handleSubmit() {
-        // Clear previous errors
-        clearErrors();
-        
-        // Validate all fields
-        boolean isValid = true;
-        StringBuilder errorSummary = new StringBuilder("Validation Errors:\n\n");
-        
-        // First Name
-        String firstName = txtFirstName.getText().trim();
-        if (firstName.isEmpty()) {
-            lblFirstNameError.setText("First name is required");
-            errorSummary.append("- First name is required\n");
-            isValid = false;
-        }
-        
-        // Last Name
-        String lastName = txtLastName.getText().trim();
-        if (lastName.isEmpty()) {
-            lblLastNameError.setText("Last name is required");
-            errorSummary.append("- Last name is required\n");
-            isValid = false;
-        }
-        
-        // Email
-        String email = txtEmail.getText().trim();
-        if (email.isEmpty()) {
-            lblEmailError.setText("Email is required");
-            errorSummary.append("- Email is required\n");
-            isValid = false;
-        } else if (!EMAIL_PATTERN.matcher(email).matches()) {
-            lblEmailError.setText("Invalid email format");
-            errorSummary.append("- Invalid email format\n");
-            isValid = false;
-        }
-        
-        // Confirm Email
-        String confirmEmail = txtConfirmEmail.getText().trim();
-        if (confirmEmail.isEmpty()) {
-            lblConfirmEmailError.setText("Confirm email is required");
-            errorSummary.append("- Confirm email is required\n");
-            isValid = false;
-        } else if (!email.equals(confirmEmail)) {
-            lblConfirmEmailError.setText("Emails do not match");
-            errorSummary.append("- Emails do not match\n");
-            isValid = false;
-        }
-        
-        // Password
-        String password = new String(txtPassword.getPassword());
-        if (password.isEmpty()) {
-            lblPasswordError.setText("Password is required");
-            errorSummary.append("- Password is required\n");
-            isValid = false;
-        } else if (!PASSWORD_PATTERN.matcher(password).matches()) {
-            lblPasswordError.setText("8-20 chars, 1 letter, 1 digit");
-            errorSummary.append("- Password must be 8-20 chars with at least 1 letter and 1 digit\n");
-            isValid = false;
-        }
-        
-        // Confirm Password
-        String confirmPassword = new String(txtConfirmPassword.getPassword());
-        if (confirmPassword.isEmpty()) {
-            lblConfirmPasswordError.setText("Confirm password is required");
-            errorSummary.append("- Confirm password is required\n");
-            isValid = false;
-        } else if (!password.equals(confirmPassword)) {
-            lblConfirmPasswordError.setText("Passwords do not match");
-            errorSummary.append("- Passwords do not match\n");
-            isValid = false;
-        }
-        
-        // Date of Birth
-        String yearStr = (String) comboYear.getSelectedItem();
-        String month = (String) comboMonth.getSelectedItem();
-        String dayStr = (String) comboDay.getSelectedItem();
-        
-        LocalDate dob = null;
-        if (yearStr == null || yearStr.equals("Select Year") || 
-            month == null || month.equals("Select Month") ||
-            dayStr == null || dayStr.equals("Select Day")) {
-            lblDOBError.setText("Complete DOB is required");
-            errorSummary.append("- Complete date of birth is required\n");
-            isValid = false;
-        } else {
-            int year = Integer.parseInt(yearStr);
-            int day = Integer.parseInt(dayStr);
-            int monthIndex = comboMonth.getSelectedIndex();
-            dob = LocalDate.of(year, monthIndex, day);
-            int age = Period.between(dob, LocalDate.now()).getYears();
-            
-            if (age < 16 || age > 60) {
-                lblDOBError.setText("Age must be 16-60");
-                errorSummary.append("- Age must be between 16 and 60 years\n");
-                isValid = false;
-            }
-        }
-        
-        // Gender
-        String gender = null;
-        if (rbMale.isSelected()) {
-            gender = "M";
-        } else if (rbFemale.isSelected()) {
-            gender = "F";
-        } else {
-            lblGenderError.setText("Gender is required");
-            errorSummary.append("- Gender is required\n");
-            isValid = false;
-        }
-        
-        // Department
-        String department = null;
-        if (rbCivil.isSelected()) {
-            department = "Civil";
-        } else if (rbCSE.isSelected()) {
-            department = "CSE";
-        } else if (rbElectrical.isSelected()) {
-            department = "Electrical";
-        } else if (rbEC.isSelected()) {
-            department = "E&C";
-        } else if (rbMechanical.isSelected()) {
-            department = "Mechanical";
-        } else {
-            lblDepartmentError.setText("Department is required");
-            errorSummary.append("- Department is required\n");
-            isValid = false;
-        }
-        
-        if (!isValid) {
-            // Show error dialog
-            JOptionPane.showMessageDialog(this, errorSummary.toString(), 
-                "Validation Errors", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        
-        // Generate Student ID
-        String studentId = generateStudentId();
-        
-        // Format the record
-        String formattedDate = dob.toString();
-        String record = String.format("ID: %s | %s %s | %s | %s | %s | %s",
-            studentId, firstName, lastName, gender, department, formattedDate, email);
-        
-        // Display in text area
-        txtDataDisplay.append(record + "\n\n");
-        
-        // Save to CSV and Database
-        saveToCSV(studentId, firstName, lastName, gender, department, formattedDate, email);
-        saveToDatabase(studentId, firstName, lastName, gender, department, formattedDate, email);
-        
-        // Show success message
-        JOptionPane.showMessageDialog(this, 
-            "Student registered successfully!\nStudent ID: " + studentId,
-            "Success", JOptionPane.INFORMATION_MESSAGE);
-        
-        // Clear form
-        clearForm();
-    }
-    
-    private void clearErrors() {
-        lblFirstNameError.setText(" ");
-        lblLastNameError.setText(" ");
-        lblEmailError.setText(" ");
-        lblConfirmEmailError.setText(" ");
-        lblPasswordError.setText(" ");
-        lblConfirmPasswordError.setText(" ");
-        lblDOBError.setText(" ");
-        lblGenderError.setText(" ");
-        lblDepartmentError.setText(" ");
-    }
-    
-    private String generateStudentId() {
-        int currentYear = LocalDate.now().getYear();
-        studentCounter++;
-        return String.format("%d-%05d", currentYear, studentCounter);
-    }
-    
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            // Create Students table if it doesn't exist
-            String createTableSQL = "CREATE TABLE Students (" +
-                "StudentID VARCHAR(15) PRIMARY KEY, " +
-                "FirstName VARCHAR(50) NOT NULL, " +
-                "LastName VARCHAR(50) NOT NULL, " +
-                "Gender VARCHAR(1) NOT NULL, " +
-                "Department VARCHAR(50) NOT NULL, " +
-                "DateOfBirth DATE NOT NULL, " +
-                "Email VARCHAR(100) NOT NULL)";
-            
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(createTableSQL);
-            } catch (SQLException e) {
-                // Table already exists, ignore
-                if (!e.getMessage().contains("already exists")) {
-                    System.err.println("Database initialization warning: " + e.getMessage());
-                }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error initializing database: " + e.getMessage() + "\nWill save to CSV only.",
-                "Database Warning", JOptionPane.WARNING_MESSAGE);
-        }
-    }
-    
-    private void saveToDatabase(String studentId, String firstName, String lastName,
-                               String gender, String department, String dob, String email) {
-        String insertSQL = "INSERT INTO Students (StudentID, FirstName, LastName, Gender, Department, DateOfBirth, Email) " +
-                          "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-            
-            pstmt.setString(1, studentId);
-            pstmt.setString(2, firstName);
-            pstmt.setString(3, lastName);
-            pstmt.setString(4, gender);
-            pstmt.setString(5, department);
-            pstmt.setDate(6, java.sql.Date.valueOf(dob));
-            pstmt.setString(7, email);
-            
-            int rowsInserted = pstmt.executeUpdate();
-            
-            if (rowsInserted > 0) {
-                System.out.println("Student record saved to database successfully.");
-            }
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error saving to database: " + e.getMessage() + "\nData saved to CSV only.",
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
-    private void saveToCSV(String studentId, String firstName, String lastName, 
-                          String gender, String department, String dob, String email) {
-        boolean fileExists = new File(CSV_FILE).exists();
-        
-        try (PrintWriter writer = new PrintWriter(new FileWriter(CSV_FILE, true))) {
-            // Write header if file is new
-            if (!fileExists) {
-                writer.println("StudentID,FirstName,LastName,Gender,Department,DateOfBirth,Email");
-            }
-            
-            // Write student data
-            writer.println(String.format("%s,%s,%s,%s,%s,%s,%s",
-                studentId, firstName, lastName, gender, department, dob, email));
-            
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error saving to CSV: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
-    private void loadStudentCounter() {
-        int currentYear = LocalDate.now().getYear();
-        String yearPrefix = String.valueOf(currentYear) + "-";
-        int maxCounter = 0;
-        
-        // Try loading from database first
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT StudentID FROM Students WHERE StudentID LIKE '" + yearPrefix + "%'")) {
-            
-            while (rs.next()) {
-                String id = rs.getString("StudentID");
-                try {
-                    int count = Integer.parseInt(id.substring(5));
-                    if (count > maxCounter) maxCounter = count;
-                } catch (Exception e) {}
-            }
-            studentCounter = maxCounter;
-            return;
-            
-        } catch (SQLException e) {
-            // Fall back to CSV if database fails
-            System.err.println("Could not load counter from database, trying CSV: " + e.getMessage());
-        }
-        
-        // Fallback: Load from CSV
-        File file = new File(CSV_FILE);
-        if (!file.exists()) {
-            studentCounter = 0;
-            return;
-        }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            reader.readLine(); // Skip header
-            
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    String[] parts = line.split(",");
-                    if (parts.length > 0) {
-                        String id = parts[0];
-                        if (id.startsWith(yearPrefix)) {
-                            try {
-                                int count = Integer.parseInt(id.substring(5));
-                                if (count > maxCounter) maxCounter = count;
-                            } catch (Exception e) {}
-                        }
-                    }
-                }
-            }
-            studentCounter = maxCounter;
-            
-        } catch (IOException e) {
-            studentCounter = 0;
-        }
-    }
-    
-    private void handleCancel() {
-        clearForm();
-        clearErrors();
-    }
-    
-    private void clearForm() {
-        txtFirstName.setText("");
-        txtLastName.setText("");
-        txtEmail.setText("");
-        txtConfirmEmail.setText("");
-        txtPassword.setText("");
-        txtConfirmPassword.setText("");
-        comboYear.setSelectedIndex(0);
-        comboMonth.setSelectedIndex(0);
-        comboDay.setSelectedIndex(0);
-        genderGroup.clearSelection();
-        departmentGroup.clearSelection();
-    }
-    
-    public static void main(String[] args) {
-        // Set look and feel to system default for better appearance
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            // Use default look and feel
-        }
-        
-        // Run the application
-        SwingUtilities.invokeLater(() -> {
-            new StudentRegistrationForm().setVisible(true);
-        });
-    }
-}
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.event.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+public class StudentRegistrationForm extends JFrame {
+    
+    private JTextField txtFirstName, txtLastName, txtEmail, txtConfirmEmail;
+    private JPasswordField txtPassword, txtConfirmPassword;
+    private JComboBox<String> comboYear, comboMonth, comboDay;
+    private final DateOfBirthModel dateOfBirth = new DateOfBirthModel(LocalDate.now());
+    private JRadioButton rbMale, rbFemale;
+    private JRadioButton rbCivil, rbCSE, rbElectrical, rbEC, rbMechanical;
+    private ButtonGroup genderGroup, departmentGroup;
+    private JButton btnSubmit, btnCancel, btnBrowse;
+    private JList<String> lstRecent;
+    private RecentRegistrationsModel recentRegistrations;
+    private StudentSearchPanel searchPanel;
+    
+
+    private JLabel lblFirstNameError, lblLastNameError, lblEmailError, lblConfirmEmailError;
+    private JLabel lblPasswordError, lblConfirmPasswordError, lblDOBError, lblGenderError, lblDepartmentError;
+    
+
+    private static final String CSV_FILE = "students.csv";
+    private static final String DB_FILE = "students.accdb";
+    private static final String DB_URL = "jdbc:ucanaccess://" + DB_FILE;
+    private static final String SEQUENCE_FILE = "students.seq";
+    private static final String JOURNAL_FILE = "students.journal";
+    private static final String SNAPSHOT_FILE = "students.snapshot";
+    private static final String RECONCILE_FILE = "students.reconcile";
+    private static final long PERSISTENCE_BATCH_DELAY_MS = 200;
+    private static final String LOG_FILE = "students.log";
+    private static final int DB_POOL_SIZE = 2;
+    // -Dstudent.store=access (default) or log
+    static final String STORE_PROPERTY = "student.store";
+    // -Dstudent.recent=N: registrations kept in the "Your Data" list (default 100)
+    static final String RECENT_PROPERTY = "student.recent";
+    private static final int DEFAULT_RECENT_CAPACITY = 100;
+    
+    // Local backend; null when registrations go to a RegistrationServer instead
+    private final RegistrationService registrationService;
+    private final Registrar registrar;
+    private JDialog browserDialog;
+    
+    // serverUrl is null to save registrations locally
+    public StudentRegistrationForm(String serverUrl) {
+        initializeComponents();
+        setupExactUILayout();
+        setupEventListeners();
+        if (serverUrl == null) {
+            registrationService = createService(DB_POOL_SIZE);
+            registrar = registrationService;
+            installShutdownHandler();
+            
+            // Submit stays disabled until startBackend() has the database, journal, ID sequence and registry ready
+            btnSubmit.setEnabled(false);
+            btnSubmit.setToolTipText("Connecting to the database...");
+            btnBrowse.setEnabled(false);
+        } else {
+            registrationService = null;
+            registrar = new RegistrationClient(serverUrl);
+            setTitle(getTitle() + " - " + serverUrl);
+            // The server's data cannot be browsed or searched from a desk
+            btnBrowse.setEnabled(false);
+            searchPanel.setIndex(null, "Search is only available on the server");
+        }
+    }
+    
+    static RegistrationService createService(int dbPoolSize) {
+        return new RegistrationService(createStore(dbPoolSize), CSV_FILE, JOURNAL_FILE, SEQUENCE_FILE,
+            SNAPSHOT_FILE, null);
+    }
+    
+    // The primary repository named by -Dstudent.store; the CSV file is always written too
+    static StudentRepository createStore(int dbPoolSize) {
+        String store = System.getProperty(STORE_PROPERTY, "access");
+        switch (store) {
+            case "access":
+                return new StudentDatabase(DB_URL, dbPoolSize);
+            case "log":
+                return new StudentLogFile(new File(LOG_FILE).toPath());
+            default:
+                throw new IllegalArgumentException("Unknown " + STORE_PROPERTY + " '" + store + "', expected access or log");
+        }
+    }
+    
+    // --report [csv|store]: the CSV file is scanned on every core, the primary store in one pass
+    static int runReport(String source) {
+        try {
+            StudentReport report;
+            if (source.equals("csv")) {
+                report = StudentReport.scanCsv(new File(CSV_FILE).toPath(),
+                    Runtime.getRuntime().availableProcessors(), LocalDate.now());
+            } else {
+                try (StudentRepository store = openStore(source)) {
+                    report = StudentReport.scan(store, LocalDate.now());
+                }
+            }
+            System.out.print(report);
+            System.out.println("\nScanned " + report.describeThroughput());
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Report failed: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    // --export <out.csv|out.json> [csv|store] [department=<name>] [name=<text>]
+    static int runExport(String[] args) {
+        String source = "csv", department = null, name = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("department=")) {
+                department = args[i].substring("department=".length());
+            } else if (args[i].startsWith("name=")) {
+                name = args[i].substring("name=".length());
+            } else {
+                source = args[i];
+            }
+        }
+        File out = new File(args[1]);
+        StudentQuery filter = new StudentQuery(StudentQuery.SortKey.STUDENT_ID, false, department, name);
+        long start = System.nanoTime();
+        try (StudentRepository store = openStore(source)) {
+            long written = StudentExport.export(store, filter, out.toPath(), StudentExport.Format.of(out.toPath()));
+            System.out.printf("Exported %d students to %s in %.2f s%n", written, out, (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Export failed: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    // --snapshot [csv|store]: converts the data to the snapshot the next start loads.
+    // The snapshot is complete up to the journal checkpoint of its source; anything
+    // journaled after that is applied on top when it is loaded.
+    static int runSnapshot(String source) {
+        long start = System.nanoTime();
+        try (StudentRepository store = openStore(source)) {
+            long sequence = RegistrationJournal.readApplied(new File(JOURNAL_FILE).toPath(), store.getName());
+            // Older snapshots are dropped, or the newer of them would be loaded instead
+            Path base = new File(SNAPSHOT_FILE).toPath();
+            StudentSnapshot.delete(base);
+            Path file = StudentSnapshot.fileFor(base, sequence);
+            StudentSnapshot.write(store, file, sequence);
+            StudentSnapshot written = StudentSnapshot.open(file);
+            System.out.printf("Wrote %d students to %s (%.1f MB) in %.2f s%n", written.size(), file,
+                Files.size(file) / 1048576.0, (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Snapshot failed: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    // --reconcile [repair] [full]: compares students.csv with the -Dstudent.store
+    // repository from the last checkpoint on (from the start with full), printing every
+    // difference; repair copies the students missing from either side to it
+    static int runReconcile(boolean repair, boolean full) {
+        long start = System.nanoTime();
+        Path checkpoint = new File(RECONCILE_FILE).toPath();
+        try (StudentRepository store = openStore("store")) {
+            if (full) {
+                Files.deleteIfExists(checkpoint);
+            }
+            if (repair) {
+                // Students added to the store bypass the journal, as in an import
+                StudentSnapshot.delete(new File(SNAPSHOT_FILE).toPath());
+            }
+            StudentReconciler result = StudentReconciler.run(new File(CSV_FILE).toPath(), store, checkpoint,
+                repair, System.out::println);
+            System.out.println(result);
+            System.out.printf("Reconciled in %.2f s%n", (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Reconciliation failed: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    // "csv" is students.csv; "store" is the -Dstudent.store repository
+    private static StudentRepository openStore(String source) throws Exception {
+        StudentRepository store;
+        switch (source) {
+            case "csv":
+                store = new StudentCsvFile(CSV_FILE);
+                break;
+            case "store":
+                store = createStore(1);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown source '" + source + "', expected csv or store");
+        }
+        store.initialize();
+        return store;
+    }
+    
+    // Loads UCanAccess (or opens the log), checks the schema, replays the journal, opens
+    // the ID sequence and loads the registry off the EDT so the window can be shown
+    // first. Called once the frame is visible; nothing to do when using a server.
+    void startBackend(long launchNanos) {
+        if (registrationService == null) {
+            return;
+        }
+        new SwingWorker<Void, Void>() {
+            private final StartupTimings timings = new StartupTimings(launchNanos);
+            
+            @Override
+            protected Void doInBackground() {
+                timings.mark("window shown");
+                registrationService.start(PERSISTENCE_BATCH_DELAY_MS, TimeUnit.MILLISECONDS,
+                    SwingUtilities::invokeLater, timings::mark);
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                btnSubmit.setEnabled(true);
+                btnSubmit.setToolTipText(null);
+                btnBrowse.setEnabled(true);
+                searchPanel.setIndex(registrationService.getSearchIndex(),
+                    "Search is unavailable: " + registrationService.getSearchError());
+                timings.mark("submit enabled");
+                System.out.println(timings);
+                
+                if (registrationService.getStoreError() != null) {
+                    JOptionPane.showMessageDialog(StudentRegistrationForm.this,
+                        "Error initializing " + registrationService.getStore().getName() + " storage: "
+                            + registrationService.getStoreError() + "\nWill save to CSV only.",
+                        "Database Warning", JOptionPane.WARNING_MESSAGE);
+                }
+                if (registrationService.getJournalError() != null) {
+                    JOptionPane.showMessageDialog(StudentRegistrationForm.this,
+                        "Error opening registration journal: " + registrationService.getJournalError()
+                            + "\nRegistrations will be saved without a journal.",
+                        "Journal Warning", JOptionPane.WARNING_MESSAGE);
+                }
+                if (registrationService.getSequenceError() != null) {
+                    JOptionPane.showMessageDialog(StudentRegistrationForm.this,
+                        "Error opening student ID sequence: " + registrationService.getSequenceError(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    private void installShutdownHandler() {
+        // Drain accepted registrations before the JVM exits
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                registrationService.close();
+            }
+        });
+    }
+    
+    private void initializeComponents() {
+
+        setTitle("New Student Registration Form");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(750, 550);
+        setLocationRelativeTo(null);
+        setResizable(false);
+        
+
+        getContentPane().setBackground(new Color(220, 228, 236));
+        
+
+        txtFirstName = new JTextField(18);
+        txtLastName = new JTextField(18);
+        txtEmail = new JTextField(18);
+        txtConfirmEmail = new JTextField(18);
+        txtPassword = new JPasswordField(18);
+        txtConfirmPassword = new JPasswordField(18);
+        
+        comboYear = new JComboBox<>(dateOfBirth.getYears());
+        comboMonth = new JComboBox<>(dateOfBirth.getMonths());
+        comboDay = new JComboBox<>(dateOfBirth.getDays());
+        
+        rbMale = new JRadioButton("Male");
+        rbFemale = new JRadioButton("Female");
+        genderGroup = new ButtonGroup();
+        genderGroup.add(rbMale);
+        genderGroup.add(rbFemale);
+        
+
+        rbCivil = new JRadioButton("Civil");
+        rbCSE = new JRadioButton("Computer Science and Engineering");
+        rbElectrical = new JRadioButton("Electrical");
+        rbEC = new JRadioButton("Electronics and Communication");
+        rbMechanical = new JRadioButton("Mechanical");
+        departmentGroup = new ButtonGroup();
+        departmentGroup.add(rbCivil);
+        departmentGroup.add(rbCSE);
+        departmentGroup.add(rbElectrical);
+        departmentGroup.add(rbEC);
+        departmentGroup.add(rbMechanical);
+        
+        btnSubmit = new JButton("Submit");
+        btnCancel = new JButton("Cancel");
+        btnBrowse = new JButton("All Students");
+        searchPanel = new StudentSearchPanel();
+        
+        // Only the most recent registrations are kept; see RecentRegistrationsModel
+        recentRegistrations = new RecentRegistrationsModel(Integer.getInteger(RECENT_PROPERTY, DEFAULT_RECENT_CAPACITY));
+        lstRecent = new JList<>(recentRegistrations);
+        lstRecent.setCellRenderer(new RecentEntryRenderer());
+        recentRegistrations.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                lstRecent.ensureIndexIsVisible(e.getIndex1());
+            }
+            
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+            }
+            
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                lstRecent.ensureIndexIsVisible(recentRegistrations.getSize() - 1);
+            }
+        });
+        
+        lblFirstNameError = createErrorLabel();
+        lblLastNameError = createErrorLabel();
+        lblEmailError = createErrorLabel();
+        lblConfirmEmailError = createErrorLabel();
+        lblPasswordError = createErrorLabel();
+        lblConfirmPasswordError = createErrorLabel();
+        lblDOBError = createErrorLabel();
+        lblGenderError = createErrorLabel();
+        lblDepartmentError = createErrorLabel();
+    }
+    
+    private JLabel createErrorLabel() {
+        JLabel label = new JLabel(" ");
+        label.setForeground(Color.RED);
+        label.setFont(new Font("Arial", Font.PLAIN, 9));
+        return label;
+    }
+    
+    // Swaps in the day list for the selected year and month, keeping the selected day
+    // if the month has it
+    private void updateDays() {
+        ComboBoxModel<String> days = dateOfBirth.daysFor(comboYear.getSelectedIndex(), comboMonth.getSelectedIndex());
+        if (days == null || days == comboDay.getModel()) {
+            return;
+        }
+        int day = comboDay.getSelectedIndex();
+        days.setSelectedItem(days.getElementAt(day > 0 && day < days.getSize() ? day : 0));
+        comboDay.setModel(days);
+    }
+    
+
+    private void setupExactUILayout() {
+
+        JPanel mainPanel = new JPanel(null); 
+        mainPanel.setBackground(new Color(220, 228, 236));
+        mainPanel.setPreferredSize(new Dimension(750, 520));
+        
+
+        JLabel lblTitle = new JLabel("New Student Registration Form");
+        lblTitle.setFont(new Font("Arial", Font.BOLD, 14));
+        lblTitle.setBounds(250, 10, 250, 25);
+        mainPanel.add(lblTitle);
+        
+
+        int labelX = 20;
+        int fieldX = 150;
+        int startY = 45;
+        int rowHeight = 32;
+        
+
+        JLabel lblFirstName = new JLabel("Student First Name");
+        lblFirstName.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblFirstName);
+        txtFirstName.setBounds(fieldX, startY, 180, 22);
+        mainPanel.add(txtFirstName);
+        lblFirstNameError.setBounds(fieldX, startY + 18, 180, 12);
+        mainPanel.add(lblFirstNameError);
+        
+
+        startY += rowHeight;
+        JLabel lblLastName = new JLabel("Student Last Name");
+        lblLastName.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblLastName);
+        txtLastName.setBounds(fieldX, startY, 180, 22);
+        mainPanel.add(txtLastName);
+        lblLastNameError.setBounds(fieldX, startY + 18, 180, 12);
+        mainPanel.add(lblLastNameError);
+        
+
+        startY += rowHeight;
+        JLabel lblEmail = new JLabel("Email Address");
+        lblEmail.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblEmail);
+        txtEmail.setBounds(fieldX, startY, 180, 22);
+        mainPanel.add(txtEmail);
+        lblEmailError.setBounds(fieldX, startY + 18, 180, 12);
+        mainPanel.add(lblEmailError);
+        
+
+        startY += rowHeight;
+        JLabel lblConfirmEmail = new JLabel("Confirm Email Address");
+        lblConfirmEmail.setBounds(labelX, startY, 125, 20);
+        mainPanel.add(lblConfirmEmail);
+        txtConfirmEmail.setBounds(fieldX, startY, 180, 22);
+        mainPanel.add(txtConfirmEmail);
+        lblConfirmEmailError.setBounds(fieldX, startY + 18, 180, 12);
+        mainPanel.add(lblConfirmEmailError);
+        
+
+        startY += rowHeight;
+        JLabel lblPassword = new JLabel("Password");
+        lblPassword.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblPassword);
+        txtPassword.setBounds(fieldX, startY, 180, 22);
+        mainPanel.add(txtPassword);
+        lblPasswordError.setBounds(fieldX, startY + 18, 180, 12);
+        mainPanel.add(lblPasswordError);
+        
+
+        startY += rowHeight;
+        JLabel lblConfirmPassword = new JLabel("Confirm Password");
+        lblConfirmPassword.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblConfirmPassword);
+        txtConfirmPassword.setBounds(fieldX, startY, 180, 22);
+        mainPanel.add(txtConfirmPassword);
+        lblConfirmPasswordError.setBounds(fieldX, startY + 18, 180, 12);
+        mainPanel.add(lblConfirmPasswordError);
+        
+
+        startY += rowHeight;
+        JLabel lblDOB = new JLabel("Date of Birth");
+        lblDOB.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblDOB);
+        
+        comboYear.setBounds(fieldX, startY, 85, 22);
+        comboMonth.setBounds(fieldX + 90, startY, 100, 22);
+        comboDay.setBounds(fieldX + 195, startY, 80, 22);
+        mainPanel.add(comboYear);
+        mainPanel.add(comboMonth);
+        mainPanel.add(comboDay);
+        
+        lblDOBError.setBounds(fieldX, startY + 18, 250, 12);
+        mainPanel.add(lblDOBError);
+        
+
+        rbMale.setBounds(fieldX, startY + 35, 60, 20);
+        rbFemale.setBounds(fieldX + 65, startY + 35, 70, 20);
+        rbMale.setBackground(new Color(220, 228, 236));
+        rbFemale.setBackground(new Color(220, 228, 236));
+        mainPanel.add(rbMale);
+        mainPanel.add(rbFemale);
+        
+        lblGenderError.setBounds(fieldX + 140, startY + 38, 150, 12);
+        mainPanel.add(lblGenderError);
+        
+
+        startY += 65;
+        JLabel lblDepartment = new JLabel("Department");
+        lblDepartment.setBounds(labelX, startY, 120, 20);
+        mainPanel.add(lblDepartment);
+        
+        int deptY = startY;
+        rbCivil.setBounds(fieldX, deptY, 200, 18);
+        rbCivil.setBackground(new Color(220, 228, 236));
+        mainPanel.add(rbCivil);
+        
+        deptY += 20;
+        rbCSE.setBounds(fieldX, deptY, 250, 18);
+        rbCSE.setBackground(new Color(220, 228, 236));
+        mainPanel.add(rbCSE);
+        
+        deptY += 20;
+        rbElectrical.setBounds(fieldX, deptY, 200, 18);
+        rbElectrical.setBackground(new Color(220, 228, 236));
+        mainPanel.add(rbElectrical);
+        
+        deptY += 20;
+        rbEC.setBounds(fieldX, deptY, 220, 18);
+        rbEC.setBackground(new Color(220, 228, 236));
+        mainPanel.add(rbEC);
+        
+        deptY += 20;
+        rbMechanical.setBounds(fieldX, deptY, 200, 18);
+        rbMechanical.setBackground(new Color(220, 228, 236));
+        mainPanel.add(rbMechanical);
+        
+        lblDepartmentError.setBounds(fieldX, deptY + 20, 200, 12);
+        mainPanel.add(lblDepartmentError);
+
+        btnSubmit.setBounds(fieldX, 420, 80, 25);
+        btnCancel.setBounds(fieldX + 90, 420, 80, 25);
+        btnBrowse.setBounds(fieldX + 180, 420, 110, 25);
+        mainPanel.add(btnSubmit);
+        mainPanel.add(btnCancel);
+        mainPanel.add(btnBrowse);
+        
+        JLabel lblSearchTitle = new JLabel("Find a registered student:");
+        lblSearchTitle.setBounds(460, 45, 200, 20);
+        lblSearchTitle.setFont(new Font("Arial", Font.BOLD, 11));
+        mainPanel.add(lblSearchTitle);
+        
+        searchPanel.setBounds(460, 68, 260, 125);
+        mainPanel.add(searchPanel);
+        
+        JLabel lblDataTitle = new JLabel("Your Data is Below:");
+        lblDataTitle.setBounds(460, 200, 150, 20);
+        lblDataTitle.setFont(new Font("Arial", Font.BOLD, 11));
+        mainPanel.add(lblDataTitle);
+        
+        JScrollPane scrollPane = new JScrollPane(lstRecent);
+        scrollPane.setBounds(460, 225, 260, 220);
+        scrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+        mainPanel.add(scrollPane);
+        
+        add(mainPanel);
+    }
+    
+    private void setupEventListeners() {
+
+        comboYear.addActionListener(e -> updateDays());
+        comboMonth.addActionListener(e -> updateDays());
+        
+
+        btnSubmit.addActionListener(e -> handleSubmit());
+        
+        // Cancel button
+        btnCancel.addActionListener(e -> handleCancel());
+        
+        btnBrowse.addActionListener(e -> showBrowser());
+    }
+    
+    private void showBrowser() {
+        if (browserDialog == null) {
+            StudentBrowserPanel browser = new StudentBrowserPanel(registrationService.getBrowseStore());
+            browserDialog = new JDialog(this, "All Students", false);
+            browserDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            browserDialog.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    browser.dispose();
+                    browserDialog = null;
+                }
+            });
+            browserDialog.add(browser);
+            browserDialog.setSize(800, 500);
+            browserDialog.setLocationRelativeTo(this);
+        }
+        browserDialog.setVisible(true);
+        browserDialog.toFront();
+    }
+    
+    private void handleSubmit() {
+        // Clear previous errors
+        clearErrors();
+        
+        // Date of Birth
+        LocalDate dob = dateOfBirth.toDate(comboYear.getSelectedIndex(), comboMonth.getSelectedIndex(),
+            comboDay.getSelectedIndex());
+        
+        RegistrationRequest request = new RegistrationRequest(
+            txtFirstName.getText().trim(),
+            txtLastName.getText().trim(),
+            txtEmail.getText().trim(),
+            txtConfirmEmail.getText().trim(),
+            txtPassword.getPassword(),
+            txtConfirmPassword.getPassword(),
+            dob,
+            getSelectedGender(),
+            getSelectedDepartment());
+        
+        if (registrationService != null) {
+            showSubmission(registrationService.submit(request, this::handlePersisted));
+            return;
+        }
+        
+        // The server may take a moment to journal the registration, so wait off the EDT
+        btnSubmit.setEnabled(false);
+        new SwingWorker<Submission, Void>() {
+            @Override
+            protected Submission doInBackground() {
+                return registrar.submit(request, (record, saved, failures) ->
+                    SwingUtilities.invokeLater(() -> handlePersisted(record, saved, failures)));
+            }
+            
+            @Override
+            protected void done() {
+                btnSubmit.setEnabled(true);
+                try {
+                    showSubmission(get());
+                } catch (Exception e) {
+                    showSubmission(Submission.failed(Submission.Status.FAILED, e.getMessage()));
+                }
+            }
+        }.execute();
+    }
+    
+    private void showSubmission(Submission submission) {
+        switch (submission.getStatus()) {
+            case INVALID: {
+                StringBuilder errorSummary = new StringBuilder("Validation Errors:\n\n");
+                for (RegistrationValidator.Rule rule : RegistrationValidator.failedRules(submission.getValidationResult())) {
+                    errorLabelFor(rule.getField()).setText(rule.getLabel());
+                    errorSummary.append("- ").append(rule.getSummary()).append("\n");
+                }
+                
+                // Show error dialog
+                JOptionPane.showMessageDialog(this, errorSummary.toString(), 
+                    "Validation Errors", JOptionPane.ERROR_MESSAGE);
+                break;
+            }
+            case DUPLICATE_EMAIL: {
+                lblEmailError.setText("Email already registered");
+                String existingId = submission.getExistingStudentId();
+                JOptionPane.showMessageDialog(this,
+                    "Validation Errors:\n\n- Email is already registered"
+                        + (existingId == null ? "" : " (Student ID: " + existingId + ")") + "\n",
+                    "Validation Errors", JOptionPane.ERROR_MESSAGE);
+                break;
+            }
+            case BUSY:
+                JOptionPane.showMessageDialog(this, submission.getMessage(), "Busy", JOptionPane.WARNING_MESSAGE);
+                break;
+            case FAILED:
+                JOptionPane.showMessageDialog(this, submission.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                break;
+            default:
+                // Clear form
+                clearForm();
+        }
+    }
+    
+    private String getSelectedGender() {
+        if (rbMale.isSelected()) {
+            return "M";
+        } else if (rbFemale.isSelected()) {
+            return "F";
+        }
+        return null;
+    }
+    
+    private String getSelectedDepartment() {
+        if (rbCivil.isSelected()) {
+            return "Civil";
+        } else if (rbCSE.isSelected()) {
+            return "CSE";
+        } else if (rbElectrical.isSelected()) {
+            return "Electrical";
+        } else if (rbEC.isSelected()) {
+            return "E&C";
+        } else if (rbMechanical.isSelected()) {
+            return "Mechanical";
+        }
+        return null;
+    }
+    
+    private JLabel errorLabelFor(RegistrationValidator.Field field) {
+        switch (field) {
+            case FIRST_NAME: return lblFirstNameError;
+            case LAST_NAME: return lblLastNameError;
+            case EMAIL: return lblEmailError;
+            case CONFIRM_EMAIL: return lblConfirmEmailError;
+            case PASSWORD: return lblPasswordError;
+            case CONFIRM_PASSWORD: return lblConfirmPasswordError;
+            case DATE_OF_BIRTH: return lblDOBError;
+            case GENDER: return lblGenderError;
+            default: return lblDepartmentError;
+        }
+    }
+    
+    private void handlePersisted(StudentRecord record, boolean saved, List<String> failures) {
+        if (failures.isEmpty()) {
+            recentRegistrations.add(recentEntry(record, null));
+            JOptionPane.showMessageDialog(this, 
+                "Student registered successfully!\nStudent ID: " + record.getStudentId(),
+                "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else if (saved && (registrationService == null || registrationService.isJournaled())) {
+            // In the journal (ours or the server's); the stores it missed are caught up from there
+            recentRegistrations.add(recentEntry(record, "pending: " + String.join("; ", failures)));
+            JOptionPane.showMessageDialog(this,
+                "Student registered successfully!\nStudent ID: " + record.getStudentId()
+                    + "\n\nNot yet written to:\n" + String.join("\n", failures),
+                "Saved with Warnings", JOptionPane.WARNING_MESSAGE);
+        } else {
+            recentRegistrations.add(recentEntry(record, "not saved to: " + String.join("; ", failures)));
+            JOptionPane.showMessageDialog(this,
+                "Student " + record.getStudentId() + " was not fully saved:\n" + String.join("\n", failures),
+                "Save Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    // Broken over lines to fit the list without wrapping
+    private static String recentEntry(StudentRecord record, String note) {
+        String entry = String.format("ID: %s | %s %s\n%s | %s | %s\n%s", record.getStudentId(),
+            record.getFirstName(), record.getLastName(), record.getGender(), record.getDepartment(),
+            record.getDateOfBirth(), record.getEmail());
+        return note == null ? entry : entry + "\n  (" + note + ")";
+    }
+    
+    private void clearErrors() {
+        lblFirstNameError.setText(" ");
+        lblLastNameError.setText(" ");
+        lblEmailError.setText(" ");
+        lblConfirmEmailError.setText(" ");
+        lblPasswordError.setText(" ");
+        lblConfirmPasswordError.setText(" ");
+        lblDOBError.setText(" ");
+        lblGenderError.setText(" ");
+        lblDepartmentError.setText(" ");
+    }
+    
+    private void handleCancel() {
+        clearForm();
+        clearErrors();
+    }
+    
+    private void clearForm() {
+        txtFirstName.setText("");
+        txtLastName.setText("");
+        txtEmail.setText("");
+        txtConfirmEmail.setText("");
+        txtPassword.setText("");
+        txtConfirmPassword.setText("");
+        comboYear.setSelectedIndex(0);
+        comboMonth.setSelectedIndex(0);
+        comboDay.setSelectedIndex(0);
+        genderGroup.clearSelection();
+        departmentGroup.clearSelection();
+    }
+    
+    // One recent registration per cell, over as many lines as it has
+    private static final class RecentEntryRenderer extends JTextArea implements ListCellRenderer<String> {
+        RecentEntryRenderer() {
+            setFont(new Font("Monospaced", Font.PLAIN, 11));
+            setBorder(BorderFactory.createEmptyBorder(2, 3, 8, 3));
+        }
+        
+        @Override
+        public Component getListCellRendererComponent(JList<? extends String> list, String value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            setText(value);
+            setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+            setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+            return this;
+        }
+    }
+    
+    // Elapsed time of each startup phase, measured from launch
+    private static final class StartupTimings {
+        private final long launchNanos;
+        private final StringBuilder phases = new StringBuilder("Startup:");
+        private long lastNanos;
+        
+        StartupTimings(long launchNanos) {
+            this.launchNanos = launchNanos;
+            this.lastNanos = launchNanos;
+        }
+        
+        synchronized void mark(String phase) {
+            long now = System.nanoTime();
+            phases.append(String.format(" %s +%d ms (%d ms);", phase,
+                TimeUnit.NANOSECONDS.toMillis(now - lastNanos), TimeUnit.NANOSECONDS.toMillis(now - launchNanos)));
+            lastNanos = now;
+        }
+        
+        @Override
+        public synchronized String toString() {
+            return phases.toString();
+        }
+    }
+    
+    public static void main(String[] args) {
+        // Headless roster import: --import <roster.csv>
+        if (args.length >= 1 && args[0].equals("--import")) {
+            if (args.length < 2) {
+                System.err.println("Usage: StudentRegistrationForm --import <roster.csv>");
+                System.exit(2);
+            }
+            // The import writes to the stores without going through the journal, so a
+            // snapshot would miss its students
+            try {
+                StudentSnapshot.delete(new File(SNAPSHOT_FILE).toPath());
+            } catch (IOException e) {
+                System.err.println("Could not delete the snapshot, delete " + SNAPSHOT_FILE + ".* before starting: " + e.getMessage());
+                System.exit(1);
+            }
+            System.exit(BulkImporter.run(args[1], CSV_FILE, createStore(1), SEQUENCE_FILE));
+        }
+        
+        // Headless statistics: --report [csv|store]
+        if (args.length >= 1 && args[0].equals("--report")) {
+            System.exit(runReport(args.length >= 2 ? args[1] : "csv"));
+        }
+        
+        // Snapshot for a fast start, from the CSV file or the primary store: --snapshot [csv|store]
+        if (args.length >= 1 && args[0].equals("--snapshot")) {
+            System.exit(runSnapshot(args.length >= 2 ? args[1] : "csv"));
+        }
+        
+        // Differences between the CSV file and the primary store: --reconcile [repair] [full]
+        if (args.length >= 1 && args[0].equals("--reconcile")) {
+            boolean repair = false, full = false;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("repair")) {
+                    repair = true;
+                } else if (args[i].equals("full")) {
+                    full = true;
+                } else {
+                    System.err.println("Usage: StudentRegistrationForm --reconcile [repair] [full]");
+                    System.exit(2);
+                }
+            }
+            System.exit(runReconcile(repair, full));
+        }
+        
+        // Headless export of a filtered subset:
+        // --export <out.csv|out.json> [csv|store] [department=<name>] [name=<text>]
+        if (args.length >= 1 && args[0].equals("--export")) {
+            if (args.length < 2) {
+                System.err.println("Usage: StudentRegistrationForm --export <out.csv|out.json> [csv|store] [department=<name>] [name=<text>]");
+                System.exit(2);
+            }
+            System.exit(runExport(args));
+        }
+        
+        // Shared backend for several desks: --server [port] [bind address]
+        if (args.length >= 1 && args[0].equals("--server")) {
+            int port = RegistrationServer.DEFAULT_PORT;
+            if (args.length >= 2) {
+                try {
+                    port = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 1 || port > 65535) {
+                    System.err.println("Usage: StudentRegistrationForm --server [port 1-65535] [bind address]");
+                    System.exit(2);
+                }
+            }
+            String host = args.length >= 3 ? args[2] : "127.0.0.1";
+            try {
+                RegistrationServer.run(createService(DB_POOL_SIZE), host, port);
+            } catch (IOException e) {
+                System.err.println("Could not start the registration server: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        
+        // A desk submitting to a server: --server-url http://host:port
+        String serverUrl = null;
+        if (args.length >= 2 && args[0].equals("--server-url")) {
+            serverUrl = args[1];
+        }
+        
+        // Set look and feel to system default for better appearance
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            // Use default look and feel
+        }
+        
+        // Run the application
+        long launchNanos = System.nanoTime();
+        String url = serverUrl;
+        SwingUtilities.invokeLater(() -> {
+            StudentRegistrationForm form = new StudentRegistrationForm(url);
+            form.setVisible(true);
+            form.startBackend(launchNanos);
+        });
+        
+        // Submit latencies and save errors, over JMX and in a periodic summary on stdout.
+        // Loading the MBean server is slow, so it happens here while the EDT builds the form.
+        RegistrationMetrics.global().install();
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory index of registered students by StudentID and by normalized email, loaded
+// once at startup and kept current as registrations are saved. An email is reserved
+// when a registration is accepted, so two concurrent submissions with the same
+// address cannot both pass the duplicate check.
+//
+// Only the ID and the normalized email are held per student (the two maps share the
+// same String instances), roughly 200 bytes per student on a 64-bit JVM with
+// compressed oops, or about 100 MB for 500k students.
+//
+// Built on a StudentSnapshot, the students in the snapshot are looked up in the
+// mapped file instead and cost no heap; the maps only hold students added since.
+// When a newer snapshot is written the registry moves onto it, so that the older
+// file is no longer mapped.
+public class StudentRegistry {
+
+    private final ConcurrentHashMap<String, String> emailById;
+    private final ConcurrentHashMap<String, String> idByEmail;
+    private volatile StudentSnapshot snapshot;
+
+    public StudentRegistry() {
+        this(1024);
+    }
+
+    public StudentRegistry(int expectedSize) {
+        this(expectedSize, null);
+    }
+
+    public StudentRegistry(StudentSnapshot snapshot) {
+        this(1024, snapshot);
+    }
+
+    private StudentRegistry(int expectedSize, StudentSnapshot snapshot) {
+        this.emailById = new ConcurrentHashMap<>(expectedSize);
+        this.idByEmail = new ConcurrentHashMap<>(expectedSize);
+        this.snapshot = snapshot;
+    }
+
+    // Loads from the primary repository, falling back to the CSV file if it is unavailable
+    public static StudentRegistry load(StudentRepository primary, StudentCsvFile csvFile) {
+        StudentRegistry registry = new StudentRegistry();
+        if (primary != null) {
+            try {
+                primary.forEachIdAndEmail(registry::add);
+                return registry;
+            } catch (Exception e) {
+                System.err.println("Could not load registry from " + primary.getName() + ", trying CSV: " + e.getMessage());
+            }
+        }
+        try {
+            csvFile.forEachIdAndEmail(registry::add);
+        } catch (IOException e) {
+            System.err.println("Could not load registry from CSV: " + e.getMessage());
+        }
+        return registry;
+    }
+
+    // Looks the snapshot's students up in `newer` from now on, which holds all of them
+    // and more, and drops those it holds from the maps. A registry loaded without a
+    // snapshot keeps its maps.
+    public void rebase(StudentSnapshot newer) {
+        if (snapshot == null) {
+            return;
+        }
+        // Swapped first, so a student is always in the snapshot or the maps
+        snapshot = newer;
+        for (Map.Entry<String, String> entry : emailById.entrySet()) {
+            if (newer.containsId(entry.getKey())) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void remove(String studentId, String normalized) {
+        if (idByEmail.remove(normalized, studentId)) {
+            emailById.remove(studentId, normalized);
+        }
+    }
+
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Adds a stored student. Used while loading and after a registration is saved.
+    public void add(String studentId, String email) {
+        StudentSnapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.containsId(studentId)) {
+            return;
+        }
+        String normalized = normalizeEmail(email);
+        idByEmail.put(normalized, studentId);
+        emailById.put(studentId, normalized);
+        // A rebase onto a snapshot that has it may have missed it
+        if (snapshot != null && this.snapshot != snapshot && this.snapshot.containsId(studentId)) {
+            remove(studentId, normalized);
+        }
+    }
+
+    public boolean isEmailRegistered(String email) {
+        return findIdByEmail(email) != null;
+    }
+
+    // Atomically claims the email for the given ID. Returns false if it is already taken.
+    // A snapshot never loses a student, so checking it first keeps this atomic, as long
+    // as a rebase that may have moved the email out of the maps is checked for after.
+    public boolean reserveEmail(String email, String studentId) {
+        String normalized = normalizeEmail(email);
+        StudentSnapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.findIdByEmail(normalized) != null) {
+            return false;
+        }
+        if (idByEmail.putIfAbsent(normalized, studentId) != null) {
+            return false;
+        }
+        emailById.put(studentId, normalized);
+        if (snapshot != null && this.snapshot != snapshot && this.snapshot.findIdByEmail(normalized) != null) {
+            remove(studentId, normalized);
+            return false;
+        }
+        return true;
+    }
+
+    // Drops a reservation whose registration could not be saved anywhere
+    public void release(String email, String studentId) {
+        remove(studentId, normalizeEmail(email));
+    }
+
+    public String findIdByEmail(String email) {
+        String normalized = normalizeEmail(email);
+        // The maps first: a student a rebase takes out of them is already in the snapshot
+        String id = idByEmail.get(normalized);
+        StudentSnapshot snapshot = this.snapshot;
+        return id != null || snapshot == null ? id : snapshot.findIdByEmail(normalized);
+    }
+
+    public String findEmailById(String studentId) {
+        String email = emailById.get(studentId);
+        StudentSnapshot snapshot = this.snapshot;
+        return email != null || snapshot == null ? email : snapshot.findEmailById(studentId);
+    }
+
+    public boolean containsId(String studentId) {
+        if (emailById.containsKey(studentId)) {
+            return true;
+        }
+        StudentSnapshot snapshot = this.snapshot;
+        return snapshot != null && snapshot.containsId(studentId);
+    }
+
+    public int size() {
+        StudentSnapshot snapshot = this.snapshot;
+        return emailById.size() + (snapshot == null ? 0 : snapshot.size());
+    }
+}
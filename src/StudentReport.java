@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Counts over the registered students for administration: by department, gender,
+// age bucket, birth year and registration year (the StudentID prefix).
+//
+// The CSV file is scanned in parallel: it is split into byte ranges, each range is
+// counted by its own CsvReader on a ForkJoinPool, and the partial reports are merged.
+// A range starts at a line break, which in a file written before names were checked
+// for control characters may be inside a quoted field; if any range did not start
+// where the one before it stopped, the file is counted again in one pass.
+// Readers map a window of the file rather than loading it, and a report only holds
+// counts, so memory stays bounded however large the file. Other stores are read
+// through StudentRepository.forEach, which streams (the database through a
+// forward-only cursor).
+public final class StudentReport {
+
+    // Ranges are at least this large so that small files are not split needlessly
+    private static final long MIN_RANGE_BYTES = 8L << 20;
+    private static final long WINDOW_BYTES = 64L << 20;
+    private static final int[] AGE_BOUNDS = {18, 21, 25, 30, 40};
+    private static final String[] AGE_BUCKETS = {"under 18", "18-20", "21-24", "25-29", "30-39", "40 and over"};
+    private static final String UNKNOWN = "unknown";
+
+    private final LocalDate today;
+    private final Map<String, long[]> byDepartment = new HashMap<>();
+    private final Map<String, long[]> byGender = new HashMap<>();
+    private final long[] byAgeBucket = new long[AGE_BUCKETS.length + 1];
+    private final Map<String, long[]> byBirthYear = new HashMap<>();
+    private final Map<String, long[]> byRegistrationYear = new HashMap<>();
+    private long students;
+    // For the throughput line; bytes is 0 when the source is not a file
+    private long bytes;
+    private long elapsedNanos;
+
+    public StudentReport(LocalDate today) {
+        this.today = today;
+    }
+
+    // Scans the CSV file with `parallelism` threads (header row first, as StudentCsvFile
+    // writes it). Rows that do not have the seven columns are skipped.
+    public static StudentReport scanCsv(Path csv, int parallelism, LocalDate today) throws IOException {
+        long start = System.nanoTime();
+        long size = Files.size(csv);
+        long rangeSize = Math.max(MIN_RANGE_BYTES, (size + parallelism * 4L - 1) / (parallelism * 4L));
+        int ranges = (int) Math.max(1, (size + rangeSize - 1) / rangeSize);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<RangeScan> scans;
+        try {
+            scans = pool.submit(() -> IntStream.range(0, ranges).parallel()
+                .mapToObj(i -> scanRange(csv, i * rangeSize, (i + 1) * rangeSize, today))
+                .collect(Collectors.toList())).join();
+        } finally {
+            pool.shutdown();
+        }
+        StudentReport report = new StudentReport(today);
+        long stop = 0;
+        for (RangeScan scan : scans) {
+            if (scan.first != stop) {
+                // Started inside a row that the range before it read to its end
+                report = scanRange(csv, 0, Long.MAX_VALUE, today).result();
+                break;
+            }
+            // Each range has its own report, so merging into this one is safe
+            report.merge(scan.result());
+            stop = scan.stop;
+        }
+        report.bytes = size;
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // The counts of one range, and where its rows started and stopped
+    private static final class RangeScan {
+        final StudentReport report;
+        long first = -1;
+        long stop = -1;
+        IOException error;
+
+        RangeScan(StudentReport report) {
+            this.report = report;
+        }
+
+        StudentReport result() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+            return report;
+        }
+    }
+
+    // Errors are kept rather than thrown, since a range that started inside a row can
+    // fail to parse and is then read again
+    private static RangeScan scanRange(Path csv, long start, long end, LocalDate today) {
+        RangeScan scan = new RangeScan(new StudentReport(today));
+        try (CsvReader reader = CsvReader.open(csv, WINDOW_BYTES, start, end)) {
+            scan.first = reader.getPosition();
+            if (start == 0) {
+                reader.next(); // Skip header
+            }
+            while (reader.next()) {
+                CsvReader.Row row = reader.row();
+                if (row.getFieldCount() == 7) {
+                    scan.report.add(row.field(0), row.field(3), row.field(4), row.field(5));
+                }
+            }
+            scan.stop = reader.getPosition();
+        } catch (IOException e) {
+            scan.error = e;
+        }
+        return scan;
+    }
+
+    // One pass over the store on the calling thread
+    public static StudentReport scan(StudentRepository store, LocalDate today) throws Exception {
+        long start = System.nanoTime();
+        StudentReport report = new StudentReport(today);
+        store.forEach(record -> report.add(record.getStudentId(), record.getGender(),
+            record.getDepartment(), record.getDateOfBirth()));
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    public void add(String studentId, String gender, String department, String dateOfBirth) {
+        students++;
+        count(byDepartment, department);
+        count(byGender, gender);
+        int dash = studentId == null ? -1 : studentId.indexOf('-');
+        count(byRegistrationYear, dash > 0 ? studentId.substring(0, dash) : null);
+
+        int[] date = parseDate(dateOfBirth);
+        if (date == null) {
+            count(byBirthYear, null);
+            byAgeBucket[AGE_BUCKETS.length]++;
+            return;
+        }
+        count(byBirthYear, String.valueOf(date[0]));
+        int age = today.getYear() - date[0];
+        if (today.getMonthValue() < date[1] || (today.getMonthValue() == date[1] && today.getDayOfMonth() < date[2])) {
+            age--;
+        }
+        int bucket = 0;
+        while (bucket < AGE_BOUNDS.length && age >= AGE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        byAgeBucket[bucket]++;
+    }
+
+    // Adds the other report's counts to this one and returns this
+    public StudentReport merge(StudentReport other) {
+        students += other.students;
+        merge(byDepartment, other.byDepartment);
+        merge(byGender, other.byGender);
+        merge(byBirthYear, other.byBirthYear);
+        merge(byRegistrationYear, other.byRegistrationYear);
+        for (int i = 0; i < byAgeBucket.length; i++) {
+            byAgeBucket[i] += other.byAgeBucket[i];
+        }
+        return this;
+    }
+
+    public long getStudentCount() {
+        return students;
+    }
+
+    public Map<String, Long> getByDepartment() {
+        return sorted(byDepartment);
+    }
+
+    public Map<String, Long> getByGender() {
+        return sorted(byGender);
+    }
+
+    // In age order, "unknown" last
+    public Map<String, Long> getByAgeBucket() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < AGE_BUCKETS.length; i++) {
+            counts.put(AGE_BUCKETS[i], byAgeBucket[i]);
+        }
+        if (byAgeBucket[AGE_BUCKETS.length] > 0) {
+            counts.put(UNKNOWN, byAgeBucket[AGE_BUCKETS.length]);
+        }
+        return counts;
+    }
+
+    public Map<String, Long> getByBirthYear() {
+        return sorted(byBirthYear);
+    }
+
+    public Map<String, Long> getByRegistrationYear() {
+        return sorted(byRegistrationYear);
+    }
+
+    // Rows and megabytes per second of the scan that produced this report
+    public String describeThroughput() {
+        double seconds = elapsedNanos / 1e9;
+        String rate = String.format(Locale.ROOT, "%d students in %.2f s (%.0f students/s", students, seconds,
+            students / Math.max(seconds, 1e-9));
+        if (bytes > 0) {
+            rate += String.format(Locale.ROOT, ", %.1f MB/s", bytes / 1048576.0 / Math.max(seconds, 1e-9));
+        }
+        return rate + ")";
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append("Students: ").append(students).append('\n');
+        section(out, "By department", getByDepartment());
+        section(out, "By gender", getByGender());
+        section(out, "By age on " + today, getByAgeBucket());
+        section(out, "By year of birth", getByBirthYear());
+        section(out, "By year of registration", getByRegistrationYear());
+        return out.toString();
+    }
+
+    private void section(StringBuilder out, String title, Map<String, Long> counts) {
+        out.append('\n').append(title).append('\n');
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            double percent = students == 0 ? 0 : 100.0 * entry.getValue() / students;
+            out.append(String.format(Locale.ROOT, "  %-16s %10d  %5.1f%%%n", entry.getKey(), entry.getValue(), percent));
+        }
+    }
+
+    private static void count(Map<String, long[]> counts, String key) {
+        String bucket = key == null || key.isEmpty() ? UNKNOWN : key;
+        long[] count = counts.get(bucket);
+        if (count == null) {
+            counts.put(bucket, new long[] {1});
+        } else {
+            count[0]++;
+        }
+    }
+
+    private static void merge(Map<String, long[]> into, Map<String, long[]> from) {
+        for (Map.Entry<String, long[]> entry : from.entrySet()) {
+            into.computeIfAbsent(entry.getKey(), k -> new long[1])[0] += entry.getValue()[0];
+        }
+    }
+
+    private static Map<String, Long> sorted(Map<String, long[]> counts) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return result;
+    }
+
+    // {year, month, day} of a yyyy-MM-dd date, or null if it is not one
+    private static int[] parseDate(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        return new int[] {year, month, day};
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,16 @@
+import java.io.IOException;
+
+// A place where student records are stored. The form and the bulk importer write to
+// every repository through the PersistencePipeline.RecordSink methods; the primary
+// one (selected with -Dstudent.store, see StudentRegistrationForm) is also the
+// first place the registry and the ID counter are recovered from. Reads go through
+// the StudentSource methods.
+public interface StudentRepository extends StudentSource, PersistencePipeline.RecordSink, AutoCloseable {
+
+    // Prepares the storage (schema, files, index). Called once before anything else.
+    void initialize() throws Exception;
+
+    // Narrower than AutoCloseable's, so try-with-resources need not handle Exception
+    @Override
+    void close() throws IOException;
+}
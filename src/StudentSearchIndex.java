@@ -0,0 +1,494 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// In-memory search over registered students for the form's search field: prefix
+// matches on StudentID, first name, last name and email, or fuzzy matches on the
+// name for typos. Built from the store at startup and kept current as registrations
+// are saved.
+//
+// Every student is appended to one byte arena as UTF-8 "id\0first\0last\0email\0".
+// The prefix index is an int[] of pointers to those four terms, sorted by term text
+// ignoring ASCII case, so a prefix query is a binary search and a short walk. New
+// students' terms are inserted into a smaller sorted tail, which is merged into the
+// main array once it holds a sixteenth as many terms (at least MERGE_THRESHOLD). The
+// fuzzy index keeps, for each trigram of " first last ", the ascending list of
+// students whose name has it; a query is scored by the share of trigrams in common.
+//
+// Memory on a 64-bit JVM: the arena (about 55 bytes for typical values), 4 bytes of
+// arena offset, 16 bytes of term pointers, 1 byte of trigram count and 4 bytes per
+// distinct name trigram (about 14) in the postings: roughly 140 bytes per student
+// with the postings' own overhead, or 140 MB for 1M. Arrays grow by half, so allow
+// for that much slack while loading.
+// All methods are synchronized.
+public final class StudentSearchIndex {
+
+    static final int MERGE_THRESHOLD = 4096;
+    // Stop looking at prefix matches once this many have been checked against the
+    // other words of a multi-word query
+    private static final int MAX_PREFIX_CANDIDATES = 10_000;
+    // Minimum share of trigrams (Jaccard) for a fuzzy match
+    private static final double MIN_FUZZY_SCORE = 0.3;
+    private static final int TERMS_PER_STUDENT = 4;
+
+    public static final class Match {
+        private final String studentId;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final boolean fuzzy;
+
+        Match(String studentId, String firstName, String lastName, String email, boolean fuzzy) {
+            this.studentId = studentId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.fuzzy = fuzzy;
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        // True for a similar name rather than a prefix of one of the student's terms
+        public boolean isFuzzy() {
+            return fuzzy;
+        }
+
+        @Override
+        public String toString() {
+            return studentId + "  " + firstName + " " + lastName + "  " + email;
+        }
+    }
+
+    // Growable list of ascending student numbers
+    private static final class Postings {
+        int[] students = new int[4];
+        int size;
+
+        void add(int student) {
+            if (size == students.length) {
+                students = Arrays.copyOf(students, size + (size >> 1) + 1);
+            }
+            students[size++] = student;
+        }
+    }
+
+    private byte[] arena = new byte[64 * 1024];
+    private int arenaLength;
+    private int[] studentStart = new int[1024];
+    private byte[] trigramCount = new byte[1024];
+    private int studentCount;
+    private int[] terms = new int[0];
+    private int termCount;
+    private int[] tail = new int[MERGE_THRESHOLD];
+    private int tailCount;
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // Scratch space for fuzzy scoring, reused between queries
+    private int[] sharedTrigrams = new int[0];
+
+    // Builds the index from every record in the store
+    public static StudentSearchIndex load(StudentSource store) throws Exception {
+        StudentSearchIndex index = new StudentSearchIndex();
+        synchronized (index) {
+            // Terms are sorted once at the end instead of inserted one by one
+            store.forEach(record -> index.append(record, false));
+            index.sortTerms(index.tail, new int[index.tailCount], 0, index.tailCount);
+            index.mergeTail();
+        }
+        return index;
+    }
+
+    // Replaces the contents with every record in the store. Searches see the old
+    // contents until the new ones are loaded.
+    public void reload(StudentSource store) throws Exception {
+        StudentSearchIndex loaded = load(store);
+        synchronized (this) {
+            arena = loaded.arena;
+            arenaLength = loaded.arenaLength;
+            studentStart = loaded.studentStart;
+            trigramCount = loaded.trigramCount;
+            studentCount = loaded.studentCount;
+            terms = loaded.terms;
+            termCount = loaded.termCount;
+            tail = loaded.tail;
+            tailCount = loaded.tailCount;
+            postings.clear();
+            postings.putAll(loaded.postings);
+        }
+    }
+
+    // Whether a student with exactly this ID has been added
+    public synchronized boolean containsId(String studentId) {
+        byte[] id = foldCase(studentId.getBytes(StandardCharsets.UTF_8));
+        for (int[] sorted : new int[][] {terms, tail}) {
+            int count = sorted == terms ? termCount : tailCount;
+            for (int i = lowerBound(sorted, count, id); i < count && comparePrefix(sorted[i], id) == 0; i++) {
+                // The whole term, and the first of a student's
+                int term = sorted[i];
+                if (endOf(term) - term == id.length && studentStart[studentOf(term)] == term) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(StudentRecord record) {
+        append(record, true);
+        if (tailCount >= Math.max(MERGE_THRESHOLD, termCount / 16)) {
+            mergeTail();
+        }
+    }
+
+    public synchronized int size() {
+        return studentCount;
+    }
+
+    // Heap held by the index's arrays and postings, for the memory budget above
+    public synchronized long estimatedBytes() {
+        long bytes = arena.length + 4L * studentStart.length + trigramCount.length
+            + 4L * terms.length + 4L * tail.length;
+        for (Postings list : postings.values()) {
+            // Entry, boxed key, Postings object and array header
+            bytes += 4L * list.students.length + 96;
+        }
+        return bytes;
+    }
+
+    // Students with a term starting with every word of the query (ignoring ASCII case),
+    // or, if there are none, students whose name is similar to it. Fuzzy matching
+    // touches every student sharing a trigram, so it is kept for queries with a typo.
+    public synchronized List<Match> search(String query, int limit) {
+        List<Match> matches = new ArrayList<>();
+        String[] words = query.trim().split("\\s+");
+        if (words[0].isEmpty() || limit <= 0) {
+            return matches;
+        }
+        Set<Integer> found = new LinkedHashSet<>();
+        prefixSearch(words, limit, found);
+        for (int student : found) {
+            matches.add(match(student, false));
+        }
+        if (matches.isEmpty()) {
+            for (int student : fuzzySearch(query, limit, found)) {
+                matches.add(match(student, true));
+            }
+        }
+        return matches;
+    }
+
+    private void append(StudentRecord record, boolean keepTailSorted) {
+        if (studentCount == studentStart.length) {
+            int capacity = studentCount + (studentCount >> 1);
+            studentStart = Arrays.copyOf(studentStart, capacity);
+            trigramCount = Arrays.copyOf(trigramCount, capacity);
+        }
+        int student = studentCount++;
+        studentStart[student] = arenaLength;
+        appendTerm(record.getStudentId(), keepTailSorted);
+        appendTerm(record.getFirstName(), keepTailSorted);
+        appendTerm(record.getLastName(), keepTailSorted);
+        appendTerm(record.getEmail(), keepTailSorted);
+        indexTrigrams(student, nameText(record.getFirstName(), record.getLastName()));
+    }
+
+    private void appendTerm(String term, boolean keepTailSorted) {
+        byte[] bytes = (term == null ? "" : term).getBytes(StandardCharsets.UTF_8);
+        if (arenaLength + bytes.length + 1 > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length + (arena.length >> 1), arenaLength + bytes.length + 1));
+        }
+        if (tailCount == tail.length) {
+            tail = Arrays.copyOf(tail, tailCount + (tailCount >> 1) + 1);
+        }
+        int pointer = arenaLength;
+        System.arraycopy(bytes, 0, arena, arenaLength, bytes.length);
+        arenaLength += bytes.length;
+        // Terms never contain NUL; it ends each one
+        arena[arenaLength++] = 0;
+
+        int position = tailCount;
+        if (keepTailSorted) {
+            int low = 0;
+            while (low < position) {
+                int mid = (low + position) >>> 1;
+                if (compareTerms(tail[mid], pointer) < 0) {
+                    low = mid + 1;
+                } else {
+                    position = mid;
+                }
+            }
+            System.arraycopy(tail, position, tail, position + 1, tailCount - position);
+        }
+        tail[position] = pointer;
+        tailCount++;
+    }
+
+    private void indexTrigrams(int student, String name) {
+        long[] trigrams = trigrams(name);
+        for (long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, t -> new Postings()).add(student);
+        }
+        trigramCount[student] = (byte) Math.min(trigrams.length, 255);
+    }
+
+    // Merges the sorted tail into the sorted terms
+    private void mergeTail() {
+        if (tailCount == 0) {
+            return;
+        }
+        int[] sortedTail = tail;
+        int[] merged = new int[termCount + tailCount];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < termCount && j < tailCount) {
+            merged[k++] = compareTerms(terms[i], sortedTail[j]) <= 0 ? terms[i++] : sortedTail[j++];
+        }
+        while (i < termCount) merged[k++] = terms[i++];
+        while (j < tailCount) merged[k++] = sortedTail[j++];
+        terms = merged;
+        termCount = merged.length;
+        tailCount = 0;
+        tail = new int[Math.max(MERGE_THRESHOLD, termCount / 16)];
+    }
+
+    private void prefixSearch(String[] words, int limit, Set<Integer> found) {
+        // The longest word narrows the walk the most; the others are checked per student
+        int primary = 0;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > words[primary].length()) primary = i;
+        }
+        byte[][] prefixes = new byte[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            prefixes[i] = foldCase(words[i].getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] prefix = prefixes[primary];
+
+        int candidates = 0;
+        for (int[] sorted : new int[][] {terms, tail}) {
+            int count = sorted == terms ? termCount : tailCount;
+            for (int i = lowerBound(sorted, count, prefix); i < count && comparePrefix(sorted[i], prefix) == 0; i++) {
+                if (++candidates > MAX_PREFIX_CANDIDATES
+                        || (addIfAllWordsMatch(studentOf(sorted[i]), prefixes, found) && found.size() >= limit)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean addIfAllWordsMatch(int student, byte[][] prefixes, Set<Integer> found) {
+        for (byte[] prefix : prefixes) {
+            boolean matched = false;
+            int term = studentStart[student];
+            for (int t = 0; t < TERMS_PER_STUDENT && !matched; t++) {
+                matched = comparePrefix(term, prefix) == 0;
+                term = endOf(term) + 1;
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return found.add(student);
+    }
+
+    private List<Integer> fuzzySearch(String query, int limit, Set<Integer> exclude) {
+        long[] queryTrigrams = trigrams(nameText(query, null));
+        if (sharedTrigrams.length < studentCount) {
+            sharedTrigrams = new int[studentStart.length];
+        }
+        List<Integer> touched = new ArrayList<>();
+        for (long trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) continue;
+            for (int i = 0; i < list.size; i++) {
+                int student = list.students[i];
+                if (sharedTrigrams[student]++ == 0) {
+                    touched.add(student);
+                }
+            }
+        }
+
+        // Lowest score on top, so the worst of the best `limit` is dropped first
+        PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int student : touched) {
+            int shared = sharedTrigrams[student];
+            sharedTrigrams[student] = 0;
+            double score = (double) shared / (queryTrigrams.length + (trigramCount[student] & 0xFF) - shared);
+            if (score >= MIN_FUZZY_SCORE && !exclude.contains(student)) {
+                best.add(new double[] {score, student});
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<Integer> students = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            students.add(0, (int) best.poll()[1]);
+        }
+        return students;
+    }
+
+    private Match match(int student, boolean fuzzy) {
+        String[] fields = new String[TERMS_PER_STUDENT];
+        int term = studentStart[student];
+        for (int t = 0; t < TERMS_PER_STUDENT; t++) {
+            int end = endOf(term);
+            fields[t] = new String(arena, term, end - term, StandardCharsets.UTF_8);
+            term = end + 1;
+        }
+        return new Match(fields[0], fields[1], fields[2], fields[3], fuzzy);
+    }
+
+    // The student whose entry in the arena contains the pointer
+    private int studentOf(int pointer) {
+        int low = 0;
+        int high = studentCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (studentStart[mid] <= pointer) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int endOf(int term) {
+        int end = term;
+        while (arena[end] != 0) end++;
+        return end;
+    }
+
+    // First of the sorted terms that does not sort before the prefix
+    private int lowerBound(int[] sorted, int count, byte[] prefix) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(sorted[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Negative if the term sorts before every term with the prefix, zero if it has
+    // it, positive if it sorts after them
+    private int comparePrefix(int term, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            byte b = arena[term + i];
+            if (b == 0) {
+                return -1;
+            }
+            int order = (fold(b) & 0xFF) - (prefix[i] & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    private int compareTerms(int a, int b) {
+        for (int i = 0; ; i++) {
+            int x = fold(arena[a + i]) & 0xFF;
+            int y = fold(arena[b + i]) & 0xFF;
+            if (x != y) {
+                return x - y;
+            }
+            if (x == 0) {
+                // Equal text; keep older students first
+                return Integer.compare(a, b);
+            }
+        }
+    }
+
+    // Merge sort of term pointers by term text
+    private void sortTerms(int[] pointers, int[] scratch, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int pointer = pointers[i];
+                int j = i - 1;
+                while (j >= from && compareTerms(pointers[j], pointer) > 0) {
+                    pointers[j + 1] = pointers[j];
+                    j--;
+                }
+                pointers[j + 1] = pointer;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortTerms(pointers, scratch, from, mid);
+        sortTerms(pointers, scratch, mid, to);
+        if (compareTerms(pointers[mid - 1], pointers[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(pointers, from, scratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compareTerms(scratch[i], scratch[j]) <= 0)) {
+                pointers[k] = scratch[i++];
+            } else {
+                pointers[k] = scratch[j++];
+            }
+        }
+    }
+
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] foldCase(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = fold(bytes[i]);
+        }
+        return bytes;
+    }
+
+    private static String nameText(String first, String last) {
+        StringBuilder text = new StringBuilder(" ");
+        if (first != null) text.append(first.trim()).append(' ');
+        if (last != null) text.append(last.trim()).append(' ');
+        return text.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Distinct trigrams of the text, each packed into a long
+    private static long[] trigrams(String text) {
+        long[] trigrams = new long[Math.max(0, text.length() - 2)];
+        int count = 0;
+        for (int i = 0; i + 2 < text.length(); i++) {
+            long trigram = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = trigrams[j] == trigram;
+            }
+            if (!seen) {
+                trigrams[count++] = trigram;
+            }
+        }
+        return Arrays.copyOf(trigrams, count);
+    }
+}
@@ -0,0 +1,92 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Search-as-you-type over a StudentSearchIndex. Typing restarts a short timer, and
+// only when it fires is the query run, on a background thread; results of a query
+// that has since been superseded are dropped.
+public class StudentSearchPanel extends JPanel {
+
+    static final int DEBOUNCE_MS = 150;
+    private static final int MAX_MATCHES = 20;
+
+    private final JTextField txtQuery = new JTextField();
+    private final JList<StudentSearchIndex.Match> lstMatches = new JList<>();
+    private final Timer debounce;
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "student-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private StudentSearchIndex index;
+    // Bumped by every query; a result is shown only if it is still the latest
+    private int generation;
+
+    public StudentSearchPanel() {
+        super(new BorderLayout(0, 4));
+        setOpaque(false);
+        txtQuery.setToolTipText("Name, email or Student ID");
+        txtQuery.setEnabled(false);
+        lstMatches.setFont(new Font("Monospaced", Font.PLAIN, 11));
+        lstMatches.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                StudentSearchIndex.Match match = (StudentSearchIndex.Match) value;
+                // Fuzzy matches are marked so a near miss is not taken for the student
+                String text = (match.isFuzzy() ? "~ " : "") + match;
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+
+        debounce = new Timer(DEBOUNCE_MS, e -> runQuery());
+        debounce.setRepeats(false);
+        txtQuery.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        add(txtQuery, BorderLayout.NORTH);
+        add(new JScrollPane(lstMatches), BorderLayout.CENTER);
+    }
+
+    // Enables searching once the index is loaded; null leaves the field disabled
+    public void setIndex(StudentSearchIndex index, String unavailableReason) {
+        this.index = index;
+        txtQuery.setEnabled(index != null);
+        txtQuery.setToolTipText(index != null ? "Name, email or Student ID" : unavailableReason);
+    }
+
+    private void runQuery() {
+        String query = txtQuery.getText();
+        int queryGeneration = ++generation;
+        StudentSearchIndex searchIndex = index;
+        if (searchIndex == null || query.trim().isEmpty()) {
+            lstMatches.setListData(new StudentSearchIndex.Match[0]);
+            return;
+        }
+        searcher.execute(() -> {
+            List<StudentSearchIndex.Match> matches = searchIndex.search(query, MAX_MATCHES);
+            SwingUtilities.invokeLater(() -> {
+                if (queryGeneration == generation) {
+                    lstMatches.setListData(matches.toArray(new StudentSearchIndex.Match[0]));
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,689 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Read-only columnar copy of every student, memory-mapped so that opening it costs a
+// few page faults instead of a scan of the store. The registry looks students up in
+// it directly, and journal entries newer than its sequence number are applied on top.
+//
+// Rows are sorted by StudentID, held as a long (year << 32 | counter), so an ID is
+// found by binary search. Department and gender are one-byte codes into a dictionary,
+// the date of birth is an epoch day, and every other string is an offset into a
+// shared heap of length-prefixed UTF-8 in which repeated names are stored once. Emails
+// are also indexed by the hash of their normalized form.
+//
+// Layout (little-endian): a header, then one array per column, each 8-byte aligned:
+//   ids long[rows], dateOfBirth int[rows], firstName, lastName, email and passwordHash
+//   heap refs int[rows], emailHash int[rows] (sorted) with its row int[rows],
+//   department byte[rows], gender byte[rows], then the dictionaries' heap refs and the
+//   heap. A null string is ref -1, a null code 0xFF, a null date Integer.MIN_VALUE.
+//
+// Snapshots are written to a temporary file and renamed into place as <base>.<sequence>,
+// so a new snapshot never replaces a file that is mapped, which Windows refuses. The
+// file with the highest sequence is loaded. There is no closing a snapshot: its mapping
+// is released only when it is garbage collected, so older files are deleted on a
+// later refresh, once Windows lets them go.
+public final class StudentSnapshot implements StudentSource {
+
+    private static final int MAGIC = 0x534E5031; // "SNP1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int CRC_OFFSET = 40;
+    private static final int NULL_REF = -1;
+    private static final int NULL_CODE = 0xFF;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    // Names are shared in the heap while the writer has seen fewer distinct ones
+    private static final int MAX_SHARED_NAMES = 1 << 16;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final int rows;
+    private final long sequence;
+    private final String[] departments;
+    private final String[] genders;
+    private final int ids, dates, firstNames, lastNames, emails, hashes, emailHashes, emailRows,
+        departmentCodes, genderCodes, heap;
+
+    // Section offsets, computed the same way by the writer and the reader
+    private static final class Layout {
+        final int[] offsets = new int[12];
+        final long end;
+
+        Layout(int rows, int departments, int genders, long heapBytes) {
+            long offset = HEADER_BYTES;
+            int[] sizes = {8 * rows, 4 * rows, 4 * rows, 4 * rows, 4 * rows, 4 * rows, 4 * rows, 4 * rows,
+                rows, rows, 4 * (departments + genders)};
+            for (int i = 0; i < sizes.length; i++) {
+                offsets[i] = (int) offset;
+                offset = (offset + sizes[i] + 7) & ~7L;
+            }
+            offsets[11] = (int) offset;
+            end = offset + heapBytes;
+            if (end > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A snapshot is limited to 2 GB");
+            }
+        }
+    }
+
+    private StudentSnapshot(Path file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a student snapshot");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate().position(0).limit(CRC_OFFSET));
+        if ((int) crc.getValue() != data.getInt(CRC_OFFSET) || data.getLong(24) != data.capacity()) {
+            throw new IOException(file + " is damaged or incomplete");
+        }
+        rows = data.getInt(8);
+        sequence = data.getLong(16);
+        Layout layout = new Layout(rows, data.getInt(12) >>> 16, data.getInt(12) & 0xFFFF, data.getLong(32));
+        int[] at = layout.offsets;
+        ids = at[0];
+        dates = at[1];
+        firstNames = at[2];
+        lastNames = at[3];
+        emails = at[4];
+        hashes = at[5];
+        emailHashes = at[6];
+        emailRows = at[7];
+        departmentCodes = at[8];
+        genderCodes = at[9];
+        heap = at[11];
+        departments = new String[data.getInt(12) >>> 16];
+        genders = new String[data.getInt(12) & 0xFFFF];
+        for (int i = 0; i < departments.length; i++) {
+            departments[i] = string(data.getInt(at[10] + 4 * i));
+        }
+        for (int i = 0; i < genders.length; i++) {
+            genders[i] = string(data.getInt(at[10] + 4 * (departments.length + i)));
+        }
+    }
+
+    // Maps one snapshot file
+    public static StudentSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a student snapshot");
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                .order(ByteOrder.LITTLE_ENDIAN);
+            return new StudentSnapshot(file, data);
+        }
+    }
+
+    // The journal sequence number in the header of file, read without mapping it
+    public static long readSequence(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a student snapshot");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(header.duplicate().position(0).limit(CRC_OFFSET));
+            if ((int) crc.getValue() != header.getInt(CRC_OFFSET) || header.getLong(24) != channel.size()) {
+                throw new IOException(file + " is damaged or incomplete");
+            }
+            return header.getLong(16);
+        }
+    }
+
+    // The snapshot file with the highest sequence and a valid header, or null if there
+    // is none. Only headers are read, so nothing is left mapped.
+    public static Path findLatest(Path base) throws IOException {
+        Path latest = null;
+        long latestSequence = -1;
+        for (Path file : files(base)) {
+            try {
+                long sequence = readSequence(file);
+                if (sequence > latestSequence) {
+                    latest = file;
+                    latestSequence = sequence;
+                }
+            } catch (IOException e) {
+                System.err.println("Ignoring snapshot " + file + ": " + e.getMessage());
+            }
+        }
+        return latest;
+    }
+
+    // Where the snapshot complete up to sequence goes: <base>.<sequence>
+    public static Path fileFor(Path base, long sequence) {
+        return base.resolveSibling(base.getFileName() + "." + sequence);
+    }
+
+    // Removes every snapshot file but keep. A file still mapped by this process cannot
+    // be deleted on Windows, so failures are left for the next call to retry.
+    public static void deleteOthers(Path base, Path keep) {
+        try {
+            for (Path file : files(base)) {
+                if (!file.equals(keep)) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Still mapped, or in use elsewhere
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list old snapshots of " + base + ": " + e.getMessage());
+        }
+    }
+
+    // Removes every snapshot file, for when the stores have changed behind the
+    // journal's back
+    public static void delete(Path base) throws IOException {
+        for (Path file : files(base)) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // <base>.<digits>: sequence-named files, and the .1 and .2 of older versions
+    private static List<Path> files(Path base) throws IOException {
+        Path directory = base.toAbsolutePath().getParent();
+        String prefix = base.getFileName() + ".";
+        List<Path> files = new ArrayList<>();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    files.add(base.resolveSibling(file.getFileName()));
+                }
+            }
+        }
+        return files;
+    }
+
+    // Writes every record of the store to file as a snapshot complete up to sequence
+    public static void write(StudentSource source, Path file, long sequence) throws Exception {
+        Writer writer = new Writer();
+        try {
+            source.forEach(record -> {
+                try {
+                    writer.add(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.write(file, sequence);
+    }
+
+    // The journal sequence number the snapshot is complete up to
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Row of the ID, or -1
+    private int find(String studentId) {
+        long key = keyOf(studentId);
+        if (key < 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = data.getLong(ids + 8 * middle);
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsId(String studentId) {
+        return find(studentId) >= 0;
+    }
+
+    // Normalized, as StudentRegistry keeps them; null if the ID is not in the snapshot
+    public String findEmailById(String studentId) {
+        int row = find(studentId);
+        return row < 0 ? null : StudentRegistry.normalizeEmail(string(data.getInt(emails + 4 * row)));
+    }
+
+    // The ID registered with an email already normalized, or null
+    public String findIdByEmail(String normalizedEmail) {
+        int hash = normalizedEmail.hashCode();
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (data.getInt(emailHashes + 4 * middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int i = low; i < rows && data.getInt(emailHashes + 4 * i) == hash; i++) {
+            int row = data.getInt(emailRows + 4 * i);
+            if (StudentRegistry.normalizeEmail(string(data.getInt(emails + 4 * row))).equals(normalizedEmail)) {
+                return idOf(data.getLong(ids + 8 * row));
+            }
+        }
+        return null;
+    }
+
+    private StudentRecord record(int row) {
+        int date = data.getInt(dates + 4 * row);
+        return new StudentRecord(idOf(data.getLong(ids + 8 * row)),
+            string(data.getInt(firstNames + 4 * row)), string(data.getInt(lastNames + 4 * row)),
+            code(genders, data.get(genderCodes + row)), code(departments, data.get(departmentCodes + row)),
+            date == NULL_DATE ? null : LocalDate.ofEpochDay(date).toString(),
+            string(data.getInt(emails + 4 * row)), string(data.getInt(hashes + 4 * row)));
+    }
+
+    private static String code(String[] dictionary, byte code) {
+        return (code & 0xFF) == NULL_CODE ? null : dictionary[code & 0xFF];
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int position = heap + ref;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data.get(position++);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        byte[] bytes = new byte[length];
+        data.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getName() {
+        return "Snapshot";
+    }
+
+    @Override
+    public int loadMaxCounter(String yearPrefix) {
+        int year = Integer.parseInt(yearPrefix.substring(0, yearPrefix.length() - 1));
+        // Last row before the next year
+        long next = (long) (year + 1) << 32;
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (data.getLong(ids + 8 * middle) < next) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        long key = data.getLong(ids + 8 * (low - 1));
+        return (int) (key >>> 32) == year ? (int) key : 0;
+    }
+
+    @Override
+    public void forEachIdAndEmail(BiConsumer<String, String> consumer) {
+        for (int row = 0; row < rows; row++) {
+            consumer.accept(idOf(data.getLong(ids + 8 * row)), string(data.getInt(emails + 4 * row)));
+        }
+    }
+
+    @Override
+    public StudentRecord findById(String studentId) {
+        int row = find(studentId);
+        return row < 0 ? null : record(row);
+    }
+
+    // In StudentID order
+    @Override
+    public void forEach(Consumer<StudentRecord> consumer) {
+        for (int row = 0; row < rows; row++) {
+            consumer.accept(record(row));
+        }
+    }
+
+    // "2025-00042" as (2025 << 32) | 42, or -1 if the ID is not in the form the
+    // StudentIdSequence gives out (year, dash, counter of at least five digits)
+    static long keyOf(String studentId) {
+        int dash = studentId == null ? -1 : studentId.indexOf('-');
+        int digits = dash < 0 ? 0 : studentId.length() - dash - 1;
+        if (dash < 1 || dash > 4 || digits < 5 || digits > 9 || (digits > 5 && studentId.charAt(dash + 1) == '0')) {
+            return -1;
+        }
+        long year = 0;
+        long counter = 0;
+        for (int i = 0; i < studentId.length(); i++) {
+            if (i == dash) {
+                continue;
+            }
+            int digit = studentId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            if (i < dash) {
+                year = year * 10 + digit;
+            } else {
+                counter = counter * 10 + digit;
+            }
+        }
+        if (studentId.charAt(0) == '0' && dash > 1) {
+            return -1;
+        }
+        return year << 32 | counter;
+    }
+
+    // Epoch day of a yyyy-MM-dd date, or NULL_DATE if it is null or not in that form
+    static int epochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return NULL_DATE;
+        }
+        int value = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 4 || i == 7) {
+                continue;
+            }
+            int digit = date.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NULL_DATE;
+            }
+            value = value * 10 + digit;
+        }
+        try {
+            return (int) LocalDate.of(value / 10000, value / 100 % 100, value % 100).toEpochDay();
+        } catch (DateTimeException e) {
+            return NULL_DATE;
+        }
+    }
+
+    static String idOf(long key) {
+        String counter = Integer.toString((int) key);
+        StringBuilder id = new StringBuilder(16).append(key >>> 32).append('-');
+        for (int i = counter.length(); i < 5; i++) {
+            id.append('0');
+        }
+        return id.append(counter).toString();
+    }
+
+    // Collects rows in any order and writes them as a snapshot. Holds every row's
+    // columns on the heap until write(), about 40 bytes per student plus its strings.
+    public static final class Writer {
+        private long[] keys = new long[1024];
+        private int[] dateColumn = new int[1024];
+        private int[] emailHashColumn = new int[1024];
+        private int[][] refColumns = new int[4][1024];
+        private byte[] departmentColumn = new byte[1024];
+        private byte[] genderColumn = new byte[1024];
+        private int count;
+        private byte[] heapArray = new byte[1 << 16];
+        private int heapSize;
+        private final Map<String, Integer> sharedNames = new HashMap<>();
+        private final List<String> departmentNames = new ArrayList<>();
+        private final List<String> genderNames = new ArrayList<>();
+
+        // Fails for an ID or a date of birth the format cannot hold; a snapshot that
+        // reads back differently from the store would be worse than none
+        public void add(StudentRecord record) throws IOException {
+            long key = keyOf(record.getStudentId());
+            if (key < 0) {
+                throw new IOException("StudentID " + record.getStudentId() + " cannot be stored in a snapshot");
+            }
+            int date = epochDay(record.getDateOfBirth());
+            if (date == NULL_DATE && record.getDateOfBirth() != null) {
+                throw new IOException("Date of birth '" + record.getDateOfBirth() + "' of "
+                    + record.getStudentId() + " cannot be stored in a snapshot");
+            }
+            if (count == keys.length) {
+                int capacity = count * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                dateColumn = Arrays.copyOf(dateColumn, capacity);
+                emailHashColumn = Arrays.copyOf(emailHashColumn, capacity);
+                for (int i = 0; i < refColumns.length; i++) {
+                    refColumns[i] = Arrays.copyOf(refColumns[i], capacity);
+                }
+                departmentColumn = Arrays.copyOf(departmentColumn, capacity);
+                genderColumn = Arrays.copyOf(genderColumn, capacity);
+            }
+            keys[count] = key;
+            dateColumn[count] = date;
+            emailHashColumn[count] = record.getEmail() == null
+                ? 0 : StudentRegistry.normalizeEmail(record.getEmail()).hashCode();
+            refColumns[0][count] = sharedString(record.getFirstName());
+            refColumns[1][count] = sharedString(record.getLastName());
+            refColumns[2][count] = string(record.getEmail());
+            refColumns[3][count] = string(record.getPasswordHash());
+            departmentColumn[count] = code(departmentNames, record.getDepartment());
+            genderColumn[count] = code(genderNames, record.getGender());
+            count++;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        // Sorts by ID, drops repeated IDs (a store may hold a replayed row twice) and
+        // writes the snapshot to file, replacing it atomically
+        public void write(Path file, long sequence) throws IOException {
+            int[] order = sortedRows();
+            int rows = order.length;
+            int[] dictionaryRefs = new int[departmentNames.size() + genderNames.size()];
+            for (int i = 0; i < dictionaryRefs.length; i++) {
+                dictionaryRefs[i] = string(i < departmentNames.size()
+                    ? departmentNames.get(i) : genderNames.get(i - departmentNames.size()));
+            }
+            Layout layout = new Layout(rows, departmentNames.size(), genderNames.size(), heapSize);
+
+            // Emails by the hash of their normalized form, row in the low half
+            long[] emailIndex = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                emailIndex[i] = (long) emailHashColumn[order[i]] << 32 | i;
+            }
+            Arrays.sort(emailIndex);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, rows)
+                .putInt(12, departmentNames.size() << 16 | genderNames.size())
+                .putLong(16, sequence).putLong(24, layout.end).putLong(32, heapSize);
+            CRC32 crc = new CRC32();
+            crc.update(header.duplicate().position(0).limit(CRC_OFFSET));
+            header.putInt(CRC_OFFSET, (int) crc.getValue());
+
+            // Sections are written in file order through one buffer, each padded to 8 bytes
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                out.put(header);
+                for (int i = 0; i < rows; i++) {
+                    room(channel, out, 8).putLong(keys[order[i]]);
+                }
+                pad(channel, out);
+                for (int i = 0; i < rows; i++) {
+                    room(channel, out, 4).putInt(dateColumn[order[i]]);
+                }
+                pad(channel, out);
+                for (int[] column : refColumns) {
+                    for (int i = 0; i < rows; i++) {
+                        room(channel, out, 4).putInt(column[order[i]]);
+                    }
+                    pad(channel, out);
+                }
+                for (int i = 0; i < rows; i++) {
+                    room(channel, out, 4).putInt((int) (emailIndex[i] >> 32));
+                }
+                pad(channel, out);
+                for (int i = 0; i < rows; i++) {
+                    room(channel, out, 4).putInt((int) emailIndex[i]);
+                }
+                pad(channel, out);
+                for (int i = 0; i < rows; i++) {
+                    room(channel, out, 1).put(departmentColumn[order[i]]);
+                }
+                pad(channel, out);
+                for (int i = 0; i < rows; i++) {
+                    room(channel, out, 1).put(genderColumn[order[i]]);
+                }
+                pad(channel, out);
+                for (int ref : dictionaryRefs) {
+                    room(channel, out, 4).putInt(ref);
+                }
+                pad(channel, out);
+                for (int offset = 0; offset < heapSize; offset += out.capacity()) {
+                    int length = Math.min(out.capacity(), heapSize - offset);
+                    room(channel, out, length).put(heapArray, offset, length);
+                }
+                drain(channel, out);
+                if (channel.size() != layout.end) {
+                    throw new IOException("Snapshot layout mismatch: wrote " + channel.size() + " of " + layout.end + " bytes");
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static ByteBuffer room(FileChannel channel, ByteBuffer out, int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                drain(channel, out);
+            }
+            return out;
+        }
+
+        // Zeroes up to the next multiple of 8. Buffer positions match file offsets
+        // modulo 8 because, before the heap, the buffer is only drained when full.
+        private static void pad(FileChannel channel, ByteBuffer out) throws IOException {
+            while ((out.position() & 7) != 0) {
+                room(channel, out, 1).put((byte) 0);
+            }
+        }
+
+        private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        // Row indexes in ID order, each ID once
+        private int[] sortedRows() {
+            boolean sorted = true;
+            for (int i = 1; i < count && sorted; i++) {
+                sorted = keys[i - 1] < keys[i];
+            }
+            if (sorted) {
+                int[] order = new int[count];
+                Arrays.setAll(order, i -> i);
+                return order;
+            }
+            // Stores append in roughly ID order, so this is the unusual case
+            Integer[] boxed = new Integer[count];
+            Arrays.setAll(boxed, i -> i);
+            Arrays.sort(boxed, Comparator.comparingLong(i -> keys[i]));
+            int[] order = new int[count];
+            int rows = 0;
+            for (int i = 0; i < count; i++) {
+                if (rows == 0 || keys[order[rows - 1]] != keys[boxed[i]]) {
+                    order[rows++] = boxed[i];
+                }
+            }
+            return Arrays.copyOf(order, rows);
+        }
+
+        private int sharedString(String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            Integer ref = sharedNames.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            int added = string(value);
+            if (sharedNames.size() < MAX_SHARED_NAMES) {
+                sharedNames.put(value, added);
+            }
+            return added;
+        }
+
+        private int string(String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (heapSize + bytes.length + 5 > heapArray.length) {
+                long capacity = Math.max((long) heapArray.length * 2, heapSize + bytes.length + 5L);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("A snapshot is limited to 2 GB");
+                }
+                heapArray = Arrays.copyOf(heapArray, (int) capacity);
+            }
+            int ref = heapSize;
+            int length = bytes.length;
+            while (length >= 0x80) {
+                heapArray[heapSize++] = (byte) (length | 0x80);
+                length >>>= 7;
+            }
+            heapArray[heapSize++] = (byte) length;
+            System.arraycopy(bytes, 0, heapArray, heapSize, bytes.length);
+            heapSize += bytes.length;
+            return ref;
+        }
+
+        private static byte code(List<String> dictionary, String value) throws IOException {
+            if (value == null) {
+                return (byte) NULL_CODE;
+            }
+            int code = dictionary.indexOf(value);
+            if (code < 0) {
+                if (dictionary.size() == NULL_CODE) {
+                    throw new IOException("Too many distinct values for a snapshot dictionary: " + value);
+                }
+                dictionary.add(value);
+                code = dictionary.size() - 1;
+            }
+            return (byte) code;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// The read side of a StudentRepository: everything the registry, the search index,
+// the browser and the reports need to read students, and nothing that stores them.
+// A StudentSnapshot is one of these and nothing more.
+public interface StudentSource {
+
+    String getName();
+
+    // Highest counter among the IDs that start with yearPrefix, 0 if there are none
+    int loadMaxCounter(String yearPrefix) throws Exception;
+
+    void forEachIdAndEmail(BiConsumer<String, String> consumer) throws Exception;
+
+    // The stored record, or null if there is no student with this ID
+    StudentRecord findById(String studentId) throws Exception;
+
+    // Every stored record, in no particular order
+    void forEach(Consumer<StudentRecord> consumer) throws Exception;
+
+    // For the student browser: up to `limit` records matching the query that follow
+    // `after` in query order (from the start when after is null). The default scans
+    // every record; stores that can seek on the sort key override it.
+    default List<StudentRecord> findPage(StudentQuery query, StudentQuery.Key after, int limit) throws Exception {
+        return StudentQuery.scanPage(this, query, after, limit);
+    }
+
+    // Row count of the query and where each page of pageSize rows ends
+    default StudentQuery.PageIndex indexPages(StudentQuery query, int pageSize) throws Exception {
+        return StudentQuery.scanIndex(this, query, pageSize);
+    }
+}
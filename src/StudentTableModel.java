@@ -0,0 +1,206 @@
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Lazy TableModel over a StudentRepository. Only the query's page index (row count
+// and the key ending each page) and the last MAX_CACHED_PAGES pages of rows are held;
+// a row that is not cached shows blank while its page is fetched on a background
+// thread, by keyset from the end of the page before it. Sorting and filtering are
+// done by the store: setQuery() replaces everything.
+//
+// Used on the EDT only, apart from the loader thread's store calls.
+public class StudentTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 200;
+    static final int MAX_CACHED_PAGES = 10;
+
+    private static final String[] COLUMNS = {
+        "Student ID", "First Name", "Last Name", "Gender", "Department", "Date of Birth", "Email"
+    };
+    // Sort key behind each column; null where the store cannot sort
+    private static final StudentQuery.SortKey[] SORT_KEYS = {
+        StudentQuery.SortKey.STUDENT_ID, StudentQuery.SortKey.FIRST_NAME, StudentQuery.SortKey.LAST_NAME, null,
+        StudentQuery.SortKey.DEPARTMENT, null, null
+    };
+
+    private final StudentRepository store;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "student-browser");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Least recently used page is dropped first
+    private final Map<Integer, List<StudentRecord>> pages = new LinkedHashMap<Integer, List<StudentRecord>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<StudentRecord>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    // Loads for pages the user has already scrolled far away from are skipped
+    private final AtomicInteger lastRequestedPage = new AtomicInteger();
+    private StudentQuery query = StudentQuery.ALL;
+    private StudentQuery.PageIndex index = new StudentQuery.PageIndex(0, Collections.emptyList());
+    // Bumped by every setQuery(), so results of an older query are dropped
+    private int generation;
+    private Consumer<String> statusListener = status -> { };
+
+    public StudentTableModel(StudentRepository store) {
+        this.store = store;
+    }
+
+    // Told the row count once a query is indexed, or what went wrong
+    public void setStatusListener(Consumer<String> statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    public StudentQuery getQuery() {
+        return query;
+    }
+
+    public void setQuery(StudentQuery query) {
+        this.query = query;
+        int queryGeneration = ++generation;
+        pages.clear();
+        loading.clear();
+        statusListener.accept("Loading...");
+        loader.execute(() -> {
+            StudentQuery.PageIndex newIndex;
+            try {
+                newIndex = store.indexPages(query, PAGE_SIZE);
+            } catch (Exception e) {
+                report(queryGeneration, "Could not load students: " + e.getMessage());
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (queryGeneration != generation) {
+                    return;
+                }
+                index = newIndex;
+                fireTableDataChanged();
+                statusListener.accept(newIndex.getRowCount() + " students");
+            });
+        });
+    }
+
+    // Re-runs the query, e.g. to pick up new registrations
+    public void refresh() {
+        setQuery(query);
+    }
+
+    // Sorts by the column's key, or reverses the order if it already is; false if the
+    // column cannot be sorted on
+    public boolean sortBy(int column) {
+        StudentQuery.SortKey key = SORT_KEYS[column];
+        if (key == null) {
+            return false;
+        }
+        boolean descending = key == query.getSortKey() && !query.isDescending();
+        setQuery(query.sortedBy(key, descending));
+        return true;
+    }
+
+    public void dispose() {
+        loader.shutdownNow();
+    }
+
+    @Override
+    public int getRowCount() {
+        return index.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        String name = COLUMNS[column];
+        if (SORT_KEYS[column] != null && SORT_KEYS[column] == query.getSortKey()) {
+            name += query.isDescending() ? " \u25BC" : " \u25B2";
+        }
+        return name;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        List<StudentRecord> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int offset = row % PAGE_SIZE;
+        if (offset >= rows.size()) {
+            // Rows were deleted since the query was indexed
+            return null;
+        }
+        StudentRecord record = rows.get(offset);
+        switch (column) {
+            case 0: return record.getStudentId();
+            case 1: return record.getFirstName();
+            case 2: return record.getLastName();
+            case 3: return record.getGender();
+            case 4: return record.getDepartment();
+            case 5: return record.getDateOfBirth();
+            default: return record.getEmail();
+        }
+    }
+
+    private void requestPage(int page) {
+        lastRequestedPage.set(page);
+        if (!loading.add(page)) {
+            return;
+        }
+        int queryGeneration = generation;
+        StudentQuery pageQuery = query;
+        StudentQuery.Key after = index.after(page);
+        loader.execute(() -> {
+            List<StudentRecord> rows = null;
+            String error = null;
+            if (Math.abs(lastRequestedPage.get() - page) < MAX_CACHED_PAGES / 2) {
+                try {
+                    rows = store.findPage(pageQuery, after, PAGE_SIZE);
+                } catch (Exception e) {
+                    error = "Could not load students: " + e.getMessage();
+                }
+            }
+            List<StudentRecord> loaded = rows;
+            String failure = error;
+            SwingUtilities.invokeLater(() -> {
+                if (queryGeneration != generation) {
+                    return;
+                }
+                loading.remove(page);
+                if (failure != null) {
+                    statusListener.accept(failure);
+                } else if (loaded != null) {
+                    pages.put(page, loaded);
+                    int first = page * PAGE_SIZE;
+                    int last = Math.min(first + PAGE_SIZE, getRowCount()) - 1;
+                    if (last >= first) {
+                        fireTableRowsUpdated(first, last);
+                    }
+                }
+            });
+        });
+    }
+
+    private void report(int queryGeneration, String status) {
+        SwingUtilities.invokeLater(() -> {
+            if (queryGeneration == generation) {
+                statusListener.accept(status);
+            }
+        });
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Objects;
+
+// Immediate outcome of handing a RegistrationRequest to a Registrar.
+public final class Submission {
+
+    public enum Status {
+        // Accepted; the record is being saved
+        QUEUED,
+        // Failed validation; see getValidationResult()
+        INVALID,
+        DUPLICATE_EMAIL,
+        // The persistence queue is full; try again shortly
+        BUSY,
+        FAILED
+    }
+
+    private final Status status;
+    private final int validationResult;
+    private final StudentRecord record;
+    private final String existingStudentId;
+    private final String message;
+
+    private Submission(Status status, int validationResult, StudentRecord record, String existingStudentId,
+                       String message) {
+        this.status = status;
+        this.validationResult = validationResult;
+        this.record = record;
+        this.existingStudentId = existingStudentId;
+        this.message = message;
+    }
+
+    public static Submission queued(StudentRecord record) {
+        return new Submission(Status.QUEUED, 0, Objects.requireNonNull(record), null, null);
+    }
+
+    public static Submission invalid(int validationResult) {
+        return new Submission(Status.INVALID, validationResult, null, null, null);
+    }
+
+    // existingStudentId may be null if the other registration is still being saved
+    public static Submission duplicateEmail(String existingStudentId) {
+        return new Submission(Status.DUPLICATE_EMAIL, 0, null, existingStudentId, null);
+    }
+
+    public static Submission failed(Status status, String message) {
+        return new Submission(status, 0, null, null, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // RegistrationValidator bit mask; only meaningful for INVALID
+    public int getValidationResult() {
+        return validationResult;
+    }
+
+    // The accepted record with its new StudentID; only set for QUEUED
+    public StudentRecord getRecord() {
+        return record;
+    }
+
+    public String getExistingStudentId() {
+        return existingStudentId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}